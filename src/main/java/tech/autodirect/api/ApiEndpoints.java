@@ -16,26 +16,48 @@ See the License for the specific language governing permissions and
 limitations under the License.
 */
 
+import com.google.gson.Gson;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tech.autodirect.api.database.CachedTableCars;
 import tech.autodirect.api.database.TableCars;
 import tech.autodirect.api.database.TableOffers;
+import tech.autodirect.api.database.TablePartitionedOffers;
 import tech.autodirect.api.database.TableUsers;
 import tech.autodirect.api.interfaces.*;
 import tech.autodirect.api.services.*;
+import tech.autodirect.api.upstream.AdaptiveConcurrencyLimiter;
 import tech.autodirect.api.upstream.BankApi;
+import tech.autodirect.api.upstream.CachingSensoApi;
+import tech.autodirect.api.upstream.CircuitBreaker;
+import tech.autodirect.api.upstream.CoalescingSensoApi;
+import tech.autodirect.api.upstream.LimitingSensoApi;
+import tech.autodirect.api.upstream.ResilientSensoApi;
 import tech.autodirect.api.upstream.SensoApi;
+import tech.autodirect.api.upstream.SensoUnavailableException;
+import tech.autodirect.api.utils.EnvVars;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 // Some class attributes make sense for flexibility
 @SuppressWarnings("FieldCanBeLocal")
@@ -53,12 +75,47 @@ import java.sql.SQLException;
 public class ApiEndpoints extends SpringBootServletInitializer {
     // Name of the database to access
     private final String dbName = "autodirect";
+    // Max number of senso /rate api queries that each search waits for at once
+    private final int sensoParallelism = EnvVars.getInt("SENSO_API_PARALLELISM", 16);
+    // Seconds between reloads of the in-memory cars catalog (0 disables periodic reloads)
+    private final int carsRefreshSeconds = EnvVars.getInt("AUTODIRECT_CARS_REFRESH_SECONDS", 300);
+    // Seconds for which senso /rate api responses are reused (0 disables caching them)
+    private final int sensoCacheTtlSeconds = EnvVars.getInt("SENSO_CACHE_TTL_SECONDS", 300);
+    // Max number of senso /rate api responses that are cached at once
+    private final int sensoCacheMaxEntries = EnvVars.getInt("SENSO_CACHE_MAX_ENTRIES", 10000);
+    // Max number of senso /rate api requests in flight at once (shared by all searches), and how long a request
+    // waits for its turn (in milliseconds) before failing
+    private final int sensoMaxConcurrent = EnvVars.getInt("SENSO_BULKHEAD_MAX_CONCURRENT", 64);
+    private final int sensoMaxWaitMs = EnvVars.getInt("SENSO_BULKHEAD_MAX_WAIT_MS", 1000);
+    // Percentage of failed (or slow) recent senso /rate api requests at which requests stop being sent
+    private final int sensoFailureRate = EnvVars.getInt("SENSO_CIRCUIT_FAILURE_RATE", 50);
+    private final int sensoSlowCallMs = EnvVars.getInt("SENSO_CIRCUIT_SLOW_CALL_MS", 5000);
+    private final int sensoSlowCallRate = EnvVars.getInt("SENSO_CIRCUIT_SLOW_CALL_RATE", 80);
+    // Seconds for which requests are not sent once the circuit breaker opens
+    private final int sensoOpenSeconds = EnvVars.getInt("SENSO_CIRCUIT_OPEN_SECONDS", 30);
+    // Bounds of the adaptive limit on senso /rate api requests in flight at once, the response time (in
+    // milliseconds) from which requests lower it, and how many requests over the limit wait for their turn at once
+    // and for how long
+    private final int sensoLimitInitial = EnvVars.getInt("SENSO_LIMIT_INITIAL", 16);
+    private final int sensoLimitMin = EnvVars.getInt("SENSO_LIMIT_MIN", 4);
+    private final int sensoLimitMax = EnvVars.getInt("SENSO_LIMIT_MAX", 64);
+    private final int sensoLimitLatencyMs = EnvVars.getInt("SENSO_LIMIT_LATENCY_MS", 2000);
+    private final int sensoLimitMaxQueue = EnvVars.getInt("SENSO_LIMIT_MAX_QUEUE", 64);
+    private final int sensoLimitMaxWaitMs = EnvVars.getInt("SENSO_LIMIT_MAX_WAIT_MS", 2000);
+    // Whether offers are kept in one partitioned table for all users, instead of one table per user
+    private final boolean partitionedOffers = "partitioned".equals(System.getenv("AUTODIRECT_OFFERS_STORAGE"));
+    // Number of partitions of the partitioned offers table (only used when it is first created)
+    private final int offersPartitions = EnvVars.getInt("AUTODIRECT_OFFERS_PARTITIONS", 16);
 
     // Initialize Frameworks & Drivers
     private TableCarsInterface tableCars;
     private TableUsersInterface tableUsers;
     private TableOffersInterface tableOffers;
     private SensoApiInterface sensoApi;
+    private CachingSensoApi cachingSensoApi = null;
+    private LimitingSensoApi limitingSensoApi;
+    private ResilientSensoApi resilientSensoApi;
+    private CoalescingSensoApi coalescingSensoApi;
     private BankApiInterface bankApi;
 
     // Initialize Services (Use Cases)
@@ -73,6 +130,8 @@ public class ApiEndpoints extends SpringBootServletInitializer {
 
     // server error that gets thrown to the frontend upon catching other errors
     private ResponseStatusException SERVER_ERROR;
+    // Gson object for writing streamed responses as JSON
+    private static final Gson GSON = new Gson();
 
 
     public static void main(String[] args) {
@@ -82,32 +141,84 @@ public class ApiEndpoints extends SpringBootServletInitializer {
     public ApiEndpoints() {
         try {
             // Instantiate Frameworks & Drivers
-            tableCars = new TableCars(dbName);
-            tableUsers = new TableUsers(dbName);
-            tableOffers = new TableOffers(dbName);
-            sensoApi = new SensoApi();
+            CachedTableCars cachedTableCars = new CachedTableCars(new TableCars(dbName));
+            if (carsRefreshSeconds > 0) {
+                cachedTableCars.startScheduledRefresh(carsRefreshSeconds, TimeUnit.SECONDS);
+            }
+            tableCars = cachedTableCars;
+            if (partitionedOffers) {
+                tableOffers = new TablePartitionedOffers(dbName, offersPartitions);
+            } else {
+                tableOffers = new TableOffers(dbName);
+            }
+            tableUsers = new TableUsers(dbName, tableOffers);
+            AdaptiveConcurrencyLimiter sensoLimiter = new AdaptiveConcurrencyLimiter(
+                    sensoLimitInitial, sensoLimitMin, sensoLimitMax, sensoLimitLatencyMs,
+                    sensoLimitMaxQueue, sensoLimitMaxWaitMs, TimeUnit.MILLISECONDS
+            );
+            CircuitBreaker sensoCircuitBreaker = new CircuitBreaker(
+                    sensoFailureRate, sensoSlowCallMs, sensoSlowCallRate,
+                    TimeUnit.SECONDS.toMillis(sensoOpenSeconds), TimeUnit.MILLISECONDS
+            );
+            // The circuit breaker sits behind the concurrency limiter, so that it only times requests actually sent
+            // to the Senso API and never counts requests that waited in, or were rejected by, the limiter's queue
+            resilientSensoApi = new ResilientSensoApi(
+                    new SensoApi(), sensoCircuitBreaker, sensoMaxConcurrent, sensoMaxWaitMs, TimeUnit.MILLISECONDS
+            );
+            limitingSensoApi = new LimitingSensoApi(resilientSensoApi, sensoLimiter);
+            coalescingSensoApi = new CoalescingSensoApi(limitingSensoApi);
+            sensoApi = coalescingSensoApi;
+            if (sensoCacheTtlSeconds > 0) {
+                cachingSensoApi = new CachingSensoApi(
+                        sensoApi, sensoCacheTtlSeconds, TimeUnit.SECONDS, sensoCacheMaxEntries
+                );
+                sensoApi = cachingSensoApi;
+            }
             bankApi = new BankApi();
 
-            // Instantiate Services (Use Cases)
-            svcClaimOffer = new SvcClaimOffer();
-            svcGetClaimedOffers = new SvcGetClaimedOffers();
-            svcGetOfferDetails = new SvcGetOfferDetails();
-            svcMockBankApi = new SvcMockBankApi();
-            svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, sensoApi);
-            svcUnclaimOffer = new SvcUnclaimOffer();
-            svcUpdateLoanAmount = new SvcUpdateLoanAmount();
-            svcUserLogin = new SvcUserLogin();
-
-            // Instantiate Server Error
-            SERVER_ERROR = new ResponseStatusException(
-                    HttpStatus.INTERNAL_SERVER_ERROR, "Server Error!"
-            );
+            createServices();
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
         }
 
     }
 
+    /**
+     * Create ApiEndpoints that use the given tables and Senso API directly (e.g. in-memory ones in tests), without
+     * the cache, circuit breaker and concurrency limit in front of the Senso API.
+     */
+    ApiEndpoints(
+            TableCarsInterface tableCars,
+            TableUsersInterface tableUsers,
+            TableOffersInterface tableOffers,
+            SensoApiInterface sensoApi
+    ) {
+        this.tableCars = tableCars;
+        this.tableUsers = tableUsers;
+        this.tableOffers = tableOffers;
+        this.sensoApi = sensoApi;
+        createServices();
+    }
+
+    /**
+     * Instantiate the services (use cases) and the server error.
+     */
+    private void createServices() {
+        svcClaimOffer = new SvcClaimOffer();
+        svcGetClaimedOffers = new SvcGetClaimedOffers();
+        svcGetOfferDetails = new SvcGetOfferDetails();
+        svcMockBankApi = new SvcMockBankApi();
+        svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, sensoApi, sensoParallelism);
+        svcUnclaimOffer = new SvcUnclaimOffer();
+        svcUpdateLoanAmount = new SvcUpdateLoanAmount();
+        svcUserLogin = new SvcUserLogin();
+
+        // Instantiate Server Error
+        SERVER_ERROR = new ResponseStatusException(
+                HttpStatus.INTERNAL_SERVER_ERROR, "Server Error!"
+        );
+    }
+
     @Override
     protected SpringApplicationBuilder configure(SpringApplicationBuilder builder) {
         return builder.sources(ApiEndpoints.class);
@@ -124,16 +235,107 @@ public class ApiEndpoints extends SpringBootServletInitializer {
             @RequestParam(name = "downpayment") String downPayment,
             @RequestParam(name = "budget_mo") String budgetMo,
             @RequestParam(name = "sort_by") String sortBy,
-            @RequestParam(name = "sort_asc") String sortAsc
+            @RequestParam(name = "sort_asc") String sortAsc,
+            @RequestParam(name = "page", required = false) String page,
+            @RequestParam(name = "page_size", required = false) String pageSize
     ) {
         try {
-            return svcSearch.search(userId, downPayment, budgetMo, sortBy, sortAsc);
+            return svcSearch.search(userId, downPayment, budgetMo, sortBy, sortAsc, page, pageSize);
         } catch (IOException | InterruptedException | SQLException e) {
             e.printStackTrace();
             throw SERVER_ERROR;
         }
     }
 
+    /**
+     * Same as /search, but streams the results as newline-delimited JSON (NDJSON). Each car and offer is sent
+     * in a {"type": "result", "data": {...}} line as soon as its loan offer is approved by the Senso API.
+     * The last line is {"type": "summary", "data": [...]}, which holds the sorted (and paginated) results exactly
+     * like /search would return them. If the search fails after streaming has started, the last line is
+     * {"type": "error", "message": "..."} instead. If a line can not be written (e.g. the client went away),
+     * the search is stopped.
+     */
+    @GetMapping("/searchStream")
+    public ResponseEntity<StreamingResponseBody> searchStream(
+            @RequestParam(name = "user_id") String userId,
+            @RequestParam(name = "downpayment") String downPayment,
+            @RequestParam(name = "budget_mo") String budgetMo,
+            @RequestParam(name = "sort_by") String sortBy,
+            @RequestParam(name = "sort_asc") String sortAsc,
+            @RequestParam(name = "page", required = false) String page,
+            @RequestParam(name = "page_size", required = false) String pageSize
+    ) {
+        // Reject bad params before streaming starts, so that they still get a 400 status
+        svcSearch.checkGoodSearchParams(userId, downPayment, budgetMo, sortBy, sortAsc, page, pageSize);
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            try {
+                List<Map<String, Object>> results = svcSearch.search(
+                        userId, downPayment, budgetMo, sortBy, sortAsc, page, pageSize,
+                        result -> writeNdjsonLine(writer, Map.of("type", "result", "data", result))
+                );
+                writeNdjsonLine(writer, Map.of("type", "summary", "data", results));
+            } catch (NdjsonWriteException e) {
+                // Nothing more can be sent, so there is no error line to write either
+                throw e.getCause();
+            } catch (IOException | InterruptedException | SQLException | RuntimeException e) {
+                e.printStackTrace();
+                String message = e instanceof ResponseStatusException ? e.getMessage() : "Server Error!";
+                writeNdjsonLine(writer, Map.of("type", "error", "message", String.valueOf(message)));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * Write value as a single line of JSON to writer and flush it, so that it is sent to the client right away.
+     */
+    private void writeNdjsonLine(Writer writer, Object value) throws NdjsonWriteException {
+        try {
+            writer.write(GSON.toJson(value));
+            writer.write("\n");
+            writer.flush();
+        } catch (IOException e) {
+            throw new NdjsonWriteException(e);
+        }
+    }
+
+    /**
+     * Thrown by writeNdjsonLine() when a line could not be written, so that it is told apart from the errors of
+     * the search the line belongs to.
+     */
+    private static class NdjsonWriteException extends UncheckedIOException {
+        NdjsonWriteException(IOException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Statistics about the calls to the Senso API (e.g. how many /rate requests were answered from the cache,
+     * and the state of the circuit breaker). Only the parts in front of the Senso API are reported (none, when
+     * created with the test constructor).
+     */
+    @GetMapping("/sensoStats")
+    public Object sensoStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (cachingSensoApi != null) {
+            stats.put("cache", cachingSensoApi.getStats());
+        }
+        if (coalescingSensoApi != null) {
+            stats.put("coalescing", coalescingSensoApi.getStats());
+        }
+        if (resilientSensoApi != null) {
+            stats.putAll(resilientSensoApi.getStats());
+        }
+        if (limitingSensoApi != null) {
+            stats.put("concurrency_limit", limitingSensoApi.getLimiter().getStats());
+        }
+        return stats;
+    }
+
     @GetMapping("/login")
     public Object login(@RequestParam(name = "user_id") String userId) {
         try {
@@ -175,7 +377,7 @@ public class ApiEndpoints extends SpringBootServletInitializer {
     @GetMapping("/getClaimedOffers")
     public Object getClaimedOffers(@RequestParam(name = "user_id") String userId) {
         try {
-            return svcGetClaimedOffers.getClaimedOffers(tableCars, tableOffers, userId);
+            return svcGetClaimedOffers.getClaimedOffers(tableOffers, userId);
         } catch (SQLException e) {
             e.printStackTrace();
             throw SERVER_ERROR;
@@ -211,6 +413,8 @@ public class ApiEndpoints extends SpringBootServletInitializer {
                     offerId,
                     newLoanAmount
             );
+        } catch (SensoUnavailableException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
         } catch (SQLException | IOException | InterruptedException e) {
             e.printStackTrace();
             throw SERVER_ERROR;
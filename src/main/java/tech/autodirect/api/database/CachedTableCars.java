@@ -0,0 +1,199 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntCar;
+import tech.autodirect.api.interfaces.TableCarsInterface;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the cars table from an in-memory snapshot instead of querying the database on every call.
+ *
+ * The snapshot is loaded from another TableCarsInterface (normally a TableCars) and can be reloaded on
+ * demand with refresh() or periodically with startScheduledRefresh(). A new snapshot is fully built before
+ * it replaces the old one, so readers always see either the old or the new catalog, never a mix.
+ */
+public class CachedTableCars implements TableCarsInterface {
+    private final TableCarsInterface tableCars;
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService refreshScheduler = null;
+
+    /**
+     * Create a new CachedTableCars object and load its first snapshot from tableCars.
+     *
+     * @param tableCars : the cars table to load snapshots from (and to add new cars to)
+     */
+    public CachedTableCars(TableCarsInterface tableCars) throws SQLException {
+        this.tableCars = tableCars;
+        refresh();
+    }
+
+    /**
+     * Reload the snapshot from the underlying cars table.
+     */
+    public void refresh() throws SQLException {
+        this.snapshot = new Snapshot(tableCars.getAllCars());
+    }
+
+    /**
+     * Reload the snapshot every period (in unit) on a background thread, until stopScheduledRefresh() is called.
+     * If a reload fails, the error is printed and the current snapshot is kept until the next reload.
+     */
+    public synchronized void startScheduledRefresh(long period, TimeUnit unit) {
+        stopScheduledRefresh();
+        refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cars-snapshot-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (SQLException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stop reloading the snapshot periodically (does nothing if startScheduledRefresh() was not called).
+     */
+    public synchronized void stopScheduledRefresh() {
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdownNow();
+            refreshScheduler = null;
+        }
+    }
+
+    /**
+     * Return the number of cars in the current snapshot.
+     */
+    public int size() {
+        return snapshot.cars.size();
+    }
+
+    @Override
+    public List<Map<String, Object>> getAllCars() {
+        // Callers are free to modify the maps they get back, so hand out copies of the snapshot's rows
+        List<Map<String, Object>> cars = snapshot.cars;
+        List<Map<String, Object>> copies = new ArrayList<>(cars.size());
+        for (Map<String, Object> car : cars) {
+            copies.add(new HashMap<>(car));
+        }
+        return copies;
+    }
+
+    @Override
+    public Map<String, Object> getCarById(int carId) throws ResponseStatusException {
+        Map<String, Object> car = snapshot.carsById.get(carId);
+        if (car == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "car not found"
+            );
+        }
+        return new HashMap<>(car);
+    }
+
+    /**
+     * Return the cars of the snapshot as entities. The list and the cars can not be changed, so they are not copied.
+     */
+    @Override
+    public List<EntCar> getAllCarEntities() {
+        return snapshot.carEntities;
+    }
+
+    @Override
+    public EntCar getCarEntityById(int carId) throws ResponseStatusException {
+        EntCar car = snapshot.carEntitiesById.get(carId);
+        if (car == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "car not found"
+            );
+        }
+        return car;
+    }
+
+    /**
+     * Add a car to the underlying cars table and reload the snapshot so that it includes the new car.
+     */
+    @Override
+    public int addCar(
+            String brand,
+            String model,
+            int year,
+            double price,
+            double kms
+    ) throws SQLException {
+        int carId = tableCars.addCar(brand, model, year, price, kms);
+        refresh();
+        return carId;
+    }
+
+    /**
+     * Add cars to the underlying cars table and reload the snapshot once so that it includes all of them.
+     */
+    @Override
+    public List<Integer> addCars(List<EntCar> cars) throws SQLException {
+        List<Integer> carIds = tableCars.addCars(cars);
+        refresh();
+        return carIds;
+    }
+
+    @Override
+    public boolean checkCarExists(int carId) {
+        return snapshot.carsById.containsKey(carId);
+    }
+
+    /**
+     * An immutable copy of the cars table, indexed by car_id.
+     */
+    private static final class Snapshot {
+        private final List<Map<String, Object>> cars;
+        private final Map<Integer, Map<String, Object>> carsById;
+        // the same cars as entities, built once per snapshot instead of on every call
+        private final List<EntCar> carEntities;
+        private final Map<Integer, EntCar> carEntitiesById;
+
+        private Snapshot(List<Map<String, Object>> carMaps) throws SQLException {
+            List<Map<String, Object>> cars = new ArrayList<>(carMaps.size());
+            Map<Integer, Map<String, Object>> carsById = new HashMap<>(carMaps.size() * 2);
+            List<EntCar> carEntities = new ArrayList<>(carMaps.size());
+            Map<Integer, EntCar> carEntitiesById = new HashMap<>(carMaps.size() * 2);
+            for (Map<String, Object> carMap : carMaps) {
+                Map<String, Object> car = Collections.unmodifiableMap(new HashMap<>(carMap));
+                cars.add(car);
+                carsById.put((Integer) car.get("car_id"), car);
+
+                EntCar carEntity = new EntCar();
+                carEntity.loadFromMap(car);
+                carEntities.add(carEntity);
+                carEntitiesById.put(carEntity.getCarId(), carEntity);
+            }
+            this.cars = Collections.unmodifiableList(cars);
+            this.carsById = Collections.unmodifiableMap(carsById);
+            this.carEntities = Collections.unmodifiableList(carEntities);
+            this.carEntitiesById = Collections.unmodifiableMap(carEntitiesById);
+        }
+    }
+}
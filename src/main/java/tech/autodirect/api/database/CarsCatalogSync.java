@@ -0,0 +1,225 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import tech.autodirect.api.entities.EntCar;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Responsible for bringing public.cars in line with a new copy of the cars catalog (a CSV file), changing only
+ * the cars that differ. Cars are matched by their source ID (the id column of the CSV file, stored in
+ * cars.source_id); cars without a source ID (e.g. added with TableCars.addCar()) are never changed.
+ *
+ * The catalog's cars are staged in batches with stage() into a temporary table, then finish() updates the cars
+ * whose values changed, inserts the new ones and (if deleteMissing) deletes those no longer in the catalog, each
+ * with a single statement. Everything runs in one transaction on conn, so the sync is applied entirely or not at
+ * all. If a source ID is staged more than once, the car staged first (by row number) wins, as when the catalog is
+ * loaded with a CarsCsvPipeline; if any of its rows was staged as rejected, its car is left as it is.
+ *
+ * Offers tables have no foreign key to public.cars, so the offers of deleted cars are left in them (finish()
+ * returns the deleted car IDs, for whoever needs to clean them up).
+ */
+public class CarsCatalogSync {
+    private final Connection conn;
+    private final boolean deleteMissing;
+    private final boolean autoCommit;
+
+    /**
+     * Car IDs inserted, updated and deleted by a sync.
+     */
+    public static final class Result {
+        private final List<Integer> insertedCarIds;
+        private final List<Integer> updatedCarIds;
+        private final List<Integer> deletedCarIds;
+
+        private Result(List<Integer> insertedCarIds, List<Integer> updatedCarIds, List<Integer> deletedCarIds) {
+            this.insertedCarIds = Collections.unmodifiableList(insertedCarIds);
+            this.updatedCarIds = Collections.unmodifiableList(updatedCarIds);
+            this.deletedCarIds = Collections.unmodifiableList(deletedCarIds);
+        }
+
+        public List<Integer> getInsertedCarIds() {
+            return insertedCarIds;
+        }
+
+        public List<Integer> getUpdatedCarIds() {
+            return updatedCarIds;
+        }
+
+        public List<Integer> getDeletedCarIds() {
+            return deletedCarIds;
+        }
+    }
+
+    /**
+     * Start a sync of public.cars on conn, which must not be used for anything else until finish() or abort().
+     *
+     * @param conn          : connection to the database holding public.cars
+     * @param deleteMissing : whether to delete the cars (with a source ID) that are not staged
+     */
+    public CarsCatalogSync(Connection conn, boolean deleteMissing) throws SQLException {
+        this.conn = conn;
+        this.deleteMissing = deleteMissing;
+        this.autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        // the staging table only lives until the end of the transaction. "rejected" rows (whose values are not
+        // valid) do not change their car, but keep it from being deleted.
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                    "CREATE TEMPORARY TABLE cars_sync (" +
+                            "row_number     bigint      NOT NULL, " +
+                            "source_id      varchar(50) NOT NULL, " +
+                            "brand          varchar(50) NULL, " +
+                            "model          varchar(50) NULL, " +
+                            "year           integer     NULL, " +
+                            "price          decimal(12) NULL, " +
+                            "mileage        real        NULL, " +
+                            "rejected       boolean     NOT NULL" +
+                            ") ON COMMIT DROP;"
+            );
+        } catch (SQLException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Stage a batch of the catalog's cars.
+     */
+    public void stage(List<CarsCsvPipeline.CsvCar> cars) throws SQLException {
+        try (
+                PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO cars_sync VALUES (?, ?, ?, ?, ?, ?, ?, false);"
+                )
+        ) {
+            for (CarsCsvPipeline.CsvCar csvCar : cars) {
+                EntCar car = csvCar.getCar();
+                stmt.setLong(1, csvCar.getRowNumber());
+                stmt.setString(2, csvCar.getSourceId());
+                stmt.setString(3, car.getBrand());
+                stmt.setString(4, car.getModel());
+                stmt.setInt(5, car.getYear());
+                stmt.setBigDecimal(6, BigDecimal.valueOf(car.getPrice()));
+                stmt.setDouble(7, car.getKms());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Stage the source ID of a row of the catalog that is not a valid car, so that its car is left as it is.
+     */
+    public void stageRejected(long rowNumber, String sourceId) throws SQLException {
+        try (
+                PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO cars_sync (row_number, source_id, rejected) VALUES (?, ?, true);"
+                )
+        ) {
+            stmt.setLong(1, rowNumber);
+            stmt.setString(2, sourceId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Apply the staged catalog to public.cars and commit, then return the IDs of the changed cars.
+     * If anything fails, the transaction is rolled back and public.cars is left unchanged.
+     */
+    public Result finish() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // keep the first valid row staged for each source ID (if a source ID was staged as rejected, all its
+            // rows are ignored, and its car is left as it is)
+            stmt.executeUpdate(
+                    "CREATE TEMPORARY TABLE cars_sync_first ON COMMIT DROP AS " +
+                            "SELECT DISTINCT ON (source_id) * FROM cars_sync WHERE NOT rejected " +
+                            "ORDER BY source_id, row_number;"
+            );
+            stmt.executeUpdate(
+                    "DELETE FROM cars_sync_first f " +
+                            "WHERE EXISTS (SELECT 1 FROM cars_sync s WHERE s.source_id = f.source_id AND s.rejected);"
+            );
+            stmt.executeUpdate("ANALYZE cars_sync_first;");
+
+            List<Integer> updatedCarIds = queryCarIds(
+                    stmt,
+                    "UPDATE public.cars c " +
+                            "SET brand = s.brand, model = s.model, year = s.year, " +
+                            "price = s.price, mileage = s.mileage " +
+                            "FROM cars_sync_first s " +
+                            "WHERE c.source_id = s.source_id " +
+                            "AND (c.brand, c.model, c.year, c.price, c.mileage) IS DISTINCT FROM " +
+                            "(s.brand, s.model, s.year, s.price, s.mileage) " +
+                            "RETURNING c.car_id;"
+            );
+            List<Integer> insertedCarIds = queryCarIds(
+                    stmt,
+                    "INSERT INTO public.cars (source_id, brand, model, year, price, mileage) " +
+                            "SELECT s.source_id, s.brand, s.model, s.year, s.price, s.mileage " +
+                            "FROM cars_sync_first s " +
+                            "WHERE NOT EXISTS (SELECT 1 FROM public.cars c WHERE c.source_id = s.source_id) " +
+                            "ORDER BY s.row_number " +
+                            "RETURNING car_id;"
+            );
+            List<Integer> deletedCarIds = new ArrayList<>();
+            if (deleteMissing) {
+                // cars_sync (not cars_sync_first) also holds the source IDs of rejected rows
+                deletedCarIds = queryCarIds(
+                        stmt,
+                        "DELETE FROM public.cars c " +
+                                "WHERE c.source_id IS NOT NULL " +
+                                "AND NOT EXISTS (SELECT 1 FROM cars_sync s WHERE s.source_id = c.source_id) " +
+                                "RETURNING c.car_id;"
+                );
+            }
+
+            conn.commit();
+            conn.setAutoCommit(autoCommit);
+            return new Result(insertedCarIds, updatedCarIds, deletedCarIds);
+        } catch (SQLException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Give up on the sync, leaving public.cars unchanged.
+     */
+    public void abort() throws SQLException {
+        conn.rollback();
+        conn.setAutoCommit(autoCommit);
+    }
+
+    /**
+     * Execute sql (which returns car_id) with stmt and return the car IDs.
+     */
+    private static List<Integer> queryCarIds(Statement stmt, String sql) throws SQLException {
+        List<Integer> carIds = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                carIds.add(rs.getInt("car_id"));
+            }
+        }
+        return carIds;
+    }
+}
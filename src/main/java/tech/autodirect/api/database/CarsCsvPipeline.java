@@ -0,0 +1,464 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import com.opencsv.exceptions.CsvValidationException;
+import tech.autodirect.api.entities.EntCar;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Responsible for turning the rows of a cars CSV file into cars, with a pipeline of threads:
+ * a reader thread reads the rows in chunks, worker threads parse and validate the chunks in parallel, and the
+ * calling thread hands the valid cars of each chunk to a CarsWriter (e.g. one that adds them to the cars table).
+ *
+ * The queues between the stages are bounded, so the reader waits when the workers or the writer fall behind
+ * instead of reading the whole file into memory. Rows that are not valid are handed to a RejectWriter instead of
+ * aborting the run. Chunks are written in the file's order (those that finish parsing early wait for the ones
+ * before them), so a run always writes the same cars in the same order.
+ * Optionally, rows whose source ID was already loaded, or was already written by the run, are rejected too, so
+ * that loading a file with duplicate IDs (or loading it again) does not fail on the unique cars.source_id. Of the
+ * valid rows with the same source ID, the first in the file is written.
+ *
+ * The CSV rows are expected to hold the car's id in the CSV file (its source ID) in column 0, price, brand, model
+ * and year in columns 1 to 4 and mileage in column 6.
+ */
+public class CarsCsvPipeline {
+    // Bounds of the values of a valid car, matching the columns of the cars table
+    private static final int MIN_YEAR = 1886;
+    private static final int MAX_NAME_LENGTH = 50;
+    private static final int MAX_SOURCE_ID_LENGTH = 50;
+    private static final double MAX_PRICE = 1e12;
+
+    private final int numWorkers;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final Set<String> existingSourceIds;
+
+    /**
+     * Reads the next row of the CSV file, or null when there are no rows left (like CSVReader.readNext()).
+     */
+    @FunctionalInterface
+    public interface RowReader {
+        String[] readNext() throws IOException, CsvValidationException;
+    }
+
+    /**
+     * Writes a chunk of valid cars. Only called from the thread running the pipeline.
+     */
+    @FunctionalInterface
+    public interface CarsWriter {
+        void write(List<CsvCar> cars) throws IOException, SQLException;
+    }
+
+    /**
+     * A valid car of the CSV file, with its source ID (the id column of the CSV file).
+     */
+    public static final class CsvCar {
+        private final long rowNumber;
+        private final String sourceId;
+        private final EntCar car;
+
+        CsvCar(long rowNumber, String sourceId, EntCar car) {
+            this.rowNumber = rowNumber;
+            this.sourceId = sourceId;
+            this.car = car;
+        }
+
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        public String getSourceId() {
+            return sourceId;
+        }
+
+        public EntCar getCar() {
+            return car;
+        }
+    }
+
+    /**
+     * Writes a row that is not valid, given its number (the first row after the header is 1) and the reason.
+     * Only called from the thread running the pipeline.
+     */
+    @FunctionalInterface
+    public interface RejectWriter {
+        void reject(long rowNumber, String[] row, String reason) throws IOException, SQLException;
+    }
+
+    /**
+     * Number of cars written and rows rejected by a run of the pipeline.
+     */
+    public static final class Result {
+        private final long written;
+        private final long rejected;
+
+        private Result(long written, long rejected) {
+            this.written = written;
+            this.rejected = rejected;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+    }
+
+    /**
+     * Create a new CarsCsvPipeline.
+     *
+     * @param numWorkers    : number of threads parsing and validating rows
+     * @param chunkSize     : number of rows handed from one stage to the next at once (and written at once)
+     * @param queueCapacity : number of chunks each queue between two stages holds before the earlier stage waits
+     */
+    public CarsCsvPipeline(int numWorkers, int chunkSize, int queueCapacity) {
+        this(numWorkers, chunkSize, queueCapacity, null);
+    }
+
+    /**
+     * Same as above, but rejects the rows whose source ID is in existingSourceIds (e.g. the source IDs already in
+     * the cars table) or is the source ID of a row written before it. If existingSourceIds is null, rows are
+     * written whatever their source ID.
+     */
+    public CarsCsvPipeline(int numWorkers, int chunkSize, int queueCapacity, Set<String> existingSourceIds) {
+        if (numWorkers < 1 || chunkSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("numWorkers, chunkSize and queueCapacity must be at least 1");
+        }
+        this.numWorkers = numWorkers;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.existingSourceIds = existingSourceIds;
+    }
+
+    /**
+     * Read all rows (after the header) from rowReader, write the valid cars with carsWriter and the rows that are
+     * not valid with rejectWriter. If reading or writing fails, the pipeline stops and the exception is thrown.
+     */
+    public Result run(RowReader rowReader, CarsWriter carsWriter, RejectWriter rejectWriter)
+            throws IOException, CsvValidationException, SQLException, InterruptedException {
+        BlockingQueue<RowChunk> rowChunks = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<ParsedChunk> parsedChunks = new ArrayBlockingQueue<>(queueCapacity);
+        // bounds the chunks read but not yet written, including those waiting for the chunks before them
+        Semaphore unwrittenChunks = new Semaphore(2 * queueCapacity + numWorkers);
+        ExecutorService executor = Executors.newFixedThreadPool(numWorkers + 1, runnable -> {
+            Thread thread = new Thread(runnable, "cars-csv-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Future<?> reader = executor.submit(() -> {
+                readRows(rowReader, rowChunks, unwrittenChunks);
+                return null;
+            });
+            for (int i = 0; i < numWorkers; i++) {
+                executor.submit(() -> {
+                    parseRows(rowChunks, parsedChunks);
+                    return null;
+                });
+            }
+
+            // write the parsed chunks in the file's order until every worker has finished, keeping the chunks
+            // that finish early by their index until it is their turn. writtenSourceIds maps the source ID of each
+            // written car to its row number, when rows with duplicate source IDs are rejected.
+            Map<String, Long> writtenSourceIds = existingSourceIds == null ? null : new HashMap<>();
+            Map<Long, ParsedChunk> earlyChunks = new HashMap<>();
+            long nextIndex = 0;
+            long written = 0;
+            long rejected = 0;
+            int finishedWorkers = 0;
+            while (finishedWorkers < numWorkers) {
+                ParsedChunk parsedChunk = parsedChunks.take();
+                if (parsedChunk == ParsedChunk.END) {
+                    finishedWorkers++;
+                    continue;
+                }
+                earlyChunks.put(parsedChunk.index, parsedChunk);
+
+                ParsedChunk chunk;
+                while ((chunk = earlyChunks.remove(nextIndex)) != null) {
+                    if (writtenSourceIds != null) {
+                        chunk = rejectDuplicates(chunk, writtenSourceIds);
+                    }
+                    if (!chunk.cars.isEmpty()) {
+                        carsWriter.write(chunk.cars);
+                        written += chunk.cars.size();
+                    }
+                    for (Rejected reject : chunk.rejects) {
+                        rejectWriter.reject(reject.rowNumber, reject.row, reject.reason);
+                        rejected++;
+                    }
+                    nextIndex++;
+                    unwrittenChunks.release();
+                }
+            }
+
+            // throw the reader's exception if it failed (the workers then finished early)
+            try {
+                reader.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof CsvValidationException) {
+                    throw (CsvValidationException) cause;
+                } else if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+            return new Result(written, rejected);
+        } finally {
+            // stops the reader and workers if writing failed
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Return chunk without the cars whose source ID is in existingSourceIds or writtenSourceIds, which are
+     * rejected instead, and add the source IDs of the remaining cars to writtenSourceIds. Chunks are passed in the
+     * file's order, so a row is only ever rejected for one before it.
+     */
+    private ParsedChunk rejectDuplicates(ParsedChunk chunk, Map<String, Long> writtenSourceIds) {
+        List<CsvCar> cars = new ArrayList<>(chunk.cars.size());
+        List<String[]> carRows = new ArrayList<>(chunk.cars.size());
+        List<Rejected> rejects = new ArrayList<>(chunk.rejects);
+        for (int i = 0; i < chunk.cars.size(); i++) {
+            CsvCar csvCar = chunk.cars.get(i);
+            String sourceId = csvCar.getSourceId();
+            if (existingSourceIds.contains(sourceId)) {
+                rejects.add(new Rejected(
+                        csvCar.getRowNumber(), chunk.carRows.get(i), "id is already in the cars table: " + sourceId
+                ));
+                continue;
+            }
+            Long writtenRowNumber = writtenSourceIds.putIfAbsent(sourceId, csvCar.getRowNumber());
+            if (writtenRowNumber != null) {
+                rejects.add(new Rejected(
+                        csvCar.getRowNumber(), chunk.carRows.get(i), "id is the same as in row " + writtenRowNumber
+                ));
+            } else {
+                cars.add(csvCar);
+                carRows.add(chunk.carRows.get(i));
+            }
+        }
+        return new ParsedChunk(chunk.index, cars, carRows, rejects);
+    }
+
+    /**
+     * Read the rows into chunks, then tell every worker that there are no more rows (even if reading failed).
+     * Each chunk takes a permit of unwrittenChunks, which the writer gives back once it is written.
+     */
+    private void readRows(RowReader rowReader, BlockingQueue<RowChunk> rowChunks, Semaphore unwrittenChunks)
+            throws IOException, CsvValidationException, InterruptedException {
+        try {
+            long index = 0;
+            long rowNumber = 1;
+            List<String[]> rows = new ArrayList<>(chunkSize);
+            String[] row;
+            while ((row = rowReader.readNext()) != null) {
+                rows.add(row);
+                if (rows.size() == chunkSize) {
+                    unwrittenChunks.acquire();
+                    rowChunks.put(new RowChunk(index++, rowNumber, rows));
+                    rowNumber += rows.size();
+                    rows = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!rows.isEmpty()) {
+                unwrittenChunks.acquire();
+                rowChunks.put(new RowChunk(index, rowNumber, rows));
+            }
+        } finally {
+            for (int i = 0; i < numWorkers; i++) {
+                rowChunks.put(RowChunk.END);
+            }
+        }
+    }
+
+    /**
+     * Parse chunks of rows until there are no more, then tell the writer that this worker has finished.
+     */
+    private void parseRows(BlockingQueue<RowChunk> rowChunks, BlockingQueue<ParsedChunk> parsedChunks)
+            throws InterruptedException {
+        try {
+            RowChunk rowChunk;
+            while ((rowChunk = rowChunks.take()) != RowChunk.END) {
+                List<CsvCar> cars = new ArrayList<>(rowChunk.rows.size());
+                List<String[]> carRows = new ArrayList<>(rowChunk.rows.size());
+                List<Rejected> rejects = new ArrayList<>();
+                long rowNumber = rowChunk.firstRowNumber;
+                for (String[] row : rowChunk.rows) {
+                    try {
+                        cars.add(new CsvCar(rowNumber, parseSourceId(row), parseCar(row)));
+                        carRows.add(row);
+                    } catch (IllegalArgumentException e) {
+                        rejects.add(new Rejected(rowNumber, row, e.getMessage()));
+                    }
+                    rowNumber++;
+                }
+                parsedChunks.put(new ParsedChunk(rowChunk.index, cars, carRows, rejects));
+            }
+        } finally {
+            parsedChunks.put(ParsedChunk.END);
+        }
+    }
+
+    /**
+     * Parse and validate a CSV row into an (unsaved) car.
+     *
+     * @throws IllegalArgumentException if the row is not a valid car, with the reason as its message
+     */
+    static EntCar parseCar(String[] row) throws IllegalArgumentException {
+        if (row.length < 7) {
+            throw new IllegalArgumentException("expected at least 7 columns, got " + row.length);
+        }
+        String brand = parseName("brand", row[2]);
+        String model = parseName("model", row[3]);
+
+        int year;
+        try {
+            year = Integer.parseInt(row[4].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("year is not a number: " + row[4]);
+        }
+        if (year < MIN_YEAR || year > Year.now().getValue() + 1) {
+            throw new IllegalArgumentException("year is out of range: " + year);
+        }
+
+        double price = parseNonNegative("price", row[1]);
+        if (price >= MAX_PRICE) {
+            throw new IllegalArgumentException("price is out of range: " + row[1]);
+        }
+        double mileage = parseNonNegative("mileage", row[6]);
+
+        return new EntCar(0, brand, model, year, price, mileage);
+    }
+
+    /**
+     * Return the source ID of a CSV row (its id column) if it is valid.
+     *
+     * @throws IllegalArgumentException if the source ID is not valid, with the reason as its message
+     */
+    static String parseSourceId(String[] row) throws IllegalArgumentException {
+        String sourceId = row.length > 0 ? row[0].trim() : "";
+        if (sourceId.isEmpty()) {
+            throw new IllegalArgumentException("id is empty");
+        }
+        if (sourceId.length() > MAX_SOURCE_ID_LENGTH) {
+            throw new IllegalArgumentException("id is longer than " + MAX_SOURCE_ID_LENGTH + " characters");
+        }
+        return sourceId;
+    }
+
+    /**
+     * Return value if it is a valid brand or model name, called field.
+     */
+    private static String parseName(String field, String value) {
+        if (value.trim().isEmpty()) {
+            throw new IllegalArgumentException(field + " is empty");
+        }
+        if (value.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException(field + " is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        return value;
+    }
+
+    /**
+     * Parse value, called field, as a finite number that is not negative.
+     */
+    private static double parseNonNegative(String field, String value) {
+        double number;
+        try {
+            number = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+        if (!Double.isFinite(number) || number < 0) {
+            throw new IllegalArgumentException(field + " is out of range: " + value);
+        }
+        return number;
+    }
+
+    /**
+     * Consecutive rows of the CSV file, the first of which is row number firstRowNumber. The chunks of a file are
+     * numbered by index, starting at 0.
+     */
+    private static final class RowChunk {
+        private static final RowChunk END = new RowChunk(-1, 0, Collections.emptyList());
+
+        private final long index;
+        private final long firstRowNumber;
+        private final List<String[]> rows;
+
+        private RowChunk(long index, long firstRowNumber, List<String[]> rows) {
+            this.index = index;
+            this.firstRowNumber = firstRowNumber;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * The valid cars (and the row of each one, at the same index in carRows) and the rejected rows of the RowChunk
+     * with the same index.
+     */
+    private static final class ParsedChunk {
+        private static final ParsedChunk END = new ParsedChunk(
+                -1, Collections.emptyList(), Collections.emptyList(), Collections.emptyList()
+        );
+
+        private final long index;
+        private final List<CsvCar> cars;
+        private final List<String[]> carRows;
+        private final List<Rejected> rejects;
+
+        private ParsedChunk(long index, List<CsvCar> cars, List<String[]> carRows, List<Rejected> rejects) {
+            this.index = index;
+            this.cars = cars;
+            this.carRows = carRows;
+            this.rejects = rejects;
+        }
+    }
+
+    /**
+     * A row that is not valid, with the reason why.
+     */
+    private static final class Rejected {
+        private final long rowNumber;
+        private final String[] row;
+        private final String reason;
+
+        private Rejected(long rowNumber, String[] row, String reason) {
+            this.rowNumber = rowNumber;
+            this.row = row;
+            this.reason = reason;
+        }
+    }
+}
@@ -16,7 +16,12 @@ See the License for the specific language governing permissions and
 limitations under the License.
 */
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.yaml.snakeyaml.error.MissingEnvironmentVariableException;
+import tech.autodirect.api.utils.EnvVars;
+
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.HashMap;
 import java.util.Map;
@@ -24,6 +29,9 @@ import java.util.Properties;
 
 /**
  * Responsible for connecting to the database give the database name.
+ *
+ * getDataSource() gives a connection pool for the database, from which the Table* classes borrow a connection
+ * for each operation. getConn() opens a single connection that is not pooled (for one-off jobs like InitDatabase).
  */
 public class Conn {
     // list of environment variables to fetch
@@ -34,8 +42,113 @@ public class Conn {
         "AUTODIRECT_DB_USER",
         "AUTODIRECT_DB_PASS"
     };
-    // database parameters
+    // database parameters (written once, by getEnvVars(), which must be called before reading them)
     private static final Map<String, String> DB_PARAMS = new HashMap<>();
+    // connection pools by database name, shared by all Table* objects of the same database (guarded by itself)
+    private static final Map<String, HikariDataSource> DATA_SOURCES = new HashMap<>();
+
+    /**
+     * Get the connection pool for the database given by dbName (created on first use).
+     *
+     * The pool is configured with these optional environment variables:
+     * AUTODIRECT_DB_POOL_MAX_SIZE (most open connections, default 10),
+     * AUTODIRECT_DB_POOL_MIN_IDLE (idle connections kept open, default 2),
+     * AUTODIRECT_DB_POOL_TIMEOUT_MS (longest wait for a free connection, default 30000) and
+     * AUTODIRECT_DB_POOL_LEAK_DETECTION_MS (warn about connections borrowed for longer than this, default 60000;
+     * 0 disables the warning).
+     *
+     * Each pooled connection also caches its prepared statements, keyed by SQL text, with these optional
+     * environment variables: AUTODIRECT_DB_STATEMENT_CACHE_SIZE (most cached statements per connection, the least
+     * recently used one is evicted; default 256, 0 disables the cache) and AUTODIRECT_DB_PREPARE_THRESHOLD (number of
+     * executions after which a statement is prepared on the server, so that it is parsed and planned only once;
+     * default 3, 0 never prepares statements on the server).
+     */
+    public static DataSource getDataSource(String dbName)
+            throws MissingEnvironmentVariableException, ClassNotFoundException {
+        // ensure PostgreSQL driver is present
+        Class.forName("org.postgresql.Driver");
+
+        synchronized (DATA_SOURCES) {
+            HikariDataSource dataSource = DATA_SOURCES.get(dbName);
+            if (dataSource == null) {
+                dataSource = createDataSource(dbName);
+                DATA_SOURCES.put(dbName, dataSource);
+            }
+            return dataSource;
+        }
+    }
+
+    /**
+     * Close all connection pools created by getDataSource().
+     */
+    public static void closeDataSources() {
+        synchronized (DATA_SOURCES) {
+            for (HikariDataSource dataSource : DATA_SOURCES.values()) {
+                dataSource.close();
+            }
+            DATA_SOURCES.clear();
+        }
+    }
+
+    /**
+     * Create a new connection pool for the database given by dbName.
+     */
+    private static HikariDataSource createDataSource(String dbName) throws MissingEnvironmentVariableException {
+        return createDataSource(
+                dbName,
+                EnvVars.getInt("AUTODIRECT_DB_STATEMENT_CACHE_SIZE", 256),
+                EnvVars.getInt("AUTODIRECT_DB_PREPARE_THRESHOLD", 3)
+        );
+    }
+
+    /**
+     * Create a new connection pool for the database given by dbName, whose connections cache up to
+     * statementCacheSize prepared statements and prepare them on the server after prepareThreshold executions.
+     */
+    static HikariDataSource createDataSource(String dbName, int statementCacheSize, int prepareThreshold)
+            throws MissingEnvironmentVariableException {
+        // get the database configuration parameters from environment variables
+        getEnvVars();
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("autodirect-" + dbName);
+        config.setDriverClassName("org.postgresql.Driver");
+        config.setJdbcUrl(getDbUrl(dbName));
+        config.setUsername(DB_PARAMS.get("AUTODIRECT_DB_USER"));
+        config.setPassword(DB_PARAMS.get("AUTODIRECT_DB_PASS"));
+        config.addDataSourceProperty("ssl", DB_PARAMS.get("AUTODIRECT_DB_SSL"));
+        config.addDataSourceProperty("sslfactory", "org.postgresql.ssl.NonValidatingFactory");
+
+        // pool size and timeouts
+        config.setMaximumPoolSize(EnvVars.getInt("AUTODIRECT_DB_POOL_MAX_SIZE", 10));
+        config.setMinimumIdle(EnvVars.getInt("AUTODIRECT_DB_POOL_MIN_IDLE", 2));
+        config.setConnectionTimeout(EnvVars.getInt("AUTODIRECT_DB_POOL_TIMEOUT_MS", 30000));
+        config.setLeakDetectionThreshold(EnvVars.getInt("AUTODIRECT_DB_POOL_LEAK_DETECTION_MS", 60000));
+
+        // connections are validated (with Connection.isValid()) before being handed out if they have been idle,
+        // and idle connections are pinged every 5 minutes so that they are not dropped by the server
+        config.setValidationTimeout(5000);
+        config.setKeepaliveTime(300000);
+
+        // the PostgreSQL driver keeps a statement cache for each connection, which outlives the borrowing of the
+        // connection from the pool, so that preparing the same SQL again reuses the statement (and, once it was
+        // executed prepareThreshold times, its server-side plan) instead of parsing it again
+        config.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(statementCacheSize));
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB", statementCacheSize == 0 ? "0" : "5");
+        config.addDataSourceProperty("prepareThreshold", String.valueOf(prepareThreshold));
+
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Construct the DB URL according to "jdbc:postgresql://host:port/database".
+     */
+    private static String getDbUrl(String dbName) {
+        return "jdbc:postgresql://" +
+            DB_PARAMS.get("AUTODIRECT_DB_HOST") + ":" +
+            DB_PARAMS.get("AUTODIRECT_DB_PORT") + "/" +
+            dbName;
+    }
 
     /**
      * Get a Connection object connecting to the database given by dbName.
@@ -46,10 +159,7 @@ public class Conn {
         getEnvVars();
 
         // construct the DB URL according to "jdbc:postgresql://host:port/database"
-        String dbUrl = "jdbc:postgresql://" +
-            DB_PARAMS.get("AUTODIRECT_DB_HOST") + ":" +
-            DB_PARAMS.get("AUTODIRECT_DB_PORT") + "/" +
-            dbName;
+        String dbUrl = getDbUrl(dbName);
 
         // supply the remaining DB parameters as properties
         Properties props = new Properties();
@@ -71,10 +181,16 @@ public class Conn {
     }
 
     /**
-     * Get necessary environment variables.
+     * Get necessary environment variables (once; later calls return right away). Synchronized, since the
+     * connection pools of different databases may be created from different threads at once.
      */
-    private static void getEnvVars() throws MissingEnvironmentVariableException {
-        // attempt to obtain the relevant environment variables
+    private static synchronized void getEnvVars() throws MissingEnvironmentVariableException {
+        if (!DB_PARAMS.isEmpty()) {
+            return;
+        }
+
+        // attempt to obtain the relevant environment variables, only keeping them once all were found
+        Map<String, String> params = new HashMap<>();
         for (String varName : ENVIRONMENT_VARIABLES) {
             String varValue = System.getenv(varName);
             if (varValue == null) {
@@ -84,8 +200,9 @@ public class Conn {
                 );
             }
             else {
-                DB_PARAMS.put(varName, varValue);
+                params.put(varName, varValue);
             }
         }
+        DB_PARAMS.putAll(params);
     }
 }
@@ -17,25 +17,59 @@ limitations under the License.
 */
 
 import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
 import com.opencsv.exceptions.CsvValidationException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import tech.autodirect.api.entities.EntCar;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Responsible for initializing the populating the databse with schemas, tables, and entries.
  */
 public class InitDatabase {
     private static final String DB_NAME = "autodirect";
+    // Number of cars inserted into the cars table at once while ingesting the CSV file
+    private static final int CARS_PER_BATCH = 1000;
+    // Number of chunks of CARS_PER_BATCH rows waiting between two stages of the ingest pipeline
+    private static final int PIPELINE_QUEUE_CHUNKS = 8;
+    // Reject hook of runPipeline() that does nothing
+    private static final CarsCsvPipeline.RejectWriter NO_REJECT_HOOK = (rowNumber, row, reason) -> {};
+    // Whether to ingest the CSV file with COPY FROM STDIN (given by the --copy option)
+    private static boolean copyMode = false;
+    // Whether to only create the tables and apply the schema migrations (given by the --migrate option)
+    private static boolean migrateOnly = false;
+    // Whether to sync the cars table with the CSV file instead of adding all of its cars (given by the --sync option)
+    private static boolean syncMode = false;
+    // Whether to delete the cars missing from the CSV file when syncing (given by the --delete-missing option)
+    private static boolean deleteMissing = false;
+    // File the IDs of the cars changed by a sync are written to (given by the --changes-file option)
+    private static String changesPath = null;
+    // File the rows of the CSV file that are not valid cars are written to (given by the --reject-file option)
+    private static String rejectPath = null;
+    // Number of threads parsing and validating the CSV file (given by the --threads option)
+    private static int numThreads = Runtime.getRuntime().availableProcessors();
 
     /**
      * Populate the database with the cars and users tables.
      */
     public static void main(String[] args)
-            throws SQLException, IOException, CsvValidationException, ClassNotFoundException {
+            throws SQLException, IOException, CsvValidationException, ClassNotFoundException, InterruptedException {
         // parse command-line arguments and obtain the CSV file path
         String csvPath = parseArgs(args);
+        if (changesPath == null) {
+            changesPath = csvPath + ".changes.csv";
+        }
 
         // obtain a database connection
         Connection dbConn = Conn.getConn(DB_NAME);
@@ -46,17 +80,45 @@ public class InitDatabase {
         // create a users table in the database given by dbConn
         createUsersTable(dbConn);
 
+        // bring the schema (e.g. columns and indexes added since the tables were created) up to date
+        List<Integer> appliedVersions = SchemaMigrations.migrate(dbConn);
+        System.out.println(
+                "applied schema migrations " + appliedVersions +
+                        ", schema is at version " + SchemaMigrations.getLatestVersion()
+        );
+        if (migrateOnly) {
+            dbConn.close();
+            return;
+        }
+
         // ingest the csv file given in the --csvpath parameter to the cars table
         // at the database given by dbConn
-        ingestCarsCsv(dbConn, csvPath);
+        long start = System.nanoTime();
+        CarsCsvPipeline.Result result;
+        if (syncMode) {
+            result = syncCarsCsv(dbConn, csvPath);
+        } else if (copyMode) {
+            result = copyCarsCsv(dbConn, csvPath);
+        } else {
+            result = ingestCarsCsv(dbConn, csvPath);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(
+                "\n%s %d cars in %.2f s (%.0f rows/s), rejected %d rows (written to %s)%n",
+                syncMode ? "compared" : "ingested",
+                result.getWritten(), seconds, result.getWritten() / seconds,
+                result.getRejected(), getRejectPath(csvPath)
+        );
 
         // close the database connection at the end
         dbConn.close();
     }
 
     /**
-     * Parse command line args. Specifically, takes optional -h or --help for help and
-     * takes the required --csvfile <pathtofile>.
+     * Parse command line args. Specifically, takes optional -h or --help for help,
+     * the optional --migrate, --copy, --sync, --delete-missing, --changes-file <pathtofile>,
+     * --reject-file <pathtofile> and --threads <n>,
+     * and --csvfile <pathtofile> (required unless --migrate is given).
      */
     private static String parseArgs(String[] args) {
         String csvPath = null;
@@ -68,7 +130,7 @@ public class InitDatabase {
         }
 
         // cycle through command line arguments and process them
-        for (int i = 0; i != args.length - 1; i++) {
+        for (int i = 0; i < args.length; i++) {
             // help message
             if (args[i].equals("-h") || args[i].equals("--help")) {
                 exitWithHelp(0);
@@ -77,13 +139,57 @@ public class InitDatabase {
             else if (args[i].equals("--csvfile") && (i + 1 < args.length)) {
                 csvPath = args[i + 1];
             }
+            // ingest the CSV file with COPY instead of INSERT statements
+            else if (args[i].equals("--copy")) {
+                copyMode = true;
+            }
+            // only create the tables and apply the schema migrations
+            else if (args[i].equals("--migrate")) {
+                migrateOnly = true;
+            }
+            // only apply the changes between the CSV file and the cars table
+            else if (args[i].equals("--sync")) {
+                syncMode = true;
+            }
+            // when syncing, delete the cars that are not in the CSV file
+            else if (args[i].equals("--delete-missing")) {
+                deleteMissing = true;
+            }
+            // when syncing, write the IDs of the changed cars to the given file
+            else if (args[i].equals("--changes-file") && (i + 1 < args.length)) {
+                changesPath = args[i + 1];
+            }
+            // write rows that are not valid cars to the given file
+            else if (args[i].equals("--reject-file") && (i + 1 < args.length)) {
+                rejectPath = args[i + 1];
+            }
+            // parse the CSV file with the given number of threads
+            else if (args[i].equals("--threads") && (i + 1 < args.length)) {
+                try {
+                    numThreads = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    numThreads = 0;
+                }
+                if (numThreads < 1) {
+                    System.out.println("\n[!] --threads must be a positive integer.");
+                    exitWithHelp(1);
+                }
+            }
         }
 
         // report an error if the `--csvfile` option is not provided
-        if (csvPath == null) {
+        if (csvPath == null && !migrateOnly) {
             System.out.println("\n[!] --csvfile option not provided.");
             exitWithHelp(1);
         }
+        if (syncMode && copyMode) {
+            System.out.println("\n[!] --sync and --copy can not be used together.");
+            exitWithHelp(1);
+        }
+        if (deleteMissing && !syncMode) {
+            System.out.println("\n[!] --delete-missing can only be used with --sync.");
+            exitWithHelp(1);
+        }
 
         return csvPath;
     }
@@ -92,6 +198,17 @@ public class InitDatabase {
         String helpText = "\nUsage: InitDatabase [options] <file> \n" +
                 "\t -h --help\tdisplay this help message and exit\n" +
                 "\t --csvfile\tspecify a CSV file path which contains the cars dataset\n" +
+                "\t --migrate\tonly create the tables and apply the schema migrations (no --csvfile needed)\n" +
+                "\t --copy\t\tload the cars with COPY in a single transaction (much faster for large files)\n" +
+                "\t --sync\t\tonly insert, update (and with --delete-missing, delete) the cars that changed,\n" +
+                "\t\t\tmatching cars by the CSV file's id column\n" +
+                "\t --delete-missing\twith --sync, delete the cars that are not in the CSV file\n" +
+                "\t\t\t(offers of deleted cars stay in the offers tables, see the changes file)\n" +
+                "\t --changes-file\twith --sync, specify the file the IDs of the changed cars are written to\n" +
+                "\t\t\t(defaults to the CSV file path followed by '.changes.csv')\n" +
+                "\t --reject-file\tspecify the file rows that are not valid cars are written to\n" +
+                "\t\t\t(defaults to the CSV file path followed by '.rejects.csv')\n" +
+                "\t --threads\tnumber of threads parsing the CSV file (defaults to the number of CPUs)\n" +
                 "\nExample — use 'cars.csv' in the current working directory:\n" +
                 "\t InitDatabase --csvfile ./cars.csv\n";
         System.out.println(helpText);
@@ -101,10 +218,11 @@ public class InitDatabase {
     /**
      * Create the cars table in the database.
      */
-    private static void createCarsTable(Connection conn) throws SQLException {
+    static void createCarsTable(Connection conn) throws SQLException {
         PreparedStatement stmt = conn.prepareStatement(
                 "CREATE TABLE IF NOT EXISTS public.cars (" +
                         "car_id     serial     NOT NULL PRIMARY KEY, " +
+                        "source_id  varchar(50) NULL UNIQUE, " +
                         "brand      varchar(50) NOT NULL, " +
                         "model      varchar(50) NOT NULL, " +
                         "year       integer     NOT NULL, " +
@@ -134,36 +252,212 @@ public class InitDatabase {
     }
 
     /**
-     * Populate the cars table with car entries for a csv.
+     * Populate the cars table with car entries for a csv, inserting them in batches on conn. Rows whose id is
+     * already in the cars table (or in an earlier row) are rejected.
      */
-    private static void ingestCarsCsv(Connection conn, String csvPath)
-            throws IOException, CsvValidationException, SQLException, ClassNotFoundException {
-        // read the CSV file
-        CSVReader reader = new CSVReader(new FileReader(csvPath));
-
-        // Create tableCars object
-        TableCars tableCars = new TableCars(DB_NAME);
-
-        // iterate through the CSV file
-        reader.readNext();  // skip header
-        String[] line;
-        while ((line = reader.readNext()) != null) {
-            System.out.println(
-                    line[0] + "\t" +  // id
-                            line[1] + "\t" +  // price
-                            line[2] + "\t" +  // brand
-                            line[3] + "\t" +  // model
-                            line[4] + "\t" +  // year
-                            line[6] + "\t"    // mileage
-            );
+    private static CarsCsvPipeline.Result ingestCarsCsv(Connection conn, String csvPath)
+            throws IOException, CsvValidationException, SQLException, InterruptedException {
+        try (
+                PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO public.cars (source_id, brand, model, year, price, mileage) " +
+                                "VALUES (?, ?, ?, ?, ?, ?);"
+                )
+        ) {
+            return runPipeline(csvPath, cars -> {
+                for (CarsCsvPipeline.CsvCar csvCar : cars) {
+                    EntCar car = csvCar.getCar();
+                    stmt.setString(1, csvCar.getSourceId());
+                    stmt.setString(2, car.getBrand());
+                    stmt.setString(3, car.getModel());
+                    stmt.setInt(4, car.getYear());
+                    stmt.setBigDecimal(5, BigDecimal.valueOf(car.getPrice()));
+                    stmt.setDouble(6, car.getKms());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }, NO_REJECT_HOOK, loadSourceIds(conn));
+        }
+    }
+
+    /**
+     * Populate the cars table with car entries for a csv by streaming them to COPY FROM STDIN on conn,
+     * in a single transaction. If copying any of the cars fails, no cars are added. Rows whose id is already in
+     * the cars table (or in an earlier row) are rejected.
+     */
+    static CarsCsvPipeline.Result copyCarsCsv(Connection conn, String csvPath)
+            throws IOException, CsvValidationException, SQLException, InterruptedException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        // read the existing ids before the copy starts, since conn can not run queries while copying
+        Set<String> existingSourceIds;
+        try {
+            existingSourceIds = loadSourceIds(conn);
+        } catch (SQLException e) {
+            conn.rollback();
+            conn.setAutoCommit(autoCommit);
+            throw e;
+        }
+        CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                "COPY public.cars (source_id, brand, model, year, price, mileage) FROM STDIN WITH (FORMAT csv);"
+        );
+        try {
+            // write each chunk of cars as CSV lines to buffer, and send it to the database in one go
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            StringBuilder line = new StringBuilder();
+            CarsCsvPipeline.Result result = runPipeline(csvPath, cars -> {
+                buffer.reset();
+                for (CarsCsvPipeline.CsvCar csvCar : cars) {
+                    EntCar car = csvCar.getCar();
+                    line.setLength(0);
+                    line.append(toCsvField(csvCar.getSourceId())).append(',')
+                            .append(toCsvField(car.getBrand())).append(',')
+                            .append(toCsvField(car.getModel())).append(',')
+                            .append(car.getYear()).append(',')
+                            .append(car.getPrice()).append(',')
+                            .append(car.getKms()).append('\n');
+                    byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                    buffer.write(bytes, 0, bytes.length);
+                }
+                copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            }, NO_REJECT_HOOK, existingSourceIds);
+
+            copyIn.endCopy();
+            conn.commit();
+            return result;
+        } catch (IOException | CsvValidationException | SQLException | InterruptedException | RuntimeException e) {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
 
-            tableCars.addCar(
-                    line[2],
-                    line[3],
-                    Integer.parseInt(line[4]),
-                    Double.parseDouble(line[1]),
-                    Double.parseDouble(line[6])
+    /**
+     * Sync the cars table with the car entries of a csv in a single transaction on conn: only the cars that are
+     * new, changed or (with --delete-missing) missing from the csv are changed. The IDs of the changed cars are
+     * written to the changes file (so that caches of the cars table know which cars to reload).
+     */
+    private static CarsCsvPipeline.Result syncCarsCsv(Connection conn, String csvPath)
+            throws IOException, CsvValidationException, SQLException, InterruptedException {
+        CarsCatalogSync sync = new CarsCatalogSync(conn, deleteMissing);
+        CarsCsvPipeline.Result result;
+        try {
+            // rows that are not valid cars, but have a valid id, keep their car from being deleted
+            result = runPipeline(csvPath, sync::stage, (rowNumber, row, reason) -> {
+                try {
+                    sync.stageRejected(rowNumber, CarsCsvPipeline.parseSourceId(row));
+                } catch (IllegalArgumentException e) {
+                    // no valid id, so the row can not match a car
+                }
+            }, null);
+        } catch (IOException | CsvValidationException | SQLException | InterruptedException | RuntimeException e) {
+            sync.abort();
+            throw e;
+        }
+        CarsCatalogSync.Result changes = sync.finish();
+
+        try (CSVWriter changesWriter = new CSVWriter(new FileWriter(changesPath))) {
+            changesWriter.writeNext(new String[] {"car_id", "change"});
+            writeChanges(changesWriter, changes.getInsertedCarIds(), "inserted");
+            writeChanges(changesWriter, changes.getUpdatedCarIds(), "updated");
+            writeChanges(changesWriter, changes.getDeletedCarIds(), "deleted");
+        }
+        System.out.printf(
+                "\ninserted %d, updated %d and deleted %d cars (IDs written to %s)%n",
+                changes.getInsertedCarIds().size(),
+                changes.getUpdatedCarIds().size(),
+                changes.getDeletedCarIds().size(),
+                changesPath
+        );
+        return result;
+    }
+
+    /**
+     * Write a line with each of carIds and change to changesWriter.
+     */
+    private static void writeChanges(CSVWriter changesWriter, List<Integer> carIds, String change) {
+        for (int carId : carIds) {
+            changesWriter.writeNext(new String[] {Integer.toString(carId), change});
+        }
+    }
+
+    /**
+     * Return the source IDs of the cars in the cars table.
+     */
+    private static Set<String> loadSourceIds(Connection conn) throws SQLException {
+        Set<String> sourceIds = new HashSet<>();
+        try (
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT source_id FROM public.cars WHERE source_id IS NOT NULL;"
+                );
+                ResultSet rs = stmt.executeQuery()
+        ) {
+            while (rs.next()) {
+                sourceIds.add(rs.getString("source_id"));
+            }
+        }
+        return sourceIds;
+    }
+
+    /**
+     * Parse and validate the cars of the csv at csvPath in parallel, write the valid cars with carsWriter and the
+     * rows that are not valid to the reject file (with the row number and the reason in front of each row), after
+     * handing them to rejectHook. If existingSourceIds is not null, rows whose id is in it (or in a row written
+     * before) are not valid either.
+     */
+    private static CarsCsvPipeline.Result runPipeline(
+            String csvPath,
+            CarsCsvPipeline.CarsWriter carsWriter,
+            CarsCsvPipeline.RejectWriter rejectHook,
+            Set<String> existingSourceIds
+    ) throws IOException, CsvValidationException, SQLException, InterruptedException {
+        try (
+                CSVReader reader = new CSVReader(new FileReader(csvPath));
+                CSVWriter rejectWriter = new CSVWriter(new FileWriter(getRejectPath(csvPath)))
+        ) {
+            String[] header = reader.readNext();
+            rejectWriter.writeNext(withRowAndReason("row", "reason", header == null ? new String[0] : header));
+
+            CarsCsvPipeline pipeline = new CarsCsvPipeline(
+                    numThreads, CARS_PER_BATCH, PIPELINE_QUEUE_CHUNKS, existingSourceIds
+            );
+            return pipeline.run(
+                    reader::readNext,
+                    carsWriter,
+                    (rowNumber, row, reason) -> {
+                        rejectHook.reject(rowNumber, row, reason);
+                        rejectWriter.writeNext(withRowAndReason(Long.toString(rowNumber), reason, row));
+                    }
             );
         }
     }
+
+    /**
+     * Return the path of the reject file of the csv at csvPath (given by --reject-file, or next to the csv).
+     */
+    static String getRejectPath(String csvPath) {
+        return rejectPath != null ? rejectPath : csvPath + ".rejects.csv";
+    }
+
+    /**
+     * Return row with rowNumber and reason in front of it.
+     */
+    private static String[] withRowAndReason(String rowNumber, String reason, String[] row) {
+        String[] line = new String[row.length + 2];
+        line[0] = rowNumber;
+        line[1] = reason;
+        System.arraycopy(row, 0, line, 2, row.length);
+        return line;
+    }
+
+    /**
+     * Return value as a quoted field of a CSV line for COPY.
+     */
+    private static String toCsvField(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
 }
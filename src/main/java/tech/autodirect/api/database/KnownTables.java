@@ -0,0 +1,64 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import javax.sql.DataSource;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Responsible for remembering, for the whole process, which schemas and tables are known to exist in each database,
+ * so that their CREATE ... IF NOT EXISTS statements only run once instead of on every request.
+ *
+ * Names are compared in lower case, like PostgreSQL does for unquoted names. A name must be forgotten once its
+ * schema or table is dropped. Tables dropped by another process are only noticed when using them fails, after
+ * which TableOffers forgets and creates them again.
+ */
+public final class KnownTables {
+    private static final Map<DataSource, Set<String>> KNOWN_NAMES = new ConcurrentHashMap<>();
+
+    private KnownTables() {}
+
+    /**
+     * Return whether the schema or table called name (e.g. "offers" or "offers.offers_user") is known to exist
+     * in the database of dataSource.
+     */
+    static boolean isKnown(DataSource dataSource, String name) {
+        Set<String> names = KNOWN_NAMES.get(dataSource);
+        return names != null && names.contains(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Record that the schema or table called name exists in the database of dataSource.
+     */
+    static void add(DataSource dataSource, String name) {
+        KNOWN_NAMES.computeIfAbsent(dataSource, ds -> ConcurrentHashMap.newKeySet())
+                .add(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Forget the schema or table called name in the database of dataSource, e.g. after dropping it.
+     */
+    static void forget(DataSource dataSource, String name) {
+        Set<String> names = KNOWN_NAMES.get(dataSource);
+        if (names != null) {
+            names.remove(name.toLowerCase(Locale.ROOT));
+        }
+    }
+}
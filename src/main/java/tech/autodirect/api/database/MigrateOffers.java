@@ -0,0 +1,185 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import tech.autodirect.api.interfaces.TableOffersInterface;
+import tech.autodirect.api.utils.EnvVars;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responsible for moving the offers in the per-user offers tables (offers.offers_<userid>, see TableOffers) into
+ * the single partitioned offers table (offers.all_offers, see TablePartitionedOffers).
+ *
+ * Each user's table is moved in its own transaction, keeping the offer IDs (so that offers the frontend already
+ * knows about keep working), and the offer ID sequence is advanced past the moved IDs at the end. Offers that were
+ * already moved are overwritten with their values in the per-user table, so the migration can be rerun after an
+ * interruption, and a rerun also carries over changes made to the per-user tables in the meantime (e.g. offers
+ * claimed while the server still used them).
+ */
+public class MigrateOffers {
+    private static final String DB_NAME = "autodirect";
+
+    /**
+     * Move the offers of all per-user offers tables into the partitioned offers table.
+     */
+    public static void main(String[] args) throws SQLException, ClassNotFoundException {
+        // parse command-line arguments
+        boolean dropOldTables = parseArgs(args);
+
+        // create the partitioned offers table if it does not exist yet
+        int numPartitions = EnvVars.getInt("AUTODIRECT_OFFERS_PARTITIONS", 16);
+        new TablePartitionedOffers(DB_NAME, numPartitions).createTables();
+
+        // obtain a database connection
+        Connection dbConn = Conn.getConn(DB_NAME);
+
+        // move the per-user tables one at a time
+        List<String> tableNames = getPerUserTableNames(dbConn);
+        System.out.println("Found " + tableNames.size() + " per-user offers tables.");
+        long totalOffers = 0;
+        for (String tableName : tableNames) {
+            int movedOffers = moveTable(dbConn, tableName, dropOldTables);
+            System.out.println(tableName + "\t" + movedOffers + " offers moved");
+            totalOffers += movedOffers;
+        }
+
+        // make sure new offers get IDs that are not used by the moved offers yet
+        advanceOfferIdSequence(dbConn);
+        System.out.println("Moved " + totalOffers + " offers from " + tableNames.size() + " tables.");
+
+        // close the database connection at the end
+        dbConn.close();
+    }
+
+    /**
+     * Parse command line args. Specifically, takes optional -h or --help for help and
+     * optional --drop-old-tables. Returns whether --drop-old-tables was given.
+     */
+    private static boolean parseArgs(String[] args) {
+        boolean dropOldTables = false;
+        for (String arg : args) {
+            if (arg.equals("-h") || arg.equals("--help")) {
+                exitWithHelp(0);
+            } else if (arg.equals("--drop-old-tables")) {
+                dropOldTables = true;
+            } else {
+                System.out.println("\n[!] unknown argument: " + arg);
+                exitWithHelp(1);
+            }
+        }
+        return dropOldTables;
+    }
+
+    private static void exitWithHelp(int exitCode) {
+        String helpText = "\nUsage: MigrateOffers [options] \n" +
+                "\t -h --help\t\tdisplay this help message and exit\n" +
+                "\t --drop-old-tables\tdrop each per-user offers table once its offers are moved\n" +
+                "\nExample — move all offers and keep the per-user tables:\n" +
+                "\t MigrateOffers\n";
+        System.out.println(helpText);
+        System.exit(exitCode);
+    }
+
+    /**
+     * Return the names of all per-user offers tables in the offers schema.
+     */
+    private static List<String> getPerUserTableNames(Connection conn) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                "SELECT table_name FROM information_schema.tables " +
+                        "WHERE table_schema = 'offers' AND table_type = 'BASE TABLE' " +
+                        "AND table_name LIKE 'offers\\_%' ORDER BY table_name;"
+        );
+        ResultSet rs = stmt.executeQuery();
+        List<String> tableNames = new ArrayList<>();
+        while (rs.next()) {
+            tableNames.add(rs.getString("table_name"));
+        }
+        stmt.close();
+        return tableNames;
+    }
+
+    /**
+     * Move the offers of the per-user offers table tableName into the partitioned offers table in a single
+     * transaction (and drop tableName if dropOldTable). Returns the number of offers moved (including the ones
+     * that were already moved, which are updated).
+     */
+    static int moveTable(Connection conn, String tableName, boolean dropOldTable) throws SQLException {
+        // the user_id of the partitioned table is the part of the table name after "offers_"
+        String userKey = tableName.substring(TableOffersInterface.TABLE_NAME_PREFIX.length());
+        // quote the table name as it is in the catalog
+        String quotedTableName = "offers.\"" + tableName.replace("\"", "\"\"") + "\"";
+
+        conn.setAutoCommit(false);
+        try {
+            PreparedStatement stmtUser = conn.prepareStatement(
+                    "INSERT INTO offers.all_offers_users VALUES (?) ON CONFLICT DO NOTHING;"
+            );
+            stmtUser.setString(1, userKey);
+            stmtUser.executeUpdate();
+            stmtUser.close();
+
+            PreparedStatement stmtOffers = conn.prepareStatement(
+                    "INSERT INTO offers.all_offers (" +
+                            "user_id, offer_id, car_id, loan_amount, capital_sum, interest_sum, total_sum, " +
+                            "interest_rate, term_mo, installments, claimed) " +
+                            "SELECT ?, offer_id, car_id, loan_amount, capital_sum, interest_sum, total_sum, " +
+                            "interest_rate, term_mo, installments, claimed " +
+                            "FROM " + quotedTableName + " " +
+                            "ON CONFLICT (user_id, offer_id) DO UPDATE SET " +
+                            "car_id = EXCLUDED.car_id, loan_amount = EXCLUDED.loan_amount, " +
+                            "capital_sum = EXCLUDED.capital_sum, interest_sum = EXCLUDED.interest_sum, " +
+                            "total_sum = EXCLUDED.total_sum, interest_rate = EXCLUDED.interest_rate, " +
+                            "term_mo = EXCLUDED.term_mo, installments = EXCLUDED.installments, " +
+                            "claimed = EXCLUDED.claimed;"
+            );
+            stmtOffers.setString(1, userKey);
+            int movedOffers = stmtOffers.executeUpdate();
+            stmtOffers.close();
+
+            if (dropOldTable) {
+                PreparedStatement stmtDrop = conn.prepareStatement("DROP TABLE " + quotedTableName + ";");
+                stmtDrop.executeUpdate();
+                stmtDrop.close();
+            }
+
+            conn.commit();
+            return movedOffers;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Set the offer ID sequence of the partitioned offers table so that its next value is above every offer ID in
+     * the table (and never lower than it already was).
+     */
+    private static void advanceOfferIdSequence(Connection conn) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                "SELECT setval(s, GREATEST(nextval(s), " +
+                        "(SELECT COALESCE(MAX(offer_id), 0) + 1 FROM offers.all_offers)), false) " +
+                        "FROM pg_get_serial_sequence('offers.all_offers', 'offer_id') AS s;"
+        );
+        stmt.executeQuery();
+        stmt.close();
+    }
+}
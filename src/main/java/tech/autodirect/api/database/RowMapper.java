@@ -0,0 +1,47 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a ResultSet to a T, without going through a Map per row like Table.resultSetToList().
+ *
+ * A RowMapper is made for one ResultSet by a RowMapper.Factory, which looks up the column indexes it needs once,
+ * so mapping each row only reads the columns by index.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Map the current row of rs (the ResultSet this RowMapper was made for) to a T.
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+
+    /**
+     * Makes RowMappers for ResultSets.
+     */
+    @FunctionalInterface
+    interface Factory<T> {
+
+        /**
+         * Return a RowMapper for the rows of rs, with the column indexes it needs already looked up.
+         */
+        RowMapper<T> forResultSet(ResultSet rs) throws SQLException;
+    }
+}
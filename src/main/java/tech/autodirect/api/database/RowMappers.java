@@ -0,0 +1,90 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import tech.autodirect.api.entities.EntCar;
+import tech.autodirect.api.entities.EntOffer;
+import tech.autodirect.api.entities.EntUser;
+import tech.autodirect.api.utils.UnitConv;
+
+/**
+ * Responsible for the RowMapper factories mapping rows of the cars, offers and users tables to entities.
+ *
+ * Columns are looked up by name, so the factories also work on joins (like an offers table joined with the cars
+ * table) as long as the column names are unique. Values are read as the primitive types the entities store (e.g.
+ * decimal columns with getDouble()), giving the same values as the entities' loadFromMap().
+ */
+public final class RowMappers {
+    public static final RowMapper.Factory<EntCar> CARS = rs -> {
+        int carId = rs.findColumn("car_id");
+        int brand = rs.findColumn("brand");
+        int model = rs.findColumn("model");
+        int year = rs.findColumn("year");
+        int price = rs.findColumn("price");
+        int mileage = rs.findColumn("mileage");
+        return row -> new EntCar(
+                row.getInt(carId),
+                row.getString(brand),
+                row.getString(model),
+                row.getInt(year),
+                row.getDouble(price),
+                UnitConv.mileToKm(row.getFloat(mileage))
+        );
+    };
+
+    public static final RowMapper.Factory<EntOffer> OFFERS = rs -> {
+        int offerId = rs.findColumn("offer_id");
+        int carId = rs.findColumn("car_id");
+        int loanAmount = rs.findColumn("loan_amount");
+        int capitalSum = rs.findColumn("capital_sum");
+        int interestSum = rs.findColumn("interest_sum");
+        int totalSum = rs.findColumn("total_sum");
+        int interestRate = rs.findColumn("interest_rate");
+        int termMo = rs.findColumn("term_mo");
+        int installments = rs.findColumn("installments");
+        int claimed = rs.findColumn("claimed");
+        return row -> new EntOffer(
+                row.getInt(offerId),
+                row.getInt(carId),
+                row.getDouble(loanAmount),
+                row.getDouble(capitalSum),
+                row.getDouble(interestSum),
+                row.getDouble(totalSum),
+                row.getFloat(interestRate),
+                row.getFloat(termMo),
+                row.getString(installments),
+                row.getBoolean(claimed)
+        );
+    };
+
+    public static final RowMapper.Factory<EntUser> USERS = rs -> {
+        int userId = rs.findColumn("user_id");
+        int creditScore = rs.findColumn("credit_score");
+        int downPayment = rs.findColumn("down_payment");
+        int budgetMo = rs.findColumn("budget_mo");
+        int offersTable = rs.findColumn("offers_table");
+        return row -> new EntUser(
+                row.getString(userId),
+                row.getInt(creditScore),
+                row.getDouble(downPayment),
+                row.getDouble(budgetMo),
+                row.getString(offersTable)
+        );
+    };
+
+    private RowMappers() {}
+}
@@ -0,0 +1,184 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responsible for bringing the schema of a database up to date, with numbered migrations that run once each.
+ *
+ * The versions of the applied migrations are recorded in public.schema_migrations, so migrate() only applies
+ * the ones that are missing and can be run on every deployment. Each migration runs in its own transaction
+ * (together with recording its version), unless it commits part-way itself, and concurrent calls of migrate()
+ * wait for each other.
+ *
+ * The cars and users tables must exist before migrating (see InitDatabase). Migrations must never be changed or
+ * removed once released; add a new migration with the next version instead.
+ */
+public final class SchemaMigrations {
+    // Key of the PostgreSQL advisory lock held while migrate() runs ("autodir" in ASCII)
+    private static final long LOCK_KEY = 0x6175746f646972L;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "add source_id to cars", stmt -> stmt.executeUpdate(
+                    "ALTER TABLE public.cars ADD COLUMN IF NOT EXISTS source_id varchar(50) NULL UNIQUE;"
+            )),
+            new Migration(2, "index cars by the search filters", stmt -> {
+                stmt.executeUpdate(
+                        "CREATE INDEX IF NOT EXISTS cars_brand_model_year_idx ON public.cars (brand, model, year);"
+                );
+                stmt.executeUpdate("CREATE INDEX IF NOT EXISTS cars_year_price_idx ON public.cars (year, price);");
+                stmt.executeUpdate("CREATE INDEX IF NOT EXISTS cars_price_idx ON public.cars (price);");
+            }),
+            new Migration(3, "index offers tables by claimed and car_id", SchemaMigrations::indexOffersTables)
+    );
+
+    private SchemaMigrations() {}
+
+    /**
+     * Apply the migrations that have not been applied to the database of conn yet, in order of version,
+     * and return their versions.
+     */
+    public static List<Integer> migrate(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        List<Integer> appliedVersions = new ArrayList<>();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS public.schema_migrations (" +
+                            "version        integer     NOT NULL PRIMARY KEY, " +
+                            "description    varchar(200) NOT NULL, " +
+                            "applied_at     timestamptz NOT NULL DEFAULT now()" +
+                            ");"
+            );
+
+            // the lock is held by the session until it is unlocked (not just until commit, since migrations may
+            // commit part-way), so another migrate() can not apply the same migrations at once
+            stmt.executeQuery("SELECT pg_advisory_lock(" + LOCK_KEY + ");").close();
+            try {
+                conn.setAutoCommit(false);
+                for (Migration migration : MIGRATIONS) {
+                    try {
+                        if (!isApplied(conn, migration.version)) {
+                            migration.step.apply(stmt);
+                            recordApplied(conn, migration);
+                            appliedVersions.add(migration.version);
+                        }
+                        conn.commit();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(autoCommit);
+                stmt.executeQuery("SELECT pg_advisory_unlock(" + LOCK_KEY + ");").close();
+            }
+        }
+        return appliedVersions;
+    }
+
+    /**
+     * Return the version of the newest migration.
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Return whether the migration with version is recorded as applied.
+     */
+    private static boolean isApplied(Connection conn, int version) throws SQLException {
+        try (
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT 1 FROM public.schema_migrations WHERE version = ?;"
+                )
+        ) {
+            stmt.setInt(1, version);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    /**
+     * Record that migration was applied.
+     */
+    private static void recordApplied(Connection conn, Migration migration) throws SQLException {
+        try (
+                PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO public.schema_migrations (version, description) VALUES (?, ?);"
+                )
+        ) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Create the indexes of every existing per-user offers table (tables created later get them from
+     * TableOffers.createTable()). Each table is indexed in its own transaction, so that the SHARE lock taken by
+     * CREATE INDEX (which blocks writes to the table) is only held on one table at a time, and only while that
+     * table is indexed. If the migration fails part-way, the indexes already created are kept and skipped when it
+     * is run again.
+     */
+    private static void indexOffersTables(Statement stmt) throws SQLException {
+        List<String> tableNames = new ArrayList<>();
+        try (
+                ResultSet rs = stmt.executeQuery(
+                        "SELECT table_name FROM information_schema.tables " +
+                                "WHERE table_schema = 'offers' AND table_type = 'BASE TABLE' " +
+                                "AND table_name LIKE 'offers\\_%';"
+                )
+        ) {
+            while (rs.next()) {
+                tableNames.add(rs.getString("table_name"));
+            }
+        }
+        stmt.getConnection().commit();
+        for (String tableName : tableNames) {
+            for (String sql : TableOffers.createIndexesSql("offers", tableName)) {
+                stmt.executeUpdate(sql);
+            }
+            stmt.getConnection().commit();
+        }
+    }
+
+    /**
+     * Changes the schema with the statements it executes. A step may commit part-way (e.g. to keep its locks
+     * short), as long as it can be run again after failing after such a commit.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    /**
+     * A numbered change of the schema.
+     */
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        private Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+}
@@ -3,11 +3,15 @@ package tech.autodirect.api.database;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
 
 @SuppressWarnings("SqlResolve")  // no need to connect to database in IDE
 public class Table {
+    // Each method below borrows a connection from a DataSource (normally a pool from Conn.getDataSource())
+    // for the duration of the operation, so that Table* objects can be shared by concurrent requests.
+
     /**
      * Convert a JDBC ResultSet to a List of Maps (where each Map is a single entry in the ResultSet).
      * NOTE: Do not execute rs.next() BEFORE calling this method on rs (unless you have good reason to).
@@ -31,27 +35,61 @@ public class Table {
     }
 
     /**
-     * Get an entry with id from the database using dbConn, schemaName, and tableName.
-     *
-     * entName is the name of the entity (like "user" or "car").
+     * Same as above, but maps each row straight to a T with a RowMapper made by mapperFactory (which looks up the
+     * columns once for rs), instead of building a Map per row.
+     */
+    public <T> List<T> resultSetToList(ResultSet rs, RowMapper.Factory<T> mapperFactory) throws SQLException {
+        RowMapper<T> mapper = mapperFactory.forResultSet(rs);
+        List<T> list = new ArrayList<>(50);
+
+        while (rs.next()) {
+            list.add(mapper.mapRow(rs));
+        }
+        return list;
+    }
+
+    /**
+     * Get all entries from the database using dataSource, schemaName, and tableName.
      */
     public List<Map<String, Object>> getAllEntries(
             String schemaName,
             String tableName,
-            Connection dbConn
+            DataSource dataSource
     ) throws SQLException {
         // Construct and execute a prepared SQL statement selecting all entries
-        PreparedStatement stmt = dbConn.prepareStatement(
-                "SELECT * FROM " + schemaName + "." + tableName
-        );
-        ResultSet rs = stmt.executeQuery();
-        List<Map<String, Object>> maps = resultSetToList(rs);
-        stmt.close();
-        return maps;
+        try (
+                Connection dbConn = dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT * FROM " + schemaName + "." + tableName
+                )
+        ) {
+            ResultSet rs = stmt.executeQuery();
+            return resultSetToList(rs);
+        }
     }
 
     /**
-     * Get an entry with id from the database using dbConn, schemaName, and tableName.
+     * Same as above, but maps the entries with a RowMapper made by mapperFactory.
+     */
+    public <T> List<T> getAllEntries(
+            String schemaName,
+            String tableName,
+            DataSource dataSource,
+            RowMapper.Factory<T> mapperFactory
+    ) throws SQLException {
+        try (
+                Connection dbConn = dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT * FROM " + schemaName + "." + tableName
+                )
+        ) {
+            ResultSet rs = stmt.executeQuery();
+            return resultSetToList(rs, mapperFactory);
+        }
+    }
+
+    /**
+     * Get an entry with id from the database using dataSource, schemaName, and tableName.
      *
      * entName is the name of the entity (like "user" or "car").
      */
@@ -59,33 +97,60 @@ public class Table {
             Object id,
             String schemaName,
             String tableName,
-            Connection dbConn,
+            DataSource dataSource,
             String entName
     ) throws SQLException, ResponseStatusException {
-        if (!checkEntryExists(id, schemaName, tableName, dbConn, entName)) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND, entName + " not found"
-            );
-        }
+        // construct a prepared SQL statement selecting the specified entry, which is not found if no row comes back
+        try (
+                Connection dbConn = dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT * FROM " + schemaName + "." + tableName + " WHERE " + entName + "_id = ?;"
+                )
+        ) {
+            stmt.setObject(1, id);
 
-        // construct a prepared SQL statement selecting the specified entry
-        PreparedStatement stmt = dbConn.prepareStatement(
-                "SELECT * FROM " + schemaName + "." + tableName + " WHERE " + entName + "_id = ?;"
-        );
-        stmt.setObject(1, id);
-
-        ResultSet rs = stmt.executeQuery();
-        List<Map<String, Object>> rsList = resultSetToList(rs);
-        stmt.close();
-        if (rsList.size() == 0) {
-            return Collections.emptyMap();
-        } else {
+            ResultSet rs = stmt.executeQuery();
+            List<Map<String, Object>> rsList = resultSetToList(rs);
+            if (rsList.isEmpty()) {
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, entName + " not found"
+                );
+            }
             return rsList.get(0);
         }
     }
 
     /**
-     * Remove an entry with id from the database using dbConn, schemaName, and tableName.
+     * Same as above, but maps the entry with a RowMapper made by mapperFactory.
+     */
+    public <T> T getEntryById(
+            Object id,
+            String schemaName,
+            String tableName,
+            DataSource dataSource,
+            String entName,
+            RowMapper.Factory<T> mapperFactory
+    ) throws SQLException, ResponseStatusException {
+        try (
+                Connection dbConn = dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT * FROM " + schemaName + "." + tableName + " WHERE " + entName + "_id = ?;"
+                )
+        ) {
+            stmt.setObject(1, id);
+
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, entName + " not found"
+                );
+            }
+            return mapperFactory.forResultSet(rs).mapRow(rs);
+        }
+    }
+
+    /**
+     * Remove an entry with id from the database using dataSource, schemaName, and tableName.
      *
      * entName is the name of the entity (like "user" or "car").
      */
@@ -93,44 +158,48 @@ public class Table {
             Object id,
             String schemaName,
             String tableName,
-            Connection dbConn,
+            DataSource dataSource,
             String entName
     ) throws SQLException, ResponseStatusException {
-        if (!checkEntryExists(id, schemaName, tableName, dbConn, entName)) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND, "user not found"
-            );
-        }
+        // construct a prepared SQL statement deleting the specified entry, which is not found if no row was deleted
+        try (
+                Connection dbConn = dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "DELETE FROM " + schemaName + "." + tableName + " WHERE " + entName + "_id = ?;"
+                )
+        ) {
+            stmt.setObject(1, id);
 
-        // construct a prepared SQL statement selecting the specified entry
-        PreparedStatement stmt = dbConn.prepareStatement(
-                "DELETE FROM " + schemaName + "." + tableName + " WHERE " + entName + "_id = ?;"
-        );
-        stmt.setObject(1, id);
-
-        // execute the above SQL statement
-        stmt.executeUpdate();
-        stmt.close();
+            // execute the above SQL statement
+            if (stmt.executeUpdate() == 0) {
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, entName + " not found"
+                );
+            }
+        }
     }
 
     /**
-     * Remove all entries in the database table given by dbConn, schemaName, and tableName.
+     * Remove all entries in the database table given by dataSource, schemaName, and tableName.
      */
     public void removeAllEntries(
             String schemaName,
             String tableName,
-            Connection dbConn
+            DataSource dataSource
     ) throws SQLException {
-        @SuppressWarnings("SqlWithoutWhere")
-        PreparedStatement stmt = dbConn.prepareStatement(
-                "DELETE FROM " + schemaName + "." + tableName + ";"
-        );
-        stmt.executeUpdate();
-        stmt.close();
+        try (
+                Connection dbConn = dataSource.getConnection();
+                @SuppressWarnings("SqlWithoutWhere")
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "DELETE FROM " + schemaName + "." + tableName + ";"
+                )
+        ) {
+            stmt.executeUpdate();
+        }
     }
 
     /**
-     * Check an entry with id exists in the database using dbConn, schemaName, and tableName.
+     * Check an entry with id exists in the database using dataSource, schemaName, and tableName.
      *
      * entName is the name of the entity (like "user" or "car").
      */
@@ -138,20 +207,22 @@ public class Table {
             Object id,
             String schemaName,
             String tableName,
-            Connection dbConn,
+            DataSource dataSource,
             String entName
     ) throws SQLException {
         // construct a prepared SQL statement selecting the specified entry
-        PreparedStatement stmt = dbConn.prepareStatement(
-                "SELECT 1 FROM " + schemaName + "." + tableName + " WHERE " + entName + "_id = ?;"
-        );
-        stmt.setObject(1, id);
-
-        // execute the above SQL statement and check whether the entry exists
-        ResultSet rs = stmt.executeQuery();
-        boolean userCount = resultSetToList(rs).size() > 0;
-        stmt.close();
-        return userCount;
+        try (
+                Connection dbConn = dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT 1 FROM " + schemaName + "." + tableName + " WHERE " + entName + "_id = ?;"
+                )
+        ) {
+            stmt.setObject(1, id);
+
+            // execute the above SQL statement and check whether the entry exists
+            ResultSet rs = stmt.executeQuery();
+            return rs.next();
+        }
     }
 
     /**
@@ -163,20 +234,23 @@ public class Table {
             Object id,
             String schemaName,
             String tableName,
-            Connection dbConn,
+            DataSource dataSource,
             String entName,
             String columnName,
             Object newValue
     ) throws SQLException {
         // construct a prepared SQL statement selecting the specified entry
-        PreparedStatement stmt = dbConn.prepareStatement(
-                "UPDATE " + schemaName + "." + tableName +
-                " SET " + columnName + " = ?" +
-                " WHERE " + entName + "_id = ?;"
-        );
-        stmt.setObject(1, newValue);
-        stmt.setObject(2, id);
-        stmt.executeUpdate();
-        stmt.close();
+        try (
+                Connection dbConn = dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "UPDATE " + schemaName + "." + tableName +
+                        " SET " + columnName + " = ?" +
+                        " WHERE " + entName + "_id = ?;"
+                )
+        ) {
+            stmt.setObject(1, newValue);
+            stmt.setObject(2, id);
+            stmt.executeUpdate();
+        }
     }
 }
@@ -17,39 +17,59 @@ limitations under the License.
 */
 
 import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntCar;
 import tech.autodirect.api.interfaces.TableCarsInterface;
 
+import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 @SuppressWarnings("SqlResolve")  // no need to connect to database in IDE
 public class TableCars extends Table implements TableCarsInterface {
-    private final Connection dbConn;
+    private final DataSource dataSource;
     private final String schemaName = "public";
     private final String tableName = "cars";
 
     /**
-     * Create a new TableCars object with a public database connection object.
+     * Create a new TableCars object that borrows connections from the database's connection pool.
      *
      * @param dbName : name of the database to connect to
      */
     public TableCars(String dbName) throws SQLException, ClassNotFoundException {
-        this.dbConn = Conn.getConn(dbName);
+        this.dataSource = Conn.getDataSource(dbName);
+    }
+
+    /**
+     * Create a new TableCars object that borrows connections from dataSource.
+     */
+    TableCars(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @Override
     public List<Map<String, Object>> getAllCars() throws SQLException {
-        return getAllEntries(schemaName, tableName, dbConn);
+        return getAllEntries(schemaName, tableName, dataSource);
     }
 
     @Override
     public Map<String, Object> getCarById(int carId) throws SQLException, ResponseStatusException {
-        return getEntryById(carId, schemaName, tableName, dbConn, "car");
+        return getEntryById(carId, schemaName, tableName, dataSource, "car");
+    }
+
+    @Override
+    public List<EntCar> getAllCarEntities() throws SQLException {
+        return getAllEntries(schemaName, tableName, dataSource, RowMappers.CARS);
+    }
+
+    @Override
+    public EntCar getCarEntityById(int carId) throws SQLException, ResponseStatusException {
+        return getEntryById(carId, schemaName, tableName, dataSource, "car", RowMappers.CARS);
     }
 
     @Override
@@ -60,32 +80,65 @@ public class TableCars extends Table implements TableCarsInterface {
             double price,
             double kms
     ) throws SQLException {
-        PreparedStatement stmt = this.dbConn.prepareStatement(
-                "INSERT INTO " + this.schemaName + "." + this.tableName +
-                "(brand, model, year, price, mileage) VALUES (?, ?, ?, ?, ?);"
-        );
-        stmt.setString(1, brand);
-        stmt.setString(2, model);
-        stmt.setInt(3, year);
-        stmt.setBigDecimal(4, BigDecimal.valueOf(price));
-        stmt.setDouble(5, kms);
-
-        // execute and close the above SQL statement
-        stmt.executeUpdate();
-        stmt.close();
-
-        // retrieve the car ID and save it to "car_id"
-        PreparedStatement stmt_lastval = this.dbConn.prepareStatement("SELECT LASTVAL();");
-        ResultSet rs = stmt_lastval.executeQuery();
-        rs.next();
-        int carId = rs.getInt("lastval");
-        stmt.close();
-
-        return carId;
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "INSERT INTO " + this.schemaName + "." + this.tableName +
+                        "(brand, model, year, price, mileage) VALUES (?, ?, ?, ?, ?) RETURNING car_id;"
+                )
+        ) {
+            stmt.setString(1, brand);
+            stmt.setString(2, model);
+            stmt.setInt(3, year);
+            stmt.setBigDecimal(4, BigDecimal.valueOf(price));
+            stmt.setDouble(5, kms);
+
+            // execute the insert, which gives back the new car ID
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            int carId = rs.getInt("car_id");
+
+            return carId;
+        }
+    }
+
+    @Override
+    public List<Integer> addCars(List<EntCar> cars) throws SQLException {
+        List<Integer> carIds = new ArrayList<>(cars.size());
+        if (cars.isEmpty()) {
+            return carIds;
+        }
+
+        // asking for the generated "car_id" makes the driver add "RETURNING car_id" to each insert of the batch
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "INSERT INTO " + this.schemaName + "." + this.tableName +
+                        "(brand, model, year, price, mileage) VALUES (?, ?, ?, ?, ?);",
+                        new String[] {"car_id"}
+                )
+        ) {
+            for (EntCar car : cars) {
+                stmt.setString(1, car.getBrand());
+                stmt.setString(2, car.getModel());
+                stmt.setInt(3, car.getYear());
+                stmt.setBigDecimal(4, BigDecimal.valueOf(car.getPrice()));
+                stmt.setDouble(5, car.getKms());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            // the generated car IDs come back in the same order as the cars were inserted
+            ResultSet rs = stmt.getGeneratedKeys();
+            while (rs.next()) {
+                carIds.add(rs.getInt("car_id"));
+            }
+            return carIds;
+        }
     }
 
     @Override
     public boolean checkCarExists(int carId) throws SQLException {
-        return checkEntryExists(carId, schemaName, tableName, dbConn, "car");
+        return checkEntryExists(carId, schemaName, tableName, dataSource, "car");
     }
 }
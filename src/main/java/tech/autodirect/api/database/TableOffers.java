@@ -18,18 +18,28 @@ limitations under the License.
 
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntOffer;
 import tech.autodirect.api.interfaces.TableOffersInterface;
 
+import javax.sql.DataSource;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
 @SuppressWarnings("SqlResolve")  // no need to connect to database in IDE
 public class TableOffers extends Table implements TableOffersInterface {
-    public Connection dbConn;
-    private String tableName = null;
+    private final DataSource dataSource;
+    // Longest name of a table or index in PostgreSQL
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+    // SQLState of the error given for a table that does not exist (undefined_table)
+    private static final String UNDEFINED_TABLE = "42P01";
     private final String schemaName = "offers";
     private final String[] tableColumns = {
             "car_id", "loan_amount", "capital_sum", "interest_sum", "total_sum",
@@ -37,53 +47,138 @@ public class TableOffers extends Table implements TableOffersInterface {
     };
 
     /**
-     * Create a new TableOffers object with a public database connection object.
+     * Create a new TableOffers object that borrows connections from the database's connection pool.
      *
      * @param dbName : name of the database to connect to
      */
     public TableOffers(String dbName) throws SQLException, ClassNotFoundException {
-        this.dbConn = Conn.getConn(dbName);
+        this.dataSource = Conn.getDataSource(dbName);
+    }
+
+    /**
+     * Create a new TableOffers object that borrows connections from dataSource.
+     */
+    TableOffers(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @Override
-    public String setUser(String userId) throws SQLException {
-        this.tableName = TableOffersInterface.createTableName(userId);
+    public String createTable(String userId) throws SQLException {
+        String tableName = TableOffersInterface.createTableName(userId);
+        String qualifiedName = this.schemaName + "." + tableName;
+        if (KnownTables.isKnown(this.dataSource, qualifiedName)) {
+            return tableName;
+        }
 
-        // create the "offers" schema if it does not exist yet
-        PreparedStatement stmtCreateSchema = this.dbConn.prepareStatement(
-                "CREATE SCHEMA IF NOT EXISTS " + this.schemaName + " AUTHORIZATION tli;"
-        );
-        stmtCreateSchema.executeUpdate();
-        stmtCreateSchema.close();
-
-        // create and execute the SQL statement that will create an offer table
-        PreparedStatement stmt = this.dbConn.prepareStatement(
-                "CREATE TABLE IF NOT EXISTS " + this.schemaName + "." + this.tableName + " (" +
-                        "offer_id       serial      NOT NULL PRIMARY KEY, " +
-                        "car_id         integer     NOT NULL, " +
-                        "loan_amount    decimal(12) NOT NULL, " +
-                        "capital_sum    decimal(12) NOT NULL, " +
-                        "interest_sum   decimal(12) NOT NULL, " +
-                        "total_sum      decimal(12) NOT NULL, " +
-                        "interest_rate  real        NOT NULL, " +
-                        "term_mo        real        NOT NULL, " +
-                        "installments   varchar(10000) NOT NULL, " +
-                        "claimed        boolean     NOT NULL" +
-                        ");"
-        );
-        stmt.executeUpdate();
-        stmt.close();
+        try (Connection dbConn = this.dataSource.getConnection()) {
+            // create the "offers" schema if it does not exist yet
+            if (!KnownTables.isKnown(this.dataSource, this.schemaName)) {
+                try (PreparedStatement stmtCreateSchema = dbConn.prepareStatement(
+                        "CREATE SCHEMA IF NOT EXISTS " + this.schemaName + " AUTHORIZATION tli;"
+                )) {
+                    stmtCreateSchema.executeUpdate();
+                }
+                KnownTables.add(this.dataSource, this.schemaName);
+            }
+
+            // create and execute the SQL statement that will create an offer table
+            try (PreparedStatement stmt = dbConn.prepareStatement(
+                    "CREATE TABLE IF NOT EXISTS " + qualifiedName + " (" +
+                            "offer_id       serial      NOT NULL PRIMARY KEY, " +
+                            "car_id         integer     NOT NULL, " +
+                            "loan_amount    decimal(12) NOT NULL, " +
+                            "capital_sum    decimal(12) NOT NULL, " +
+                            "interest_sum   decimal(12) NOT NULL, " +
+                            "total_sum      decimal(12) NOT NULL, " +
+                            "interest_rate  real        NOT NULL, " +
+                            "term_mo        real        NOT NULL, " +
+                            "installments   varchar(10000) NOT NULL, " +
+                            "claimed        boolean     NOT NULL" +
+                            ");"
+            )) {
+                stmt.executeUpdate();
+            }
+
+            // index the table's claimed offers (for getClaimedOffers()) and its offers by car
+            try (Statement stmtIndexes = dbConn.createStatement()) {
+                for (String sql : createIndexesSql(this.schemaName, tableName)) {
+                    stmtIndexes.executeUpdate(sql);
+                }
+            }
+            KnownTables.add(this.dataSource, qualifiedName);
+
+            return tableName;
+        }
+    }
 
-        return this.getTableName();
+    /**
+     * An operation on a user's offers table, given the name of the table.
+     */
+    private interface TableOperation<T> {
+        T apply(String tableName) throws SQLException;
     }
 
-    @Override
-    public String getTableName() {
-        return this.tableName;
+    /**
+     * Run operation on userId's offers table and return its result. If it fails because the table does not
+     * exist although KnownTables says it does (it was dropped by another process), forget the table, create it
+     * again with createTable() and run operation once more.
+     */
+    private <T> T onTable(String userId, TableOperation<T> operation) throws SQLException {
+        String tableName = TableOffersInterface.createTableName(userId);
+        try {
+            return operation.apply(tableName);
+        } catch (SQLException e) {
+            String qualifiedName = this.schemaName + "." + tableName;
+            if (!UNDEFINED_TABLE.equals(e.getSQLState()) || !KnownTables.isKnown(this.dataSource, qualifiedName)) {
+                throw e;
+            }
+            // the schema may have been dropped along with the table
+            KnownTables.forget(this.dataSource, qualifiedName);
+            KnownTables.forget(this.dataSource, this.schemaName);
+            createTable(userId);
+            return operation.apply(tableName);
+        }
+    }
+
+    /**
+     * Return the statements creating the indexes of the offers table called tableName in the schema schemaName
+     * (if they do not exist yet): a partial index on its claimed offers and an index on car_id.
+     */
+    static List<String> createIndexesSql(String schemaName, String tableName) {
+        String qualifiedName = schemaName + "." + tableName;
+        return List.of(
+                "CREATE INDEX IF NOT EXISTS " + indexName(tableName, "_claimed_idx") +
+                        " ON " + qualifiedName + " (offer_id) WHERE claimed;",
+                "CREATE INDEX IF NOT EXISTS " + indexName(tableName, "_car_idx") +
+                        " ON " + qualifiedName + " (car_id);"
+        );
+    }
+
+    /**
+     * Return the name of an index of the offers table called tableName, ending in suffix. Names that would be
+     * longer than PostgreSQL allows (and be cut short, possibly to the name of another table's index) use a hash
+     * of tableName instead.
+     */
+    private static String indexName(String tableName, String suffix) {
+        String name = tableName + suffix;
+        if (name.length() <= MAX_IDENTIFIER_LENGTH) {
+            return name;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(tableName.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder("offers_");
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex + suffix;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);  // every Java platform supports SHA-256
+        }
     }
 
     @Override
     public int addOffer(
+            String userId,
             int carId,
             double loanAmount,
             double capitalSum,
@@ -94,172 +189,361 @@ public class TableOffers extends Table implements TableOffersInterface {
             String installments,
             boolean claimed
     ) throws SQLException {
-        // construct a prepared SQL statement inserting the specified values
-        @SuppressWarnings("SqlInsertValues")  // inspector fails to recognize String.join
-        PreparedStatement stmt = this.dbConn.prepareStatement(
-                "INSERT INTO " + this.schemaName + "." + this.tableName + " (" +
-                        String.join(", ", tableColumns) +
-                        ")" + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);"
-        );
-        stmt.setInt(1, carId);
-        stmt.setBigDecimal(2, BigDecimal.valueOf(loanAmount));
-        stmt.setBigDecimal(3, BigDecimal.valueOf(capitalSum));
-        stmt.setBigDecimal(4, BigDecimal.valueOf(interestSum));
-        stmt.setBigDecimal(5, BigDecimal.valueOf(totalSum));
-        stmt.setDouble(6, interestRate);
-        stmt.setDouble(7, termMo);
-        stmt.setString(8, installments);
-        stmt.setBoolean(9, claimed);
-
-        // execute and close the above SQL statement
-        stmt.executeUpdate();
-        stmt.close();
-
-        // retrieve the offer ID and save it to "offer_id"
-        PreparedStatement stmtLastVal = this.dbConn.prepareStatement("SELECT LASTVAL();");
-        ResultSet rs = stmtLastVal.executeQuery();
-        rs.next();
-        int offerId = rs.getInt("lastval");
-        stmt.close();
-
-        return offerId;
+        return onTable(userId, tableName -> insertOffer(
+                tableName, carId, loanAmount, capitalSum, interestSum, totalSum, interestRate, termMo,
+                installments, claimed
+        ));
+    }
+
+    /**
+     * Insert an offer with the given values into the offers table called tableName and return its offer ID.
+     */
+    private int insertOffer(
+            String tableName,
+            int carId,
+            double loanAmount,
+            double capitalSum,
+            double interestSum,
+            double totalSum,
+            double interestRate,
+            double termMo,
+            String installments,
+            boolean claimed
+    ) throws SQLException {
+        // construct a prepared SQL statement inserting the specified values and returning the new offer ID
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                @SuppressWarnings("SqlInsertValues")  // inspector fails to recognize String.join
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "INSERT INTO " + this.schemaName + "." + tableName + " (" +
+                                String.join(", ", tableColumns) +
+                                ")" + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING offer_id;"
+                )
+        ) {
+            stmt.setInt(1, carId);
+            stmt.setBigDecimal(2, BigDecimal.valueOf(loanAmount));
+            stmt.setBigDecimal(3, BigDecimal.valueOf(capitalSum));
+            stmt.setBigDecimal(4, BigDecimal.valueOf(interestSum));
+            stmt.setBigDecimal(5, BigDecimal.valueOf(totalSum));
+            stmt.setDouble(6, interestRate);
+            stmt.setDouble(7, termMo);
+            stmt.setString(8, installments);
+            stmt.setBoolean(9, claimed);
+
+            // execute the insert, which gives back the new offer ID
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            int offerId = rs.getInt("offer_id");
+
+            return offerId;
+        }
     }
 
     @Override
-    public void removeOfferByOfferId(int offerId) throws SQLException, ResponseStatusException {
-        removeEntryById(offerId, schemaName, tableName, dbConn, "offer");
+    public List<EntOffer> addOffers(String userId, List<EntOffer> offers) throws SQLException {
+        return onTable(userId, tableName -> insertOffers(tableName, offers));
+    }
+
+    /**
+     * Insert offers into the offers table called tableName and return them with their new offer IDs.
+     */
+    private List<EntOffer> insertOffers(String tableName, List<EntOffer> offers) throws SQLException {
+        List<EntOffer> addedOffers = new ArrayList<>(offers.size());
+        if (offers.isEmpty()) {
+            return addedOffers;
+        }
+
+        // construct a prepared SQL statement inserting one offer, which is run once for each offer in a single
+        // batch. Asking for the generated "offer_id" makes the driver add "RETURNING offer_id" to each insert.
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                @SuppressWarnings("SqlInsertValues")  // inspector fails to recognize String.join
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "INSERT INTO " + this.schemaName + "." + tableName + " (" +
+                                String.join(", ", tableColumns) +
+                                ")" + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);",
+                        new String[] {"offer_id"}
+                )
+        ) {
+            for (EntOffer offer : offers) {
+                stmt.setInt(1, offer.getCarId());
+                stmt.setBigDecimal(2, BigDecimal.valueOf(offer.getLoanAmount()));
+                stmt.setBigDecimal(3, BigDecimal.valueOf(offer.getCapitalSum()));
+                stmt.setBigDecimal(4, BigDecimal.valueOf(offer.getInterestSum()));
+                stmt.setBigDecimal(5, BigDecimal.valueOf(offer.getTotalSum()));
+                stmt.setDouble(6, offer.getInterestRate());
+                stmt.setDouble(7, offer.getTermMo());
+                stmt.setString(8, offer.getInstallments());
+                stmt.setBoolean(9, offer.isClaimed());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            // the generated offer IDs come back in the same order as the offers were inserted. Build the new offer
+            // entities from the inserted values, as they are stored by the column types of the offers table
+            // (decimal(12) keeps no fractional digits and real is single precision), instead of reading them back.
+            ResultSet rs = stmt.getGeneratedKeys();
+            for (EntOffer offer : offers) {
+                rs.next();
+                addedOffers.add(new EntOffer(
+                        rs.getInt("offer_id"),
+                        offer.getCarId(),
+                        toStoredDecimal(offer.getLoanAmount()),
+                        toStoredDecimal(offer.getCapitalSum()),
+                        toStoredDecimal(offer.getInterestSum()),
+                        toStoredDecimal(offer.getTotalSum()),
+                        (float) offer.getInterestRate(),
+                        (float) offer.getTermMo(),
+                        offer.getInstallments(),
+                        offer.isClaimed()
+                ));
+            }
+            return addedOffers;
+        }
+    }
+
+    /**
+     * Round value the same way as storing it in a decimal(12) column does.
+     */
+    private static double toStoredDecimal(double value) {
+        return BigDecimal.valueOf(value).setScale(0, RoundingMode.HALF_UP).doubleValue();
     }
 
     @Override
-    public void removeAllOffers() throws SQLException {
-        removeAllEntries(schemaName, tableName, dbConn);
+    public void removeOfferByOfferId(String userId, int offerId) throws SQLException, ResponseStatusException {
+        onTable(userId, tableName -> {
+            removeEntryById(offerId, schemaName, tableName, dataSource, "offer");
+            return null;
+        });
     }
 
     @Override
-    public Map<String, Object> getOfferByOfferId(int offerId) throws SQLException, ResponseStatusException {
-        return getEntryById(offerId, schemaName, tableName, dbConn, "offer");
+    public void removeAllOffers(String userId) throws SQLException {
+        onTable(userId, tableName -> {
+            removeAllEntries(schemaName, tableName, dataSource);
+            return null;
+        });
     }
 
     @Override
-    public List<Map<String, Object>> getAllOffers() throws SQLException {
-        return getAllEntries(schemaName, tableName, dbConn);
+    public Map<String, Object> getOfferByOfferId(
+            String userId,
+            int offerId
+    ) throws SQLException, ResponseStatusException {
+        return onTable(userId, tableName -> getEntryById(offerId, schemaName, tableName, dataSource, "offer"));
     }
 
     @Override
-    public List<Map<String, Object>> getClaimedOffers() throws SQLException {
-        // construct a prepared SQL statement selecting all offers
-        // where "claimed" is true
-        PreparedStatement stmt = this.dbConn.prepareStatement(
-                "SELECT * FROM " + this.schemaName + "." + this.tableName + " WHERE claimed = true;"
+    public EntOffer getOfferEntityByOfferId(
+            String userId,
+            int offerId
+    ) throws SQLException, ResponseStatusException {
+        return onTable(
+                userId,
+                tableName -> getEntryById(offerId, schemaName, tableName, dataSource, "offer", RowMappers.OFFERS)
         );
-        ResultSet rs = stmt.executeQuery();
-        List<Map<String, Object>> offers = resultSetToList(rs);
-        stmt.close();
-        return offers;
     }
 
     @Override
-    public void markOfferClaimed(int offerId) throws SQLException, ResponseStatusException {
-        if (!checkOfferExists(offerId)) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND, "offer not found"
-            );
-        }
+    public List<Map<String, Object>> getAllOffers(String userId) throws SQLException {
+        return onTable(userId, tableName -> getAllEntries(schemaName, tableName, dataSource));
+    }
 
-        // construct a prepared SQL marking the specified offer claimed
-        PreparedStatement stmt = this.dbConn.prepareStatement(
-                "UPDATE " + this.schemaName + "." + this.tableName +
-                        " SET claimed = true WHERE offer_id = ?;"
-        );
-        stmt.setInt(1, offerId);
+    @Override
+    public List<Map<String, Object>> getClaimedOffers(String userId) throws SQLException {
+        return onTable(userId, this::selectClaimedOffers);
+    }
 
-        // execute and close the above SQL statement
-        stmt.executeUpdate();
-        stmt.close();
+    /**
+     * Select the claimed offers of the offers table called tableName.
+     */
+    private List<Map<String, Object>> selectClaimedOffers(String tableName) throws SQLException {
+        // construct a prepared SQL statement selecting all offers
+        // where "claimed" is true
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT * FROM " + this.schemaName + "." + tableName + " WHERE claimed = true;"
+                )
+        ) {
+            ResultSet rs = stmt.executeQuery();
+            return resultSetToList(rs);
+        }
     }
 
     @Override
-    public void markOfferUnclaimed(int offerId) throws SQLException, ResponseStatusException {
-        if (!checkOfferExists(offerId)) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND, "offer not found"
-            );
-        }
+    public List<Map<String, Object>> getAllOffersWithCars(String userId) throws SQLException {
+        return onTable(userId, tableName -> getOffersWithCars(tableName, ""));
+    }
 
-        // construct a prepared SQL marking the specified offer unclaimed
-        PreparedStatement stmt = this.dbConn.prepareStatement(
-                "UPDATE " + this.schemaName + "." + this.tableName +
-                        " SET claimed = false WHERE offer_id = ?;"
-        );
-        stmt.setInt(1, offerId);
+    @Override
+    public List<Map<String, Object>> getClaimedOffersWithCars(String userId) throws SQLException {
+        return onTable(userId, tableName -> getOffersWithCars(tableName, " WHERE o.claimed = true"));
+    }
+
+    /**
+     * Select the offers matching whereClause (which may use "o." for offer columns), each joined with its car.
+     */
+    private List<Map<String, Object>> getOffersWithCars(String tableName, String whereClause) throws SQLException {
+        // construct a prepared SQL statement selecting the offers along with the columns of their cars
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT o.*, c.brand, c.model, c.year, c.price, c.mileage " +
+                                "FROM " + this.schemaName + "." + tableName + " o " +
+                                "JOIN public.cars c ON c.car_id = o.car_id" +
+                                whereClause +
+                                " ORDER BY o.offer_id;"
+                )
+        ) {
+            ResultSet rs = stmt.executeQuery();
+            return resultSetToList(rs);
+        }
+    }
 
-        // execute and close the above SQL statement
-        stmt.executeUpdate();
-        stmt.close();
+    @Override
+    public void markOfferClaimed(String userId, int offerId) throws SQLException, ResponseStatusException {
+        onTable(userId, tableName -> {
+            setOfferClaimed(tableName, offerId, true);
+            return null;
+        });
     }
 
     @Override
-    public void dropTable() throws SQLException {
-        dropTable(this.tableName);
+    public void markOfferUnclaimed(String userId, int offerId) throws SQLException, ResponseStatusException {
+        onTable(userId, tableName -> {
+            setOfferClaimed(tableName, offerId, false);
+            return null;
+        });
+    }
+
+    /**
+     * Mark the offer with offerId in the offers table called tableName claimed or not, throwing a 404
+     * ResponseStatusException if there is no such offer.
+     */
+    private void setOfferClaimed(String tableName, int offerId, boolean claimed) throws SQLException {
+        // construct a prepared SQL marking the specified offer claimed or unclaimed
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "UPDATE " + this.schemaName + "." + tableName +
+                                " SET claimed = ? WHERE offer_id = ?;"
+                )
+        ) {
+            stmt.setBoolean(1, claimed);
+            stmt.setInt(2, offerId);
+
+            // execute the above SQL statement; the offer does not exist if no row was updated
+            int updated = stmt.executeUpdate();
+            if (updated == 0) {
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "offer not found"
+                );
+            }
+        }
     }
 
     @Override
     public void dropTable(String tableName) throws SQLException {
         if (checkTableExists(tableName)) {
-            PreparedStatement stmt = this.dbConn.prepareStatement(
-                    "DROP TABLE " + this.schemaName + "." + tableName + ";"
-            );
-            stmt.executeUpdate();
-            stmt.close();
+            try (
+                    Connection dbConn = this.dataSource.getConnection();
+                    PreparedStatement stmt = dbConn.prepareStatement(
+                            "DROP TABLE " + this.schemaName + "." + tableName + ";"
+                    )
+            ) {
+                stmt.executeUpdate();
+            }
         }
+        // forget the table only once it is gone, so that a concurrent createTable() can not record it again just
+        // before it is dropped
+        KnownTables.forget(this.dataSource, this.schemaName + "." + tableName);
     }
 
     @Override
-    public boolean checkTableExists() throws SQLException {
-        return checkTableExists(this.tableName);
+    public boolean checkTableExists(String tableName) throws SQLException {
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT EXISTS (" +
+                                "SELECT * " +
+                                "FROM   information_schema.tables " +
+                                "WHERE  table_schema = 'offers'" +
+                                "   and table_name = ?" +
+                                ");"
+                )
+        ) {
+            stmt.setString(1, tableName.toLowerCase(Locale.ROOT));
+
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getBoolean("exists");
+        }
     }
 
     @Override
-    public boolean checkTableExists(String tableName) throws SQLException {
-        PreparedStatement stmt = this.dbConn.prepareStatement(
-                "SELECT EXISTS (" +
-                        "SELECT * " +
-                        "FROM   information_schema.tables " +
-                        "WHERE  table_schema = 'offers'" +
-                        "   and table_name= '" + tableName.toLowerCase(Locale.ROOT) + "'" +
-                        ");"
-        );
+    public boolean checkOfferExists(String userId, int offerId) throws SQLException {
+        return onTable(userId, tableName -> checkEntryExists(offerId, schemaName, tableName, dataSource, "offer"));
+    }
 
-        ResultSet rs = stmt.executeQuery();
-        rs.next();
-        boolean exists = rs.getBoolean("exists");
-        stmt.close();
+    @Override
+    public boolean checkHasOffers(String userId) throws SQLException {
+        return onTable(userId, this::selectHasOffers);
+    }
 
-        return exists;
+    /**
+     * Return whether the offers table called tableName has any offers.
+     */
+    private boolean selectHasOffers(String tableName) throws SQLException {
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT EXISTS (SELECT 1 FROM " + this.schemaName + "." + tableName + ");"
+                )
+        ) {
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getBoolean("exists");
+        }
     }
 
     @Override
-    public boolean checkOfferExists(int offerId) throws SQLException {
-        return checkEntryExists(offerId, schemaName, tableName, dbConn, "offer");
+    public void updateOfferColumn(
+            String userId,
+            int offerId,
+            OfferColumns column,
+            Object newValue
+    ) throws SQLException {
+        onTable(userId, tableName -> {
+            updateColumn(tableName, offerId, column, newValue);
+            return null;
+        });
     }
 
-    @Override
-    public void updateOfferColumn(int offerId, OfferColumns column, Object newValue) throws SQLException {
+    /**
+     * Set column of the offer with offerId in the offers table called tableName to newValue.
+     */
+    private void updateColumn(
+            String tableName,
+            int offerId,
+            OfferColumns column,
+            Object newValue
+    ) throws SQLException {
         String offerString = "offer";
         if (column == OfferColumns.LOAN_AMOUNT) {
-            updateEntryColumn(offerId, schemaName, tableName, dbConn, offerString, "loan_amount", newValue);
+            updateEntryColumn(offerId, schemaName, tableName, dataSource, offerString, "loan_amount", newValue);
         } else if (column == OfferColumns.CAPITAL_SUM) {
-            updateEntryColumn(offerId, schemaName, tableName, dbConn, offerString, "capital_sum", newValue);
+            updateEntryColumn(offerId, schemaName, tableName, dataSource, offerString, "capital_sum", newValue);
         } else if (column == OfferColumns.INTEREST_SUM) {
-            updateEntryColumn(offerId, schemaName, tableName, dbConn, offerString, "interest_sum", newValue);
+            updateEntryColumn(offerId, schemaName, tableName, dataSource, offerString, "interest_sum", newValue);
         } else if (column == OfferColumns.TOTAL_SUM) {
-            updateEntryColumn(offerId, schemaName, tableName, dbConn, offerString, "total_sum", newValue);
+            updateEntryColumn(offerId, schemaName, tableName, dataSource, offerString, "total_sum", newValue);
         } else if (column == OfferColumns.INTEREST_RATE) {
-            updateEntryColumn(offerId, schemaName, tableName, dbConn, offerString, "interest_rate", newValue);
+            updateEntryColumn(offerId, schemaName, tableName, dataSource, offerString, "interest_rate", newValue);
         } else if (column == OfferColumns.TERM_MO) {
-            updateEntryColumn(offerId, schemaName, tableName, dbConn, offerString, "term_mo", newValue);
+            updateEntryColumn(offerId, schemaName, tableName, dataSource, offerString, "term_mo", newValue);
         } else if (column == OfferColumns.INSTALLMENTS) {
-            updateEntryColumn(offerId, schemaName, tableName, dbConn, offerString, "installments", newValue);
+            updateEntryColumn(offerId, schemaName, tableName, dataSource, offerString, "installments", newValue);
         }
     }
 }
@@ -0,0 +1,484 @@
+package tech.autodirect.api.database;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntOffer;
+import tech.autodirect.api.interfaces.TableOffersInterface;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Stores the offers of all users in a single table, offers.all_offers, instead of one table per user (see
+ * TableOffers). Rows are keyed by (user_id, offer_id) and the table is hash-partitioned by user_id, so that the
+ * catalog does not grow with the number of users and every query for a user only scans that user's partition.
+ *
+ * user_id holds userId in lower case, since offers tables are named after the lower-cased userId (see
+ * TableOffersInterface.createTableName()), so users whose IDs only differ in case share their offers either way.
+ *
+ * The users for which createTable() was called are recorded in offers.all_offers_users, so that the table names
+ * given by createTable() can still be checked with checkTableExists() and dropped with dropTable().
+ */
+@SuppressWarnings("SqlResolve")  // no need to connect to database in IDE
+public class TablePartitionedOffers extends Table implements TableOffersInterface {
+    private final DataSource dataSource;
+    private final String schemaName = "offers";
+    private final String tableName = "all_offers";
+    private final String usersTableName = "all_offers_users";
+    // Number of hash partitions of the offers table (only used when the table is first created)
+    private final int numPartitions;
+    // Columns returned by queries, the same as in a per-user offers table (user_id is left out)
+    private final String offerColumns = "offer_id, car_id, loan_amount, capital_sum, interest_sum, total_sum, " +
+            "interest_rate, term_mo, installments, claimed";
+    private final String[] tableColumns = {
+            "user_id", "car_id", "loan_amount", "capital_sum", "interest_sum", "total_sum",
+            "interest_rate", "term_mo", "installments", "claimed"
+    };
+
+    /**
+     * Create a new TablePartitionedOffers object that borrows connections from the database's connection pool.
+     *
+     * @param dbName        : name of the database to connect to
+     * @param numPartitions : number of hash partitions to create the offers table with (if it does not exist yet)
+     */
+    public TablePartitionedOffers(String dbName, int numPartitions) throws SQLException, ClassNotFoundException {
+        this(Conn.getDataSource(dbName), numPartitions);
+    }
+
+    /**
+     * Create a new TablePartitionedOffers object that borrows connections from dataSource.
+     */
+    TablePartitionedOffers(DataSource dataSource, int numPartitions) {
+        if (numPartitions < 1) {
+            throw new IllegalArgumentException("numPartitions must be positive");
+        }
+        this.dataSource = dataSource;
+        this.numPartitions = numPartitions;
+    }
+
+    /**
+     * Return the value of the user_id column for userId.
+     */
+    private static String userKey(String userId) {
+        return userId.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Return the user_id value of the user whose offers table is named tableName,
+     * or null if tableName is not the name of a user's offers table.
+     */
+    private static String userKeyOfTable(String tableName) {
+        String prefix = TableOffersInterface.TABLE_NAME_PREFIX;
+        String lowerTableName = tableName.toLowerCase(Locale.ROOT);
+        return lowerTableName.startsWith(prefix) ? lowerTableName.substring(prefix.length()) : null;
+    }
+
+    /**
+     * Return the name under which KnownTables records that the user with the given user_id is in the users table.
+     */
+    private String knownUserName(String userKey) {
+        return this.schemaName + "." + this.usersTableName + "/" + userKey;
+    }
+
+    /**
+     * Create the offers table (with its partitions and indexes) and the users table if they do not exist yet.
+     */
+    public void createTables() throws SQLException {
+        String qualifiedName = this.schemaName + "." + this.tableName;
+        String qualifiedUsersName = this.schemaName + "." + this.usersTableName;
+        if (KnownTables.isKnown(this.dataSource, qualifiedUsersName)) {
+            return;
+        }
+        try (Connection dbConn = this.dataSource.getConnection(); Statement stmt = dbConn.createStatement()) {
+            // create the "offers" schema if it does not exist yet
+            stmt.executeUpdate("CREATE SCHEMA IF NOT EXISTS " + this.schemaName + " AUTHORIZATION tli;");
+
+            // create the offers table, partitioned by the hash of user_id
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS " + qualifiedName + " (" +
+                            "user_id        varchar(50) NOT NULL, " +
+                            "offer_id       serial      NOT NULL, " +
+                            "car_id         integer     NOT NULL, " +
+                            "loan_amount    decimal(12) NOT NULL, " +
+                            "capital_sum    decimal(12) NOT NULL, " +
+                            "interest_sum   decimal(12) NOT NULL, " +
+                            "total_sum      decimal(12) NOT NULL, " +
+                            "interest_rate  real        NOT NULL, " +
+                            "term_mo        real        NOT NULL, " +
+                            "installments   varchar(10000) NOT NULL, " +
+                            "claimed        boolean     NOT NULL, " +
+                            "PRIMARY KEY (user_id, offer_id)" +
+                            ") PARTITION BY HASH (user_id);"
+            );
+            for (int i = 0; i < numPartitions; i++) {
+                stmt.executeUpdate(
+                        "CREATE TABLE IF NOT EXISTS " + qualifiedName + "_p" + i +
+                                " PARTITION OF " + qualifiedName +
+                                " FOR VALUES WITH (MODULUS " + numPartitions + ", REMAINDER " + i + ");"
+                );
+            }
+
+            // index the claimed offers of each user (for /getClaimedOffers) and offers by car
+            stmt.executeUpdate(
+                    "CREATE INDEX IF NOT EXISTS " + this.tableName + "_claimed_idx ON " + qualifiedName +
+                            " (user_id, offer_id) WHERE claimed;"
+            );
+            stmt.executeUpdate(
+                    "CREATE INDEX IF NOT EXISTS " + this.tableName + "_car_idx ON " + qualifiedName + " (car_id);"
+            );
+
+            // create the table recording which users have an offers "table"
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS " + qualifiedUsersName + " (" +
+                            "user_id        varchar(50) NOT NULL PRIMARY KEY" +
+                            ");"
+            );
+        }
+        KnownTables.add(this.dataSource, this.schemaName);
+        KnownTables.add(this.dataSource, qualifiedName);
+        KnownTables.add(this.dataSource, qualifiedUsersName);
+    }
+
+    @Override
+    public String createTable(String userId) throws SQLException {
+        String tableName = TableOffersInterface.createTableName(userId);
+        String knownName = knownUserName(userKey(userId));
+        if (KnownTables.isKnown(this.dataSource, knownName)) {
+            return tableName;
+        }
+        createTables();
+
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "INSERT INTO " + this.schemaName + "." + this.usersTableName +
+                                " VALUES (?) ON CONFLICT DO NOTHING;"
+                )
+        ) {
+            stmt.setString(1, userKey(userId));
+            stmt.executeUpdate();
+        }
+        KnownTables.add(this.dataSource, knownName);
+        return tableName;
+    }
+
+    @Override
+    public int addOffer(
+            String userId,
+            int carId,
+            double loanAmount,
+            double capitalSum,
+            double interestSum,
+            double totalSum,
+            double interestRate,
+            double termMo,
+            String installments,
+            boolean claimed
+    ) throws SQLException {
+        EntOffer offer = new EntOffer(
+                0, carId, loanAmount, capitalSum, interestSum, totalSum, interestRate, termMo, installments, claimed
+        );
+        return addOffers(userId, List.of(offer)).get(0).getOfferId();
+    }
+
+    @Override
+    public List<EntOffer> addOffers(String userId, List<EntOffer> offers) throws SQLException {
+        List<EntOffer> addedOffers = new ArrayList<>(offers.size());
+        if (offers.isEmpty()) {
+            return addedOffers;
+        }
+
+        // construct a prepared SQL statement inserting one offer, which is run once for each offer in a single
+        // batch. Asking for the generated "offer_id" makes the driver add "RETURNING offer_id" to each insert.
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                @SuppressWarnings("SqlInsertValues")  // inspector fails to recognize String.join
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "INSERT INTO " + this.schemaName + "." + this.tableName + " (" +
+                                String.join(", ", tableColumns) +
+                                ")" + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);",
+                        new String[] {"offer_id"}
+                )
+        ) {
+            for (EntOffer offer : offers) {
+                stmt.setString(1, userKey(userId));
+                stmt.setInt(2, offer.getCarId());
+                stmt.setBigDecimal(3, BigDecimal.valueOf(offer.getLoanAmount()));
+                stmt.setBigDecimal(4, BigDecimal.valueOf(offer.getCapitalSum()));
+                stmt.setBigDecimal(5, BigDecimal.valueOf(offer.getInterestSum()));
+                stmt.setBigDecimal(6, BigDecimal.valueOf(offer.getTotalSum()));
+                stmt.setDouble(7, offer.getInterestRate());
+                stmt.setDouble(8, offer.getTermMo());
+                stmt.setString(9, offer.getInstallments());
+                stmt.setBoolean(10, offer.isClaimed());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            // build the new offer entities from the inserted values, as they are stored by the column types
+            // (see TableOffers.addOffers())
+            ResultSet rs = stmt.getGeneratedKeys();
+            for (EntOffer offer : offers) {
+                rs.next();
+                addedOffers.add(new EntOffer(
+                        rs.getInt("offer_id"),
+                        offer.getCarId(),
+                        toStoredDecimal(offer.getLoanAmount()),
+                        toStoredDecimal(offer.getCapitalSum()),
+                        toStoredDecimal(offer.getInterestSum()),
+                        toStoredDecimal(offer.getTotalSum()),
+                        (float) offer.getInterestRate(),
+                        (float) offer.getTermMo(),
+                        offer.getInstallments(),
+                        offer.isClaimed()
+                ));
+            }
+        }
+        return addedOffers;
+    }
+
+    /**
+     * Round value the same way as storing it in a decimal(12) column does.
+     */
+    private static double toStoredDecimal(double value) {
+        return BigDecimal.valueOf(value).setScale(0, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    @Override
+    public void removeOfferByOfferId(String userId, int offerId) throws SQLException, ResponseStatusException {
+        int removed = executeUpdateForUser(userId, "DELETE FROM %s WHERE user_id = ? AND offer_id = ?;", offerId);
+        if (removed == 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "offer not found"
+            );
+        }
+    }
+
+    @Override
+    public void removeAllOffers(String userId) throws SQLException {
+        executeUpdateForUser(userId, "DELETE FROM %s WHERE user_id = ?;");
+    }
+
+    @Override
+    public Map<String, Object> getOfferByOfferId(
+            String userId,
+            int offerId
+    ) throws SQLException, ResponseStatusException {
+        List<Map<String, Object>> offers = queryForUser(
+                userId, "SELECT " + offerColumns + " FROM %s WHERE user_id = ? AND offer_id = ?;", offerId
+        );
+        if (offers.isEmpty()) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "offer not found"
+            );
+        }
+        return offers.get(0);
+    }
+
+    @Override
+    public List<Map<String, Object>> getAllOffers(String userId) throws SQLException {
+        return queryForUser(userId, "SELECT " + offerColumns + " FROM %s WHERE user_id = ?;");
+    }
+
+    @Override
+    public List<Map<String, Object>> getClaimedOffers(String userId) throws SQLException {
+        return queryForUser(userId, "SELECT " + offerColumns + " FROM %s WHERE user_id = ? AND claimed = true;");
+    }
+
+    @Override
+    public List<Map<String, Object>> getAllOffersWithCars(String userId) throws SQLException {
+        return getOffersWithCars(userId, "");
+    }
+
+    @Override
+    public List<Map<String, Object>> getClaimedOffersWithCars(String userId) throws SQLException {
+        return getOffersWithCars(userId, " AND o.claimed = true");
+    }
+
+    /**
+     * Select userId's offers matching andClause (which may use "o." for offer columns), each joined with its car.
+     */
+    private List<Map<String, Object>> getOffersWithCars(String userId, String andClause) throws SQLException {
+        String offerColumnsOfO = "o." + offerColumns.replace(", ", ", o.");
+        return queryForUser(
+                userId,
+                "SELECT " + offerColumnsOfO + ", c.brand, c.model, c.year, c.price, c.mileage " +
+                        "FROM %s o " +
+                        "JOIN public.cars c ON c.car_id = o.car_id " +
+                        "WHERE o.user_id = ?" + andClause +
+                        " ORDER BY o.offer_id;"
+        );
+    }
+
+    @Override
+    public void markOfferClaimed(String userId, int offerId) throws SQLException, ResponseStatusException {
+        setOfferClaimed(userId, offerId, true);
+    }
+
+    @Override
+    public void markOfferUnclaimed(String userId, int offerId) throws SQLException, ResponseStatusException {
+        setOfferClaimed(userId, offerId, false);
+    }
+
+    /**
+     * Set the "claimed" field of the given offer to claimed, or throw an HTTP 404 exception if it does not exist.
+     */
+    private void setOfferClaimed(String userId, int offerId, boolean claimed) throws SQLException {
+        int updated = executeUpdateForUser(
+                userId, "UPDATE %s SET claimed = " + claimed + " WHERE user_id = ? AND offer_id = ?;", offerId
+        );
+        if (updated == 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "offer not found"
+            );
+        }
+    }
+
+    /**
+     * Delete the offers "table" of a user, given by the table name returned by createTable() (which removes all
+     * of the user's offers). Does nothing for any other table name.
+     */
+    @Override
+    public void dropTable(String tableName) throws SQLException {
+        String userKey = userKeyOfTable(tableName);
+        if (userKey == null) {
+            return;
+        }
+        if (!checkTableExists(tableName)) {
+            KnownTables.forget(this.dataSource, knownUserName(userKey));
+            return;
+        }
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmtOffers = dbConn.prepareStatement(
+                        "DELETE FROM " + this.schemaName + "." + this.tableName + " WHERE user_id = ?;"
+                );
+                PreparedStatement stmtUser = dbConn.prepareStatement(
+                        "DELETE FROM " + this.schemaName + "." + this.usersTableName + " WHERE user_id = ?;"
+                )
+        ) {
+            stmtOffers.setString(1, userKey);
+            stmtOffers.executeUpdate();
+            stmtUser.setString(1, userKey);
+            stmtUser.executeUpdate();
+        }
+        // forget the user only once it is gone, so that a concurrent createTable() can not record it again just
+        // before it is deleted
+        KnownTables.forget(this.dataSource, knownUserName(userKey));
+    }
+
+    /**
+     * Return whether the offers "table" given by tableName (as returned by createTable()) exists, that is, whether
+     * createTable() was called for its user (and it was not dropped since).
+     */
+    @Override
+    public boolean checkTableExists(String tableName) throws SQLException {
+        String userKey = userKeyOfTable(tableName);
+        if (userKey == null) {
+            return false;
+        }
+        createTables();
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "SELECT 1 FROM " + this.schemaName + "." + this.usersTableName + " WHERE user_id = ?;"
+                )
+        ) {
+            stmt.setString(1, userKey);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    @Override
+    public boolean checkOfferExists(String userId, int offerId) throws SQLException {
+        return !queryForUser(userId, "SELECT 1 FROM %s WHERE user_id = ? AND offer_id = ?;", offerId).isEmpty();
+    }
+
+    @Override
+    public boolean checkHasOffers(String userId) throws SQLException {
+        return !queryForUser(userId, "SELECT 1 FROM %s WHERE user_id = ? LIMIT 1;").isEmpty();
+    }
+
+    @Override
+    public void updateOfferColumn(
+            String userId,
+            int offerId,
+            OfferColumns column,
+            Object newValue
+    ) throws SQLException {
+        String columnName = column.name().toLowerCase(Locale.ROOT);
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "UPDATE " + this.schemaName + "." + this.tableName +
+                                " SET " + columnName + " = ? WHERE user_id = ? AND offer_id = ?;"
+                )
+        ) {
+            stmt.setObject(1, newValue);
+            stmt.setString(2, userKey(userId));
+            stmt.setInt(3, offerId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Run the query sql (with %s in place of the offers table name) with userId's user_id as its first parameter
+     * and offerIds as the next ones, and return the resulting rows.
+     */
+    private List<Map<String, Object>> queryForUser(String userId, String sql, int... offerIds) throws SQLException {
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = prepareForUser(dbConn, userId, sql, offerIds)
+        ) {
+            return resultSetToList(stmt.executeQuery());
+        }
+    }
+
+    /**
+     * Same as queryForUser(), but for an update statement. Returns the number of affected rows.
+     */
+    private int executeUpdateForUser(String userId, String sql, int... offerIds) throws SQLException {
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = prepareForUser(dbConn, userId, sql, offerIds)
+        ) {
+            return stmt.executeUpdate();
+        }
+    }
+
+    private PreparedStatement prepareForUser(
+            Connection dbConn,
+            String userId,
+            String sql,
+            int... offerIds
+    ) throws SQLException {
+        PreparedStatement stmt = dbConn.prepareStatement(String.format(sql, this.schemaName + "." + this.tableName));
+        stmt.setString(1, userKey(userId));
+        for (int i = 0; i < offerIds.length; i++) {
+            stmt.setInt(i + 2, offerIds[i]);
+        }
+        return stmt;
+    }
+}
@@ -17,9 +17,11 @@ limitations under the License.
 */
 
 import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntUser;
 import tech.autodirect.api.interfaces.TableOffersInterface;
 import tech.autodirect.api.interfaces.TableUsersInterface;
 
+import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -27,19 +29,28 @@ import java.sql.SQLException;
 import java.util.Map;
 
 public class TableUsers extends Table implements TableUsersInterface {
-    private final String dbName;
-    private final Connection dbConn;
+    private final DataSource dataSource;
+    // Offers tables in which the offers tables of new users are created
+    private final TableOffersInterface tableOffers;
     private final String schemaName = "public";
     private final String tableName = "users";
 
     /**
-     * Create a new TableUsers object with a public database connection object.
+     * Create a new TableUsers object that borrows connections from the database's connection pool.
      *
      * @param dbName : name of the database to connect to
      */
     public TableUsers(String dbName) throws SQLException, ClassNotFoundException {
-        this.dbName = dbName;
-        this.dbConn = Conn.getConn(dbName);
+        this.dataSource = Conn.getDataSource(dbName);
+        this.tableOffers = new TableOffers(dataSource);
+    }
+
+    /**
+     * Same as above, but new users get their offers table in tableOffers (instead of in a TableOffers).
+     */
+    public TableUsers(String dbName, TableOffersInterface tableOffers) throws SQLException, ClassNotFoundException {
+        this.dataSource = Conn.getDataSource(dbName);
+        this.tableOffers = tableOffers;
     }
 
     @Override
@@ -49,45 +60,52 @@ public class TableUsers extends Table implements TableUsersInterface {
             double downPayment,
             double budgetMonthly
     ) throws SQLException, ClassNotFoundException {
-        PreparedStatement stmt = this.dbConn.prepareStatement(
-                "INSERT INTO " + this.schemaName + "." + this.tableName + " VALUES (?, ?, ?, ?, ?);"
-        );
-        stmt.setString(1, userId);
-        stmt.setInt(2, creditScore);
-        stmt.setBigDecimal(3, BigDecimal.valueOf(downPayment));
-        stmt.setBigDecimal(4, BigDecimal.valueOf(budgetMonthly));
-        stmt.setString(5, TableOffersInterface.createTableName(userId));
-
         // Create offers for this user
-        TableOffersInterface tableOffers = new TableOffers(dbName);
-        tableOffers.setUser(userId);
+        tableOffers.createTable(userId);
 
-        // execute and close the above SQL statement
-        stmt.executeUpdate();
-        stmt.close();
+        try (
+                Connection dbConn = this.dataSource.getConnection();
+                PreparedStatement stmt = dbConn.prepareStatement(
+                        "INSERT INTO " + this.schemaName + "." + this.tableName + " VALUES (?, ?, ?, ?, ?);"
+                )
+        ) {
+            stmt.setString(1, userId);
+            stmt.setInt(2, creditScore);
+            stmt.setBigDecimal(3, BigDecimal.valueOf(downPayment));
+            stmt.setBigDecimal(4, BigDecimal.valueOf(budgetMonthly));
+            stmt.setString(5, TableOffersInterface.createTableName(userId));
+
+            // execute the above SQL statement
+            stmt.executeUpdate();
+        }
     }
 
     @Override
     public Map<String, Object> getUserById(String userId) throws SQLException, ResponseStatusException {
-        return getEntryById(userId, schemaName, tableName, dbConn, "user");
+        return getEntryById(userId, schemaName, tableName, dataSource, "user");
+    }
+
+    @Override
+    public EntUser getUserEntityById(String userId) throws SQLException, ResponseStatusException {
+        return getEntryById(userId, schemaName, tableName, dataSource, "user", RowMappers.USERS);
     }
 
     @Override
     public void removeUserById(String userId) throws SQLException, ResponseStatusException {
-        removeEntryById(userId, schemaName, tableName, dbConn, "user");
+        removeEntryById(userId, schemaName, tableName, dataSource, "user");
     }
 
     @Override
     public boolean checkUserExists(String userId) throws SQLException {
-        return checkEntryExists(userId, schemaName, tableName, dbConn, "user");
+        return checkEntryExists(userId, schemaName, tableName, dataSource, "user");
     }
 
     @Override
     public void updateUserColumn(String userId, UserColumns column, Object newValue) throws SQLException {
         if (column == UserColumns.BUDGET_MO) {
-            updateEntryColumn(userId, schemaName, tableName, dbConn, "user", "budget_mo", newValue);
+            updateEntryColumn(userId, schemaName, tableName, dataSource, "user", "budget_mo", newValue);
         } else if (column == UserColumns.DOWN_PAYMENT) {
-            updateEntryColumn(userId, schemaName, tableName, dbConn, "user", "down_payment", newValue);
+            updateEntryColumn(userId, schemaName, tableName, dataSource, "user", "down_payment", newValue);
         }
     }
 }
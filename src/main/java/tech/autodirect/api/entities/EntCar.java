@@ -34,6 +34,23 @@ public class EntCar {
     private double price;
     private double kms;
 
+    /**
+     * Creates an empty EntCar, to be populated with loadFromMap().
+     */
+    public EntCar() {}
+
+    /**
+     * Creates an EntCar from the values of a car entry in the database.
+     */
+    public EntCar(int carId, String brand, String model, int year, double price, double kms) {
+        this.carId = carId;
+        this.brand = brand;
+        this.model = model;
+        this.year = year;
+        this.price = price;
+        this.kms = kms;
+    }
+
     /**
      * Populates EntCar from a Map containing representing a car entry in the database.
      *
@@ -0,0 +1,164 @@
+package tech.autodirect.api.entities;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This entity represents a loan quote returned by the Senso /rate api: the HTTP status of the query and, if the
+ * loan was approved, the terms of the loan.
+ */
+public class EntLoanQuote {
+    // Fields of the body that hold the terms of an approved loan (all numbers, except installments)
+    private static final List<String> NUMBER_FIELDS
+            = List.of("amount", "capitalSum", "interestSum", "sum", "interestRate", "term");
+    private static final String INSTALLMENTS_FIELD = "installments";
+
+    private final int status;
+    private final Map<String, Object> body;
+    private final boolean hasLoanTerms;
+
+    /**
+     * Creates an EntLoanQuote from the status and (parsed JSON) body of a Senso /rate response.
+     */
+    public EntLoanQuote(int status, Map<String, Object> body) {
+        this.status = status;
+        this.body = body == null ? new HashMap<>() : new HashMap<>(body);
+        this.hasLoanTerms = hasLoanTerms(this.body);
+    }
+
+    /**
+     * Returns whether body has every loan term field, with a number (or a string holding one) in each number
+     * field.
+     */
+    private static boolean hasLoanTerms(Map<String, Object> body) {
+        if (body.get(INSTALLMENTS_FIELD) == null) {
+            return false;
+        }
+        for (String name : NUMBER_FIELDS) {
+            Object value = body.get(name);
+            if (value instanceof String) {
+                try {
+                    Double.parseDouble((String) value);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            } else if (!(value instanceof Number)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates an EntLoanQuote from a Map as returned by SensoApiInterface.getLoanOffer().
+     *
+     * @param response : A Map containing the "status" and "body" of a Senso /rate response.
+     */
+    @SuppressWarnings("unchecked")
+    public static EntLoanQuote fromResponse(Map<String, Object> response) {
+        return new EntLoanQuote((int) response.get("status"), (Map<String, Object>) response.get("body"));
+    }
+
+    /**
+     * Returns this quote as a Map in the format returned by SensoApiInterface.getLoanOffer().
+     */
+    public Map<String, Object> toResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", status);
+        response.put("body", new HashMap<>(body));
+        return response;
+    }
+
+    /**
+     * Creates an offer entity for carId with the terms of this quote. The offer is not added to any offers table
+     * (so its offer ID is not set) and is not claimed.
+     *
+     * @throws IllegalStateException if the quote is not approved (so it has no loan terms)
+     */
+    public EntOffer toOffer(int carId) {
+        if (!isApproved()) {
+            throw new IllegalStateException("quote with status " + status + " has no loan terms");
+        }
+        return new EntOffer(
+                0, // offerId, set when the offer is added to an offers table
+                carId,
+                getLoanAmount(),
+                getCapitalSum(),
+                getInterestSum(),
+                getTotalSum(),
+                getInterestRate(),
+                getTermMo(),
+                getInstallments(),
+                false
+        );
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns whether the Senso api approved the loan (only approved quotes have loan terms). A quote with status
+     * 200 but a malformed body (missing or non-numeric loan terms) is not approved, since it can not become an
+     * offer.
+     */
+    public boolean isApproved() {
+        return status == 200 && hasLoanTerms;
+    }
+
+    public double getLoanAmount() {
+        return getNumber("amount");
+    }
+
+    public double getCapitalSum() {
+        return getNumber("capitalSum");
+    }
+
+    public double getInterestSum() {
+        return getNumber("interestSum");
+    }
+
+    public double getTotalSum() {
+        return getNumber("sum");
+    }
+
+    public double getInterestRate() {
+        return getNumber("interestRate");
+    }
+
+    public double getTermMo() {
+        return getNumber("term");
+    }
+
+    public String getInstallments() {
+        return body.get(INSTALLMENTS_FIELD).toString();
+    }
+
+    /**
+     * Returns the value of the body field name as a double (Senso sends some numbers as strings, e.g. "term").
+     */
+    private double getNumber(String name) {
+        Object value = body.get(name);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return Double.parseDouble((String) value);
+    }
+}
@@ -35,6 +35,38 @@ public class EntOffer {
     private String installments;
     private boolean claimed;
 
+    /**
+     * Creates an empty EntOffer, to be populated with loadFromMap().
+     */
+    public EntOffer() {}
+
+    /**
+     * Creates an EntOffer from the values of an offer entry in the database.
+     */
+    public EntOffer(
+            int offerId,
+            int carId,
+            double loanAmount,
+            double capitalSum,
+            double interestSum,
+            double totalSum,
+            double interestRate,
+            double termMo,
+            String installments,
+            boolean claimed
+    ) {
+        this.offerId = offerId;
+        this.carId = carId;
+        this.loanAmount = loanAmount;
+        this.capitalSum = capitalSum;
+        this.interestSum = interestSum;
+        this.totalSum = totalSum;
+        this.interestRate = interestRate;
+        this.termMo = termMo;
+        this.installments = installments;
+        this.claimed = claimed;
+    }
+
     /**
      * Populates EntOffer from a Map containing representing an offer entry in the database.
      *
@@ -30,6 +30,22 @@ public class EntUser {
     private double budgetMo;
     private String offersTable;
 
+    /**
+     * Creates an empty EntUser, to be populated with loadFromMap().
+     */
+    public EntUser() {}
+
+    /**
+     * Creates an EntUser from the values of a user entry in the database.
+     */
+    public EntUser(String userId, int creditScore, double downPayment, double budgetMo, String offersTable) {
+        this.userId = userId;
+        this.creditScore = creditScore;
+        this.downPayment = downPayment;
+        this.budgetMo = budgetMo;
+        this.offersTable = offersTable;
+    }
+
     /**
      * Populates EntUser from a Map containing representing a user entry in the database.
      *
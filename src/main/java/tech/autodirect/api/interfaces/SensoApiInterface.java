@@ -1,7 +1,11 @@
 package tech.autodirect.api.interfaces;
 
+import tech.autodirect.api.entities.EntLoanQuote;
+
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Defines the behaviour of class that connect to and queries the SensoApi.
@@ -24,4 +28,70 @@ public interface SensoApiInterface {
             String listPrice,
             String downPayment
     ) throws IOException, InterruptedException;
+
+    /**
+     * Query the Senso /rate Api to get a loan offer, without waiting for the response.
+     *
+     * The default implementation calls getLoanOffer() and so waits for the response on the calling thread;
+     * implementations that can send requests without blocking a thread override it.
+     *
+     * @return A future that completes with the loan quote, or with the error that the query failed with.
+     */
+    default CompletableFuture<EntLoanQuote> getLoanOfferAsync(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) {
+        try {
+            return CompletableFuture.completedFuture(EntLoanQuote.fromResponse(getLoanOffer(
+                    loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                    vehicleYear, vehicleKms, listPrice, downPayment
+            )));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Return whether queries are currently sent to the Senso /rate Api. While this is false (e.g. while a circuit
+     * breaker is open), queries fail at once with a SensoUnavailableException, so callers that would otherwise
+     * change stored state before querying can fail early instead.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Wait for a quote returned by getLoanOfferAsync(), for callers that need the quote before they can go on.
+     * Throws the error the query failed with (if the wait is interrupted, the query is cancelled).
+     */
+    static EntLoanQuote awaitQuote(CompletableFuture<EntLoanQuote> quote) throws IOException, InterruptedException {
+        try {
+            return quote.get();
+        } catch (InterruptedException e) {
+            quote.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
 }
@@ -16,7 +16,10 @@ See the License for the specific language governing permissions and
 limitations under the License.
 */
 
+import tech.autodirect.api.entities.EntCar;
+
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +39,29 @@ public interface TableCarsInterface {
      */
     Map<String, Object> getCarById(int carId) throws SQLException;
 
+    /**
+     * Same as getAllCars(), but gives the cars as entities.
+     */
+    default List<EntCar> getAllCarEntities() throws SQLException {
+        List<Map<String, Object>> carMaps = getAllCars();
+        List<EntCar> cars = new ArrayList<>(carMaps.size());
+        for (Map<String, Object> carMap : carMaps) {
+            EntCar car = new EntCar();
+            car.loadFromMap(carMap);
+            cars.add(car);
+        }
+        return cars;
+    }
+
+    /**
+     * Same as getCarById(), but gives the car as an entity.
+     */
+    default EntCar getCarEntityById(int carId) throws SQLException {
+        EntCar car = new EntCar();
+        car.loadFromMap(getCarById(carId));
+        return car;
+    }
+
     /**
      * Add a car to the database and return the id.
      */
@@ -47,6 +73,12 @@ public interface TableCarsInterface {
             double kms
     ) throws SQLException;
 
+    /**
+     * Add cars to the database in a single batch and return their ids, in the same order as cars.
+     * The carId of each car is ignored.
+     */
+    List<Integer> addCars(List<EntCar> cars) throws SQLException;
+
     /**
      * Return whether car exists in database.
      */
@@ -16,41 +16,44 @@ See the License for the specific language governing permissions and
 limitations under the License.
 */
 
+import tech.autodirect.api.entities.EntOffer;
+
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
 /**
- * TableOffersInterface defines the behaviour of classes that interact with an offers table for a specific user.
- * setUser() must be called before any other method.
+ * TableOffersInterface defines the behaviour of classes that interact with the offers tables of users.
+ * Every method takes the user whose offers it works on, so implementations hold no per-user state and a single
+ * instance can be shared by concurrent requests. createTable() must be called for a user before any other method
+ * is called for that user.
  */
 public interface TableOffersInterface {
+    // Start of every offers table name, followed by the lower-cased userId (see createTableName())
+    String TABLE_NAME_PREFIX = "offers_";
+
     enum OfferColumns {
         LOAN_AMOUNT, CAPITAL_SUM, INTEREST_SUM, TOTAL_SUM, INTEREST_RATE, TERM_MO, INSTALLMENTS
     }
 
     /**
-     * Sets this object to refer to userId's offers table (creates offers table if it does not exist)
+     * Creates userId's offers table if it does not exist.
      *
-     * @param userId : the user string that uniquely identifies a user, same as "userId" in the public.users table
-     * @return : the name of the newly created offers table, follows TableOffersInterface.createTableName(userId).
-     */
-    String setUser(String userId) throws SQLException;
-
-    /**
-     * Public getter for the "tableName" property.
+     * In all methods of this interface, userId is the user string that uniquely identifies a user, same as "userId"
+     * in the public.users table.
      *
      * @return : the name of the offers table, follows TableOffersInterface.createTableName(userId).
      */
-    String getTableName();
+    String createTable(String userId) throws SQLException;
 
     /**
-     * Add a new offer in the current offers table.
+     * Add a new offer in userId's offers table.
      *
      * @return : integer representing the offer ID of the newly inserted offer row
      */
     int addOffer(
+            String userId,
             int carId,
             double loanAmount,
             double capitalSum,
@@ -62,17 +65,25 @@ public interface TableOffersInterface {
             boolean claimed
     ) throws SQLException;
 
+    /**
+     * Add a batch of new offers in userId's offers table (the offer IDs of the given offers are ignored).
+     *
+     * @return : offer entities for the newly inserted offer rows (in the same order as offers), holding their
+     *           new offer IDs and the values as they are stored in the offers table
+     */
+    List<EntOffer> addOffers(String userId, List<EntOffer> offers) throws SQLException;
+
     /**
      * Remove an offer row given an offer ID.
      *
      * @param offerId : ID of the offer to be removed
      */
-    void removeOfferByOfferId(int offerId) throws SQLException;
+    void removeOfferByOfferId(String userId, int offerId) throws SQLException;
 
     /**
-     * Remove all offers in the current offers table.
+     * Remove all offers in userId's offers table.
      */
-    void removeAllOffers() throws SQLException;
+    void removeAllOffers(String userId) throws SQLException;
 
     /**
      * Retrieve an offer in Map format given an offer ID.
@@ -80,42 +91,61 @@ public interface TableOffersInterface {
      * @param offerId : ID of the offer to be retrieved
      * @return A Map representing an offer entry in the database.
      */
-    Map<String, Object> getOfferByOfferId(int offerId) throws SQLException;
+    Map<String, Object> getOfferByOfferId(String userId, int offerId) throws SQLException;
+
+    /**
+     * Same as getOfferByOfferId(), but gives the offer as an entity.
+     */
+    default EntOffer getOfferEntityByOfferId(String userId, int offerId) throws SQLException {
+        EntOffer offer = new EntOffer();
+        offer.loadFromMap(getOfferByOfferId(userId, offerId));
+        return offer;
+    }
 
     /**
-     * Retrieve all offers in the current offers table.
+     * Retrieve all offers in userId's offers table.
      *
      * @return A List of Maps where each Map is a single offer entry in the database.
      */
-    List<Map<String, Object>> getAllOffers() throws SQLException;
+    List<Map<String, Object>> getAllOffers(String userId) throws SQLException;
 
     /**
-     * Retrieve all offers in the current offers table whose "claimed" field is set to
+     * Retrieve all offers in userId's offers table whose "claimed" field is set to
      * true.
      *
      * @return A List of Maps where each Map is a single offer entry in the database.
      */
-    List<Map<String, Object>> getClaimedOffers() throws SQLException;
+    List<Map<String, Object>> getClaimedOffers(String userId) throws SQLException;
 
     /**
-     * Set the "claimed" field of a given offer to true.
+     * Retrieve all offers in userId's offers table, each joined with its car entry from the cars table,
+     * in a single query. Offers whose car no longer exists are left out.
      *
-     * @param offer_id : ID of the offer to be marked as claimed
+     * @return A List of Maps where each Map holds the columns of an offer entry and of its car entry in the database.
      */
-    void markOfferClaimed(int offer_id) throws SQLException;
+    List<Map<String, Object>> getAllOffersWithCars(String userId) throws SQLException;
 
     /**
-     * Set the "claimed" field of a given offer to false.
+     * Retrieve all offers in userId's offers table whose "claimed" field is set to true, each joined with
+     * its car entry from the cars table, in a single query. Offers whose car no longer exists are left out.
      *
-     * @param offer_id : ID of the offer to be marked as unclaimed
+     * @return A List of Maps where each Map holds the columns of an offer entry and of its car entry in the database.
      */
-    void markOfferUnclaimed(int offer_id) throws SQLException;
+    List<Map<String, Object>> getClaimedOffersWithCars(String userId) throws SQLException;
 
     /**
-     * Delete the current offers table given by the "tableName" property.
+     * Set the "claimed" field of a given offer to true.
      *
+     * @param offer_id : ID of the offer to be marked as claimed
      */
-    void dropTable() throws SQLException;
+    void markOfferClaimed(String userId, int offer_id) throws SQLException;
+
+    /**
+     * Set the "claimed" field of a given offer to false.
+     *
+     * @param offer_id : ID of the offer to be marked as unclaimed
+     */
+    void markOfferUnclaimed(String userId, int offer_id) throws SQLException;
 
     /**
      * Delete the offers table given by tableName.
@@ -132,14 +162,9 @@ public interface TableOffersInterface {
      * process for an offers table incorrect. Anyway, this is important, please use it!
      */
     static String createTableName(String userId) throws SQLException {
-        return "offers_" + userId.toLowerCase(Locale.ROOT);
+        return TABLE_NAME_PREFIX + userId.toLowerCase(Locale.ROOT);
     }
 
-    /**
-     * Return whether the current offers table given by the "tableName" property exists.
-     */
-    boolean checkTableExists() throws SQLException;
-
     /**
      * Return whether the offers table given by the tableName exists.
      */
@@ -148,10 +173,15 @@ public interface TableOffersInterface {
     /**
      * Return whether a specific offer exists (by offerId).
      */
-    boolean checkOfferExists(int offerId) throws SQLException;
+    boolean checkOfferExists(String userId, int offerId) throws SQLException;
+
+    /**
+     * Return whether userId's offers table holds any offers (including offers whose car no longer exists).
+     */
+    boolean checkHasOffers(String userId) throws SQLException;
 
     /**
      * Update the column's value in the offer corresponding to offerId.
      */
-    void updateOfferColumn(int offerId, OfferColumns column, Object newValue) throws SQLException;
+    void updateOfferColumn(String userId, int offerId, OfferColumns column, Object newValue) throws SQLException;
 }
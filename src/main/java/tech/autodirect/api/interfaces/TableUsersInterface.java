@@ -16,6 +16,8 @@ See the License for the specific language governing permissions and
 limitations under the License.
 */
 
+import tech.autodirect.api.entities.EntUser;
+
 import java.sql.SQLException;
 import java.util.Map;
 
@@ -41,6 +43,15 @@ public interface TableUsersInterface {
      */
     Map<String, Object> getUserById(String userId) throws SQLException;
 
+    /**
+     * Same as getUserById(), but gives the user as an entity.
+     */
+    default EntUser getUserEntityById(String userId) throws SQLException {
+        EntUser user = new EntUser();
+        user.loadFromMap(getUserById(userId));
+        return user;
+    }
+
     /**
      * Remove a specific user entry by the user ID.
      */
@@ -37,7 +37,7 @@ public class SvcClaimOffer {
             );
         }
 
-        tableOffers.setUser(userId);
-        tableOffers.markOfferClaimed(Integer.parseInt(offerId));
+        tableOffers.createTable(userId);
+        tableOffers.markOfferClaimed(userId, Integer.parseInt(offerId));
     }
 }
@@ -20,7 +20,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import tech.autodirect.api.entities.EntCar;
 import tech.autodirect.api.entities.EntOffer;
-import tech.autodirect.api.interfaces.TableCarsInterface;
 import tech.autodirect.api.interfaces.TableOffersInterface;
 import tech.autodirect.api.utils.MergeCarAndOffer;
 
@@ -38,7 +37,6 @@ public class SvcGetClaimedOffers {
      * Get all claimed offers for the specified user.
      */
     public List<Map<String, Object>> getClaimedOffers(
-            TableCarsInterface tableCars,
             TableOffersInterface tableOffers,
             String userId
     ) throws SQLException, ResponseStatusException {
@@ -48,20 +46,19 @@ public class SvcGetClaimedOffers {
             );
         }
 
-        // Set user in offers table and get all offers
-        tableOffers.setUser(userId);
-        List<Map<String, Object>> offersList = tableOffers.getClaimedOffers();
+        // Make sure the user has an offers table and get all claimed offers along with their cars (in a single query)
+        tableOffers.createTable(userId);
+        List<Map<String, Object>> offersWithCarsList = tableOffers.getClaimedOffersWithCars(userId);
 
         List<Map<String, Object>> carAndOfferInfoMaps = new ArrayList<>();
-        for (Map<String, Object> offerMap : offersList) {
+        for (Map<String, Object> offerWithCarMap : offersWithCarsList) {
             // Get offer entity
             EntOffer offer = new EntOffer();
-            offer.loadFromMap(offerMap);
+            offer.loadFromMap(offerWithCarMap);
 
-            // Get car entity
-            Map<String, Object> carMap = tableCars.getCarById(offer.getCarId());
+            // Get car entity (the joined map holds the car's columns as well)
             EntCar car = new EntCar();
-            car.loadFromMap(carMap);
+            car.loadFromMap(offerWithCarMap);
 
             // Merge car and offer entities into a map that has both car and offer info to return to frontend
             Map<String, Object> carAndOfferInfo = MergeCarAndOffer.mergeCarAndOffer(car, offer);
@@ -47,18 +47,14 @@ public class SvcGetOfferDetails {
             );
         }
 
-        // Set the user in the offers table
-        tableOffers.setUser(userId);
+        // Make sure the user has an offers table
+        tableOffers.createTable(userId);
 
         // Get offer entity
-        Map<String, Object> offerMap = tableOffers.getOfferByOfferId(Integer.parseInt(offerId));
-        EntOffer offer = new EntOffer();
-        offer.loadFromMap(offerMap);
+        EntOffer offer = tableOffers.getOfferEntityByOfferId(userId, Integer.parseInt(offerId));
 
         // Get car entity
-        Map<String, Object> carMap = tableCars.getCarById(offer.getCarId());
-        EntCar car = new EntCar();
-        car.loadFromMap(carMap);
+        EntCar car = tableCars.getCarEntityById(offer.getCarId());
 
         // Merge car and offer entities into a map that has both car and offer info to return to frontend
         return MergeCarAndOffer.mergeCarAndOffer(car, offer);
@@ -19,43 +19,78 @@ limitations under the License.
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import tech.autodirect.api.entities.EntCar;
+import tech.autodirect.api.entities.EntLoanQuote;
 import tech.autodirect.api.entities.EntOffer;
 import tech.autodirect.api.entities.EntUser;
 import tech.autodirect.api.interfaces.SensoApiInterface;
 import tech.autodirect.api.interfaces.TableCarsInterface;
 import tech.autodirect.api.interfaces.TableOffersInterface;
 import tech.autodirect.api.interfaces.TableUsersInterface;
+import tech.autodirect.api.upstream.SensoUnavailableException;
 import tech.autodirect.api.utils.MergeCarAndOffer;
 import tech.autodirect.api.utils.ParseChecker;
+import tech.autodirect.api.utils.SortCars;
 import tech.autodirect.api.utils.UnitConv;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 
 /**
  * Responsible for searching through all cars given a user's ID and search settings.
  */
 public class SvcSearch {
+    // Most approved offers that are added to the offers table in a single batch
+    private static final int MAX_OFFERS_PER_BATCH = 100;
+    // Message of the 503 ERROR thrown when a search needs the senso /rate api while it is unavailable
+    private static final String SENSO_UNAVAILABLE_MESSAGE = "the Senso API is unavailable, please try again later";
     private final TableCarsInterface tableCars;
     private final TableUsersInterface tableUsers;
     private final TableOffersInterface tableOffers;
     private final SensoApiInterface sensoApi;
+    // Most senso /rate queries of a single search that are waited for at once
+    private final int maxQueriesInFlight;
     private final List<String> valuesOfSortBy
             = Arrays.asList("price", "payment_mo", "interest_rate", "total_sum", "term_mo");
     private final List<String> valuesOfSortAsc = Arrays.asList("true", "false");
 
+    /**
+     * Create a SvcSearch that queries the senso /rate api one car at a time.
+     */
     public SvcSearch(
         TableCarsInterface tableCars,
         TableUsersInterface tableUsers,
         TableOffersInterface tableOffers,
         SensoApiInterface sensoApi
     ) {
+        this(tableCars, tableUsers, tableOffers, sensoApi, 1);
+    }
+
+    /**
+     * Create a SvcSearch that sends up to maxQueriesInFlight senso /rate queries of a search at once, using
+     * SensoApiInterface.getLoanOfferAsync() (so no thread is held per query while waiting for the Senso API).
+     */
+    public SvcSearch(
+        TableCarsInterface tableCars,
+        TableUsersInterface tableUsers,
+        TableOffersInterface tableOffers,
+        SensoApiInterface sensoApi,
+        int maxQueriesInFlight
+    ) {
+        if (maxQueriesInFlight < 1) {
+            throw new IllegalArgumentException("maxQueriesInFlight must be positive");
+        }
         this.tableCars = tableCars;
         this.tableUsers = tableUsers;
         this.tableOffers = tableOffers;
         this.sensoApi = sensoApi;
+        this.maxQueriesInFlight = maxQueriesInFlight;
     }
 
     /**
@@ -72,20 +107,92 @@ public class SvcSearch {
         String sortBy,
         String sortAscString
     ) throws SQLException, IOException, InterruptedException, ResponseStatusException {
-        // Check good sort params. If yes, convert sortAscString to boolean sortAsc.
-        checkGoodSortParams(sortBy, sortAscString);
+        return search(userId, downPaymentString, budgetMoString, sortBy, sortAscString, null, null);
+    }
+
+    /**
+     * Perform a car search (see above) and only return one page of the sorted results.
+     *
+     * pageString is the index of the page to return, starting at "0", and pageSizeString is the number of results
+     * per page. If pageString is absent (null, empty or "null"), the first page is returned. If pageSizeString is
+     * absent, all results are returned on a single page.
+     */
+    public List<Map<String, Object>> search(
+        String userId,
+        String downPaymentString,
+        String budgetMoString,
+        String sortBy,
+        String sortAscString,
+        String pageString,
+        String pageSizeString
+    ) throws SQLException, IOException, InterruptedException, ResponseStatusException {
+        return search(
+                userId, downPaymentString, budgetMoString, sortBy, sortAscString, pageString, pageSizeString,
+                result -> {}
+        );
+    }
+
+    /**
+     * Perform a car search (see above), passing each car and offer map to onResult as soon as its loan offer
+     * is approved by the senso /rate api (in the order in which the approvals come in), before returning the
+     * sorted results.
+     *
+     * onResult is only called when searching with new search params, since that is the only kind of search
+     * which waits for the senso /rate api. onResult is always called on the thread that called this method.
+     * If onResult throws (e.g. because the results can no longer be sent), the search stops, the offers added
+     * so far are removed and the exception is thrown.
+     */
+    public List<Map<String, Object>> search(
+        String userId,
+        String downPaymentString,
+        String budgetMoString,
+        String sortBy,
+        String sortAscString,
+        String pageString,
+        String pageSizeString,
+        Consumer<Map<String, Object>> onResult
+    ) throws SQLException, IOException, InterruptedException, ResponseStatusException {
+        // Check good search params. If yes, convert them (using the defaults for absent page params).
+        checkGoodSearchParams(
+                userId, downPaymentString, budgetMoString, sortBy, sortAscString, pageString, pageSizeString
+        );
         boolean sortAsc = Boolean.parseBoolean(sortAscString);
+        int page = isAbsent(pageString) ? 0 : Integer.parseInt(pageString);
+        int pageSize = isAbsent(pageSizeString) ? Integer.MAX_VALUE : Integer.parseInt(pageSizeString);
 
-        if (userId.equals("") || userId.equals("null")) {
+        List<Map<String, Object>> results;
+        if (isAbsent(userId)) {
             // If no userId, run pre-login search (return all cars)
-            return searchAllCars(sortBy, sortAsc);
+            results = searchAllCars(sortBy);
         } else {
             // User is logged in and search params are valid. So, only return cars which have offers for this user.
-            // However, check good downPaymentString and budgetMoString params beforehand.
-            checkGoodMoneyParams(downPaymentString, budgetMoString);
             double downPayment = Double.parseDouble(downPaymentString);
             double budgetMo = Double.parseDouble(budgetMoString);
-            return searchOnlyCarsWithOffer(userId, downPayment, budgetMo, sortBy, sortAsc);
+            results = searchOnlyCarsWithOffer(userId, downPayment, budgetMo, onResult);
+        }
+
+        // Return the requested page of results sorted according to the sort settings
+        return sortPage(results, sortBy, sortAsc, page, pageSize);
+    }
+
+    /**
+     * Check that all search params are valid, without running the search. Throw descriptive 400 ERROR if not.
+     *
+     * The money params are only checked for post-login searches (userId is not empty string or "null").
+     */
+    public void checkGoodSearchParams(
+            String userId,
+            String downPaymentString,
+            String budgetMoString,
+            String sortBy,
+            String sortAscString,
+            String pageString,
+            String pageSizeString
+    ) throws ResponseStatusException {
+        checkGoodSortParams(sortBy, sortAscString);
+        checkGoodPageParams(pageString, pageSizeString);
+        if (!isAbsent(userId)) {
+            checkGoodMoneyParams(downPaymentString, budgetMoString);
         }
     }
 
@@ -127,13 +234,61 @@ public class SvcSearch {
         }
     }
 
+    /**
+     * Check that page and pageSize search params are valid (when present). Throw descriptive 400 ERROR if not.
+     */
+    public void checkGoodPageParams(
+            String pageString,
+            String pageSizeString
+    ) throws ResponseStatusException {
+        if (!isAbsent(pageString)
+                && (!ParseChecker.isParsableToInt(pageString) || Integer.parseInt(pageString) < 0)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "invalid page value, must be an int >= 0"
+            );
+        }
+        if (!isAbsent(pageSizeString)
+                && (!ParseChecker.isParsableToInt(pageSizeString) || Integer.parseInt(pageSizeString) < 1)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "invalid pageSize value, must be an int >= 1"
+            );
+        }
+    }
+
+    /**
+     * Return whether an optional search param was not given (null, empty string or "null").
+     */
+    private boolean isAbsent(String param) {
+        return param == null || param.equals("") || param.equals("null");
+    }
+
+    /**
+     * Return the page-th page (of size pageSize) of maps sorted by sortBy. Only the maps up to the end of the
+     * requested page are sorted, so the work done scales with the requested page rather than with all maps.
+     */
+    private List<Map<String, Object>> sortPage(
+            List<Map<String, Object>> maps,
+            String sortBy,
+            boolean sortAsc,
+            int page,
+            int pageSize
+    ) {
+        long from = (long) page * pageSize;
+        if (from >= maps.size()) {
+            return new ArrayList<>();
+        }
+        int to = (int) Math.min(from + pageSize, maps.size());
+
+        List<Map<String, Object>> top = SortCars.topByKey(maps, sortBy, sortAsc, to);
+        return from == 0 ? top : new ArrayList<>(top.subList((int) from, to));
+    }
+
     /**
      * Get a list of all cars from the database. Can only sort by car "price"
      * since user is not logged in (no user info).
      */
     private List<Map<String, Object>> searchAllCars(
-        String sortBy,
-        boolean sortAsc
+        String sortBy
     ) throws SQLException {
         if (!sortBy.equals("price")) {
             throw new ResponseStatusException(
@@ -152,7 +307,7 @@ public class SvcSearch {
         }
 
 
-        return sortCars(carsMapsAll, sortBy, sortAsc);
+        return carsMapsAll;
     }
 
     /**
@@ -162,45 +317,48 @@ public class SvcSearch {
         String userId,
         double downPayment,
         double budgetMo,
-        String sortBy,
-        boolean sortAsc
+        Consumer<Map<String, Object>> onResult
     ) throws SQLException, IOException, InterruptedException, ResponseStatusException {
         // Get user information from database and populate user entity with user info
         Map<String, Object> userEntry = tableUsers.getUserById(userId);
         EntUser user = new EntUser();
         user.loadFromMap(userEntry);
 
-        // Set offers table to user
-        tableOffers.setUser(userId);
+        // Make sure the user has an offers table
+        tableOffers.createTable(userId);
 
         // If user's search params are different to previous search (what's in the database), update user info,
         // reset their offers table according to this information, compute all loan offers,
         // add to offer table, and return maps that contain car and offers information.
         //
-        // Note that we also need to check that the offers table is non-empty since upon first search for the user,
-        // search params are the same (so !newSearchParams) but offers table is empty. This is bad since
-        // searchCarsWithOfferOldParams() gets existing offers, but none would exist in this case.
-        // So, for the first search for a user, we need to call searchCarsWithOfferNewParams, and so we do an
-        // additional OR emptyOffers check.
-        //
-        //
         // If user's params are the same as previous search, get all return maps that contain
         // car and offers information, but just get the offers as they exist in the table (do not reset it
         // or re-call senso Api to check whether loan offers are approved).
+        //
+        // Note that we also need to check that the offers table is non-empty since upon first search for the user,
+        // search params are the same (so !newSearchParams) but offers table is empty. So, for the first search for
+        // a user, we need to call searchCarsWithOfferNewParams. This is checked on the offers table alone: offers
+        // whose car was removed from the catalog are left out of the search results, but still count as offers,
+        // so that they (and the claimed offers among them) are not reset just because their cars are gone.
         boolean newSearchParams = user.getDownPayment() != downPayment || user.getBudgetMo() != budgetMo;
-        boolean emptyOffers = tableOffers.getAllOffers().size() == 0;
-        if (newSearchParams || emptyOffers) {
-            // New search params, so update user information in users table
-            tableUsers.updateUserColumn(userId, TableUsersInterface.UserColumns.BUDGET_MO, budgetMo);
-            tableUsers.updateUserColumn(userId, TableUsersInterface.UserColumns.DOWN_PAYMENT, downPayment);
-
-            // User info has been updated, reload into user, so you use updated version
-            user.loadFromMap(userEntry);
+        if (!newSearchParams && tableOffers.checkHasOffers(userId)) {
+            return searchCarsWithOfferOldParams(user);
+        }
 
-            return searchCarsWithOfferNewParams(user, sortBy, sortAsc);
-        } else {
-            return searchCarsWithOfferOldParams(user, sortBy, sortAsc);
+        // The offers are about to be reset, so fail before touching them if the senso /rate api is not being queried
+        // right now (e.g. its circuit breaker is open), rather than replacing them with no offers at all
+        if (!sensoApi.isAvailable()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, SENSO_UNAVAILABLE_MESSAGE);
         }
+
+        // New search params (or no offers yet), so update user information in users table
+        tableUsers.updateUserColumn(userId, TableUsersInterface.UserColumns.BUDGET_MO, budgetMo);
+        tableUsers.updateUserColumn(userId, TableUsersInterface.UserColumns.DOWN_PAYMENT, downPayment);
+
+        // User info has been updated, reload into user, so you use updated version
+        user.loadFromMap(userEntry);
+
+        return searchCarsWithOfferNewParams(user, onResult);
     }
 
     /**
@@ -214,43 +372,108 @@ public class SvcSearch {
      *
      *  As a result of this call, the user's loan offers 'cart' is emptied (their offers table) as it is no longer valid
      *  given their new search params.
+     *
+     *  Each car and offer map is also passed to onResult as soon as the offer has been approved and added.
+     *
+     *  If a query is turned away because the Senso API is unavailable (SensoUnavailableException), no more
+     *  queries are started, the offers added so far are removed (so that they are not mistaken for the results
+     *  of a complete search) and a 503 ERROR is thrown.
      */
     private List<Map<String, Object>> searchCarsWithOfferNewParams(
             EntUser user,
-            String sortBy,
-            boolean sortAsc
-    ) throws SQLException, IOException, InterruptedException {
-        // Set user in offers table object
-        tableOffers.setUser(user.getUserId());
-
+            Consumer<Map<String, Object>> onResult
+    ) throws SQLException, IOException, InterruptedException, ResponseStatusException {
         // Clear the user's current loan offers table (new params means new loan offers)
-        tableOffers.removeAllOffers();
+        tableOffers.removeAllOffers(user.getUserId());
+
+        // Get list of all cars as car entities
+        List<EntCar> cars = this.tableCars.getAllCarEntities();
+
+        // Start the senso /rate api queries for the first maxQueriesInFlight cars, they run in parallel without
+        // holding a thread each. Whenever a query finishes, the query for the next car is started (see below).
+        // The index of each query is put in finishedQueries as soon as it finishes.
+        List<CompletableFuture<EntLoanQuote>> queries = new ArrayList<>(Collections.nCopies(cars.size(), null));
+        BlockingQueue<Integer> finishedQueries = new LinkedBlockingQueue<>();
+        int startedQueries = 0;
+        while (startedQueries < Math.min(maxQueriesInFlight, cars.size())) {
+            startLoanQuery(user, cars, startedQueries, queries, finishedQueries);
+            startedQueries++;
+        }
+
+        // Handle the queries in the order in which they finish, so that approved offers are added and passed to
+        // onResult as early as possible. carAndOfferInfoMapsByCar.get(i) is the car-offer information map for
+        // cars.get(i), or null if no loan offer was approved for it.
+        //
+        // Approved offers are added to the offers table in batches: an offer waits in pendingOffers (with the index
+        // of its car in pendingCarIndices) until no other query has finished yet or the batch is full, so that
+        // offers approved at about the same time share a single round trip to the database.
+        List<Map<String, Object>> carAndOfferInfoMapsByCar = new ArrayList<>(Collections.nCopies(cars.size(), null));
+        List<EntOffer> pendingOffers = new ArrayList<>();
+        List<Integer> pendingCarIndices = new ArrayList<>();
+        SensoUnavailableException unavailable = null;
+        for (int finished = 0; finished < startedQueries; finished++) {
+            int i = finishedQueries.take();
+            EntCar car = cars.get(i);
+
+            // Get the result of this query (which already finished). If it failed, treat the car as having no
+            // offer. Otherwise, get the offer for this car from the senso /rate api quote (null if not approved).
+            EntLoanQuote quote;
+            try {
+                quote = awaitLoanOffer(queries.get(i));
+            } catch (SensoUnavailableException e) {
+                // Only wait for the queries that were already started
+                unavailable = e;
+                continue;
+            }
+            if (unavailable == null && startedQueries < cars.size()) {
+                startLoanQuery(user, cars, startedQueries, queries, finishedQueries);
+                startedQueries++;
+            }
+            EntOffer offer = quote == null || !quote.isApproved() ? null : quote.toOffer(car.getCarId());
+            if (offer != null) {
+                pendingOffers.add(offer);
+                pendingCarIndices.add(i);
+            }
 
-        // Get list of all cars
-        List<Map<String, Object>> carMapsAll = this.tableCars.getAllCars();
+            if (unavailable == null && !pendingOffers.isEmpty()
+                    && (finishedQueries.isEmpty() || pendingOffers.size() >= MAX_OFFERS_PER_BATCH)) {
+                // Add the pending offers to the offers table, then merge each added offer with its car
+                List<EntOffer> addedOffers = tableOffers.addOffers(user.getUserId(), pendingOffers);
+                for (int j = 0; j < addedOffers.size(); j++) {
+                    int carIndex = pendingCarIndices.get(j);
+                    Map<String, Object> carAndOfferInfoMap
+                            = MergeCarAndOffer.mergeCarAndOffer(cars.get(carIndex), addedOffers.get(j));
+                    carAndOfferInfoMapsByCar.set(carIndex, carAndOfferInfoMap);
+                    try {
+                        onResult.accept(carAndOfferInfoMap);
+                    } catch (RuntimeException e) {
+                        // Only part of the offers were added, so they must not be taken for a complete search
+                        tableOffers.removeAllOffers(user.getUserId());
+                        throw e;
+                    }
+                }
+                pendingOffers.clear();
+                pendingCarIndices.clear();
+            }
+        }
+
+        if (unavailable != null) {
+            // Logged once per search (SensoUnavailableException has no stack trace), rather than once per car
+            unavailable.printStackTrace();
+            tableOffers.removeAllOffers(user.getUserId());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, SENSO_UNAVAILABLE_MESSAGE);
+        }
 
         // Fill carAndOfferInfoMaps with maps containing car-offer information for cars for which a loan offer
-        // was pre-approved by the senso /rate Api.
+        // was pre-approved by the senso /rate Api, in the same order as cars (no matter in which order the
+        // queries finished), so that the results of a search are deterministic.
         List<Map<String, Object>> carAndOfferInfoMaps = new ArrayList<>();
-        for (Map<String, Object> carMap : carMapsAll) {
-            // Create a car entity for this carMap
-            EntCar car = new EntCar();
-            car.loadFromMap(carMap);
-
-            // Get the offer for this car (calls the senso /rate api to get offer info)
-            EntOffer offer = createOfferFromUserAndCar(user, car);
-
-            // If offer is not null, an offer was approved, merge car and offer entities into a single map
-            // and add to carAndOfferInfoMaps. Otherwise, if null, no offer was approved and move on to the next
-            // carMap in the loop.
-            if (offer != null) {
-                // Merge car and offer to create a carAndOfferInfoMap
-                Map<String, Object> carAndOfferInfoMap = MergeCarAndOffer.mergeCarAndOffer(car, offer);
+        for (Map<String, Object> carAndOfferInfoMap : carAndOfferInfoMapsByCar) {
+            if (carAndOfferInfoMap != null) {
                 carAndOfferInfoMaps.add(carAndOfferInfoMap);
             }
         }
-        // Return a sorted version of carAndOfferInfoMaps according to the sort settings
-        return sortCars(carAndOfferInfoMaps, sortBy, sortAsc);
+        return carAndOfferInfoMaps;
     }
 
     /**
@@ -260,49 +483,57 @@ public class SvcSearch {
      * in a previous search query with the same search params).
      */
     private List<Map<String, Object>> searchCarsWithOfferOldParams(
-            EntUser user,
-            String sortBy,
-            boolean sortAsc
+            EntUser user
     ) throws SQLException {
-        // Set user in offers table object
-        tableOffers.setUser(user.getUserId());
-
-        // Get list of all offers in offers table
-        // (assumes existence of offers since params have been previously searched)
-        List<Map<String, Object>> offerMapsAll = tableOffers.getAllOffers();
+        // Get list of all offers in offers table along with their cars, in a single query
+        List<Map<String, Object>> offerWithCarMapsAll = tableOffers.getAllOffersWithCars(user.getUserId());
 
         // Fill carAndOfferInfoMaps with maps containing car-offer information for offers in the offers table
         List<Map<String, Object>> carAndOfferInfoMaps = new ArrayList<>();
-        for (Map<String, Object> offerMap : offerMapsAll) {
+        for (Map<String, Object> offerWithCarMap : offerWithCarMapsAll) {
             EntOffer offer = new EntOffer();
-            offer.loadFromMap(offerMap);
+            offer.loadFromMap(offerWithCarMap);
 
-            Map<String, Object> carMap = tableCars.getCarById(offer.getCarId());
+            // The joined map holds the car's columns as well
             EntCar car = new EntCar();
-            car.loadFromMap(carMap);
+            car.loadFromMap(offerWithCarMap);
 
             // Merge car and offer to create a carAndOfferInfoMap
             Map<String, Object> carAndOfferInfoMap = MergeCarAndOffer.mergeCarAndOffer(car, offer);
             carAndOfferInfoMaps.add(carAndOfferInfoMap);
         }
-        // Return a sorted version of carAndOfferInfoMaps according to the sort settings
-        return sortCars(carAndOfferInfoMaps, sortBy, sortAsc);
+        return carAndOfferInfoMaps;
     }
 
     /**
-     * Creates an offer in the users offers table if loan was approved by the senso /rate api and
-     * returns the corresponding offer entity.  If no loan offer was approved by the senso api,
-     * returns null (and nothing is added to the loan offers table).
+     * Start the senso /rate api query for a loan offer for user on cars.get(carIndex), store it in
+     * queries.get(carIndex) and put carIndex in finishedQueries as soon as it finishes.
      */
-    private EntOffer createOfferFromUserAndCar (
+    private void startLoanQuery(
             EntUser user,
-            EntCar car
-    ) throws IOException, InterruptedException, SQLException {
-        // Set the tableOffers user (just in case it was not set before)
-        tableOffers.setUser(user.getUserId());
+            List<EntCar> cars,
+            int carIndex,
+            List<CompletableFuture<EntLoanQuote>> queries,
+            BlockingQueue<Integer> finishedQueries
+    ) {
+        CompletableFuture<EntLoanQuote> query;
+        try {
+            query = queryLoanOffer(user, cars.get(carIndex));
+        } catch (RuntimeException e) {
+            query = CompletableFuture.failedFuture(e);
+        }
+        queries.set(carIndex, query);
+        query.whenComplete((quote, error) -> finishedQueries.add(carIndex));
+    }
 
-        // Query senso Api for this car and user information
-        Map<String, Object> queryResult = this.sensoApi.getLoanOffer(
+    /**
+     * Query the senso /rate api for a loan offer for user on car.
+     */
+    private CompletableFuture<EntLoanQuote> queryLoanOffer(
+            EntUser user,
+            EntCar car
+    ) {
+        return this.sensoApi.getLoanOfferAsync(
                 Double.toString(car.getPrice()), // loanAmount
                 Integer.toString(user.getCreditScore()), // creditScore
                 Double.toString(user.getBudgetMo()), // budget
@@ -313,115 +544,24 @@ public class SvcSearch {
                 Double.toString(car.getPrice()), // listPrice
                 Double.toString(user.getDownPayment()) // downpayment
         );
-
-        // If api gave successful loan preapproval, add offer to user's offers table and return the corresponding
-        // offer entity. Otherwise, there was no loan offer for this car and the current search params, so return null.
-        if (queryResult.get("status").equals(200)) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> queryBody = (Map<String, Object>) queryResult.get("body");
-            int carId = car.getCarId();
-            double loanAmount = (double) queryBody.get("amount");
-            double capitalSum = (double) queryBody.get("capitalSum");
-            double interestSum = (double) queryBody.get("interestSum");
-            double totalSum = (double) queryBody.get("sum");
-            double interestRate = (double) queryBody.get("interestRate");
-            double termMo = Double.parseDouble((String) queryBody.get("term"));
-            String installments = (queryBody.get("installments")).toString();
-            boolean claimed = false;
-
-            // Add offer information to offers table
-            int offerId = tableOffers.addOffer(
-                    carId,
-                    loanAmount,
-                    capitalSum,
-                    interestSum,
-                    totalSum,
-                    interestRate,
-                    termMo,
-                    installments,
-                    claimed
-            );
-
-            // Create an offer entity
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
-            EntOffer offer = new EntOffer();
-            offer.loadFromMap(offerMap);
-
-            return offer;
-        } else {
-            // No loan offer not available with current settings, return null.
-            return null;
-        }
     }
 
     /**
-     * Sort a list of maps according to key and sortAsc. We use the corresponding value of key for each map
-     * (which is assumed to be castable to double) to sort the list of maps. sortAsc defines whether we sort
-     * by ascending order or not.
+     * Wait for a senso /rate api query to finish and return its quote. If the query failed, print the error
+     * and return null, so that one failing query does not fail the whole search. If it was turned away because
+     * the Senso API is unavailable, throw the SensoUnavailableException instead (without printing it).
      */
-    private List<Map<String, Object>> sortCars(
-            List<Map<String, Object>> maps,
-            String key,
-            boolean sortAsc
-    ) {
-        List<Map<String, Object>> sorted = new ArrayList<>();
-
-        // Place all maps from carAndOfferInfoMaps in sortedCarAndOfferInfoMaps (in sorted order).
-        Map<String, Object> map;
-        for (int i = 0; i < maps.size(); i++) {
-            List<Map<String, Object>> subList = maps.subList(i, maps.size());
-
-            // Get the map which we will remove from carAndOfferInfoMaps and add to sorted
-            if (sortAsc) {
-                map = getSmallest(subList, key);
-            } else {
-                map = getBiggest(subList, key);
+    private EntLoanQuote awaitLoanOffer(
+            CompletableFuture<EntLoanQuote> query
+    ) throws SensoUnavailableException {
+        try {
+            return query.join();
+        } catch (CompletionException | CancellationException e) {
+            if (e.getCause() instanceof SensoUnavailableException) {
+                throw (SensoUnavailableException) e.getCause();
             }
-
-            maps.remove(map);
-            sorted.add(map);
-        }
-
-        return sorted;
-    }
-
-    /**
-     * Return the 'smallest' map in maps, where smallest is defined as the map which has the lowest value
-     * corresponding to the key.
-     *
-     * The value corresponding to key must be castable to double.
-     */
-    private Map<String, Object> getSmallest(List<Map<String, Object>> maps, String key) {
-        Map<String, Object> smallestMapSoFar = maps.get(0);
-        for (Map<String, Object> map : maps) {
-            if (toDouble(map.get(key)) < toDouble(smallestMapSoFar.get(key))) {
-                smallestMapSoFar = map;
-            }
-        }
-        return smallestMapSoFar;
-    }
-
-    /**
-     * Return the 'biggest' map in maps, where biggest is defined as the map which has the highest value
-     * corresponding to the key.
-     *
-     * The value corresponding to key must be castable to double.
-     */
-    private Map<String, Object> getBiggest(List<Map<String, Object>> maps, String key) {
-        Map<String, Object> biggestMapSoFar = maps.get(0);
-        for (Map<String, Object> map : maps) {
-            if (toDouble(map.get(key)) > toDouble(biggestMapSoFar.get(key))) {
-                biggestMapSoFar = map;
-            }
-        }
-        return biggestMapSoFar;
-    }
-
-    private double toDouble(Object num) {
-        if (num instanceof BigDecimal) {
-            return ((BigDecimal) num).doubleValue();
-        } else {
-            return (double) num;
+            e.printStackTrace();
+            return null;
         }
     }
 }
@@ -41,7 +41,7 @@ public class SvcUnclaimOffer {
             );
         }
 
-        tableOffers.setUser(userId);
-        tableOffers.markOfferUnclaimed(Integer.parseInt(offerId));
+        tableOffers.createTable(userId);
+        tableOffers.markOfferUnclaimed(userId, Integer.parseInt(offerId));
     }
 }
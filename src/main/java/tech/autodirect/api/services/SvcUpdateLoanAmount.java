@@ -19,6 +19,7 @@ limitations under the License.
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import tech.autodirect.api.entities.EntCar;
+import tech.autodirect.api.entities.EntLoanQuote;
 import tech.autodirect.api.entities.EntOffer;
 import tech.autodirect.api.entities.EntUser;
 import tech.autodirect.api.interfaces.SensoApiInterface;
@@ -51,23 +52,17 @@ public class SvcUpdateLoanAmount {
         int offerId = Integer.parseInt(offerIdString);
 
         // Get the user referred to by userId
-        Map<String, Object> userMap = tableUsers.getUserById(userId);
-        EntUser user = new EntUser();
-        user.loadFromMap(userMap);
+        EntUser user = tableUsers.getUserEntityById(userId);
 
-        // Set tableOffer's user and get the offer referred to by offerId
-        tableOffers.setUser(userId);
-        Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
-        EntOffer offer = new EntOffer();
-        offer.loadFromMap(offerMap);
+        // Make sure the user has an offers table and get the offer referred to by offerId
+        tableOffers.createTable(userId);
+        EntOffer offer = tableOffers.getOfferEntityByOfferId(userId, offerId);
 
         // Get the car referred to by the offer
-        Map<String, Object> carMap = tableCars.getCarById(offer.getCarId());
-        EntCar car = new EntCar();
-        car.loadFromMap(carMap);
+        EntCar car = tableCars.getCarEntityById(offer.getCarId());
 
         // Query senso api with the new loan_amount
-        Map<String, Object> queryResult = sensoApi.getLoanOffer(
+        EntLoanQuote quote = SensoApiInterface.awaitQuote(sensoApi.getLoanOfferAsync(
                 newLoanAmountString,
                 Integer.toString(user.getCreditScore()),
                 Double.toString(user.getBudgetMo()),
@@ -77,50 +72,55 @@ public class SvcUpdateLoanAmount {
                 Double.toString(car.getKms()),
                 Double.toString(car.getPrice()),
                 Double.toString(user.getDownPayment())
-        );
+        ));
 
-        if ((int) queryResult.get("status") == 200) {
+        if (quote.isApproved()) {
             // Offer with new loan amount was successfully approved by the senso /rate api.
             // So, update loan offer in offers table with the new loan offer from senso (for the same offer id)
             // and return offer details (including car info) to the frontend.
 
             // Update loan information
-            @SuppressWarnings("unchecked")
-            Map<String, Object> queryBody = (Map<String, Object>) queryResult.get("body");
             tableOffers.updateOfferColumn(
+                    userId,
                     offerId,
                     TableOffersInterface.OfferColumns.LOAN_AMOUNT,
-                    queryBody.get("amount")
+                    quote.getLoanAmount()
             );
             tableOffers.updateOfferColumn(
+                    userId,
                     offerId,
                     TableOffersInterface.OfferColumns.CAPITAL_SUM,
-                    queryBody.get("capitalSum")
+                    quote.getCapitalSum()
             );
             tableOffers.updateOfferColumn(
+                    userId,
                     offerId,
                     TableOffersInterface.OfferColumns.INTEREST_RATE,
-                    queryBody.get("interestSum")
+                    quote.getInterestSum()
             );
             tableOffers.updateOfferColumn(
+                    userId,
                     offerId,
                     TableOffersInterface.OfferColumns.TOTAL_SUM,
-                    queryBody.get("sum")
+                    quote.getTotalSum()
             );
             tableOffers.updateOfferColumn(
+                    userId,
                     offerId,
                     TableOffersInterface.OfferColumns.INTEREST_RATE,
-                    queryBody.get("interestRate")
+                    quote.getInterestRate()
             );
             tableOffers.updateOfferColumn(
+                    userId,
                     offerId,
                     TableOffersInterface.OfferColumns.TERM_MO,
-                    Double.parseDouble((String) queryBody.get("term"))
+                    quote.getTermMo()
             );
             tableOffers.updateOfferColumn(
+                    userId,
                     offerId,
                     TableOffersInterface.OfferColumns.INSTALLMENTS,
-                    (queryBody.get("installments")).toString()
+                    quote.getInstallments()
             );
 
             // Return offer details (including car info)
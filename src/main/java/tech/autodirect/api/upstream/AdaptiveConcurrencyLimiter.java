@@ -0,0 +1,225 @@
+package tech.autodirect.api.upstream;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for limiting how many calls to an upstream service are in flight at once, adapting the limit to
+ * how the service copes (additive increase, multiplicative decrease).
+ *
+ * Every call that finishes in less than latencyThreshold without being dropped (failing or being turned away by
+ * the service) raises the limit by 1/limit, so by about one per limit calls, as long as the limit is actually
+ * used. Every dropped or slow call lowers it by BACKOFF_RATIO. The limit stays between minLimit and maxLimit.
+ *
+ * Calls over the limit wait in a queue (first come, first served) of at most maxQueueSize calls, for at most
+ * maxWait each. Calls that find the queue full, or that wait longer than maxWait, are rejected.
+ */
+public class AdaptiveConcurrencyLimiter {
+    // Factor the limit is multiplied by when a call is dropped or slow
+    public static final double BACKOFF_RATIO = 0.9;
+    // Weight of the latest call in the average latency
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final int maxQueueSize;
+    private final long maxWaitNanos;
+
+    private double limit;
+    private int inFlight = 0;
+    // Calls waiting for their turn, completed with true once it comes (or false if they waited too long)
+    private final ArrayDeque<CompletableFuture<Boolean>> queue = new ArrayDeque<>();
+    private double averageLatencyNanos = 0;
+    private long queueFullRejections = 0;
+    private long queueTimeouts = 0;
+    private long drops = 0;
+
+    /**
+     * Create an AdaptiveConcurrencyLimiter.
+     *
+     * @param initialLimit     : limit to start with
+     * @param minLimit         : lowest the limit can go
+     * @param maxLimit         : highest the limit can go
+     * @param latencyThreshold : calls that take at least this long (in unit) lower the limit
+     * @param maxQueueSize     : most calls that wait for their turn at once
+     * @param maxWait          : how long a call waits for its turn (in unit)
+     * @param unit             : time unit of latencyThreshold and maxWait
+     */
+    public AdaptiveConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            long latencyThreshold,
+            int maxQueueSize,
+            long maxWait,
+            TimeUnit unit
+    ) {
+        if (minLimit <= 0 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limits must be positive and minLimit <= initialLimit <= maxLimit");
+        }
+        if (maxQueueSize < 0 || maxWait < 0) {
+            throw new IllegalArgumentException("maxQueueSize and maxWait must not be negative");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+        this.maxQueueSize = maxQueueSize;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+    }
+
+    /**
+     * Ask to make a call. The returned future completes with true once the call may be made (right away if the
+     * limit is not reached), after which release() must be called once it finished, or with false if the call is
+     * rejected.
+     *
+     * Futures that complete later run their dependent actions on the thread that called release().
+     */
+    public CompletableFuture<Boolean> acquire() {
+        CompletableFuture<Boolean> turn = new CompletableFuture<>();
+        synchronized (this) {
+            if (queue.isEmpty() && inFlight < getLimit()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(true);
+            }
+            if (queue.size() >= maxQueueSize) {
+                queueFullRejections++;
+                return CompletableFuture.completedFuture(false);
+            }
+            queue.add(turn);
+        }
+
+        // Give up once maxWait has passed (unless the turn came first), leaving the queue before the caller knows
+        turn.completeOnTimeout(false, maxWaitNanos, TimeUnit.NANOSECONDS);
+        return turn.thenApply(permitted -> {
+            if (!permitted) {
+                synchronized (this) {
+                    queue.remove(turn);
+                    queueTimeouts++;
+                }
+            }
+            return permitted;
+        });
+    }
+
+    /**
+     * Record that a call made after acquire() finished, taking latencyNanos, and whether it was dropped
+     * (failed or turned away by the service), then let waiting calls go if the limit allows it.
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        synchronized (this) {
+            averageLatencyNanos = averageLatencyNanos == 0
+                    ? latencyNanos
+                    : (1 - LATENCY_SMOOTHING) * averageLatencyNanos + LATENCY_SMOOTHING * latencyNanos;
+            if (dropped || latencyNanos >= latencyThresholdNanos) {
+                drops++;
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight--;
+        }
+        grantTurns();
+    }
+
+    /**
+     * Record that a call given its turn by acquire() was not made after all (e.g. a circuit breaker turned it
+     * away), without changing the limit, then let waiting calls go if the limit allows it.
+     */
+    public void releaseUnused() {
+        synchronized (this) {
+            inFlight--;
+        }
+        grantTurns();
+    }
+
+    /**
+     * Give their turn to the waiting calls that now fit within the limit.
+     */
+    private void grantTurns() {
+        List<CompletableFuture<Boolean>> turns = new ArrayList<>();
+        synchronized (this) {
+            while (!queue.isEmpty() && inFlight < getLimit()) {
+                turns.add(queue.poll());
+                inFlight++;
+            }
+        }
+
+        // Complete the turns without holding the lock, since the calls may start right away. A call that gave
+        // up in the meantime does not use its turn, so it goes to the next waiting call.
+        boolean turnsLeft = false;
+        for (CompletableFuture<Boolean> turn : turns) {
+            if (!turn.complete(true)) {
+                synchronized (this) {
+                    inFlight--;
+                }
+                turnsLeft = true;
+            }
+        }
+        if (turnsLeft) {
+            grantTurns();
+        }
+    }
+
+    /**
+     * Return the current limit (the most calls that may be in flight at once).
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Return the number of calls that were rejected (because the queue was full or they waited too long).
+     */
+    public synchronized long getRejections() {
+        return queueFullRejections + queueTimeouts;
+    }
+
+    /**
+     * Return the limiter's state and counters as a map (e.g. to be returned by an endpoint).
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", getLimit());
+        stats.put("min_limit", minLimit);
+        stats.put("max_limit", maxLimit);
+        stats.put("in_flight", inFlight);
+        stats.put("queue_depth", queue.size());
+        stats.put("rejections", queueFullRejections + queueTimeouts);
+        stats.put("queue_full_rejections", queueFullRejections);
+        stats.put("queue_timeouts", queueTimeouts);
+        stats.put("drops", drops);
+        stats.put("average_latency_ms", averageLatencyNanos / 1_000_000);
+        return stats;
+    }
+}
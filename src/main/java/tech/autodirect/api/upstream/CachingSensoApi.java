@@ -0,0 +1,267 @@
+package tech.autodirect.api.upstream;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Responsible for caching the responses of another SensoApiInterface (normally a SensoApi), so that identical
+ * /rate requests made shortly after each other (by the same user or by users with the same credit score and
+ * search params) only reach the Senso API once.
+ *
+ * Requests are identified by SensoRequestKey. Responses are kept for at most ttl, and at most maxEntries of them
+ * are kept at once (when full, the least recently used response is evicted). Only approvals (200) and declines
+ * (400) are cached: other responses (e.g. server errors, rate limiting or rejected credentials) say nothing about
+ * the loan itself, and failed requests are not cached either.
+ */
+public class CachingSensoApi implements SensoApiInterface {
+    // Statuses of the responses that answer the request itself (the loan was approved or declined)
+    private static final Set<Integer> CACHEABLE_STATUSES = Set.of(200, 400);
+
+    private final SensoApiInterface sensoApi;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+    // Cached responses in least to most recently used order (guarded by itself)
+    private final LinkedHashMap<SensoRequestKey, CachedResponse> responses;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Create a CachingSensoApi in front of sensoApi.
+     *
+     * @param sensoApi   : the Senso API to forward requests that are not cached to
+     * @param ttl        : how long a response is reused for (in unit)
+     * @param unit       : time unit of ttl
+     * @param maxEntries : most responses that are cached at once
+     */
+    public CachingSensoApi(SensoApiInterface sensoApi, long ttl, TimeUnit unit, int maxEntries) {
+        this(sensoApi, ttl, unit, maxEntries, System::nanoTime);
+    }
+
+    /**
+     * Same as above, but reads the current time (in nanoseconds) from nanoClock.
+     */
+    CachingSensoApi(SensoApiInterface sensoApi, long ttl, TimeUnit unit, int maxEntries, LongSupplier nanoClock) {
+        if (ttl <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("ttl and maxEntries must be positive");
+        }
+        this.sensoApi = sensoApi;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SensoRequestKey, CachedResponse> eldest) {
+                if (size() > CachingSensoApi.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Object> getLoanOffer(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) throws IOException, InterruptedException {
+        SensoRequestKey key = new SensoRequestKey(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        );
+
+        // Return the cached response if there is one that has not expired yet
+        Map<String, Object> cached = getCachedResponse(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Not cached, so ask the Senso API (without holding the lock, so that other requests are not held up)
+        Map<String, Object> response = sensoApi.getLoanOffer(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        );
+        cacheResponse(key, response);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<EntLoanQuote> getLoanOfferAsync(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) {
+        SensoRequestKey key = new SensoRequestKey(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        );
+
+        // Return the cached response if there is one that has not expired yet
+        Map<String, Object> cached = getCachedResponse(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(EntLoanQuote.fromResponse(cached));
+        }
+
+        // Not cached, so ask the Senso API and cache its response once it arrives
+        return sensoApi.getLoanOfferAsync(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        ).thenApply(quote -> {
+            cacheResponse(key, quote.toResponse());
+            return quote;
+        });
+    }
+
+    /**
+     * Return a copy of the cached response for key (counting a hit), or null if there is none that has not
+     * expired yet (counting a miss).
+     */
+    private Map<String, Object> getCachedResponse(SensoRequestKey key) {
+        synchronized (responses) {
+            CachedResponse cached = responses.get(key);
+            if (cached != null) {
+                if (nanoClock.getAsLong() - cached.createdNanos < ttlNanos) {
+                    hits.incrementAndGet();
+                    return new HashMap<>(cached.response);
+                }
+                responses.remove(key);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cache (a copy of) response for key, unless it is not worth reusing.
+     */
+    private void cacheResponse(SensoRequestKey key, Map<String, Object> response) {
+        if (isCacheable(response)) {
+            CachedResponse cached = new CachedResponse(new HashMap<>(response), nanoClock.getAsLong());
+            synchronized (responses) {
+                responses.put(key, cached);
+            }
+        }
+    }
+
+    /**
+     * Return whether response is worth reusing: only approvals and declines, which would be given again for the
+     * same request.
+     */
+    private static boolean isCacheable(Map<String, Object> response) {
+        Object status = response.get("status");
+        if (!(status instanceof Integer)) {
+            return false;
+        }
+        return CACHEABLE_STATUSES.contains(status);
+    }
+
+    /**
+     * Remove all cached responses (the counters are kept).
+     */
+    public void clear() {
+        synchronized (responses) {
+            responses.clear();
+        }
+    }
+
+    /**
+     * Return the number of responses currently cached (including expired ones that have not been removed yet).
+     */
+    public int size() {
+        synchronized (responses) {
+            return responses.size();
+        }
+    }
+
+    /**
+     * Return the number of requests that were answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of requests that were forwarded to the Senso API.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return sensoApi.isAvailable();
+    }
+
+    /**
+     * Return the cache's counters and size as a map (e.g. to be returned by an endpoint).
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hit_rate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("size", size());
+        stats.put("max_entries", maxEntries);
+        return stats;
+    }
+
+    /**
+     * A Senso API response and the time (from nanoClock) at which it was received.
+     */
+    private static final class CachedResponse {
+        private final Map<String, Object> response;
+        private final long createdNanos;
+
+        private CachedResponse(Map<String, Object> response, long createdNanos) {
+            this.response = response;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
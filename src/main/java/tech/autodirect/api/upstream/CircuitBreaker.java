@@ -0,0 +1,241 @@
+package tech.autodirect.api.upstream;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Responsible for deciding whether calls to an upstream service should be made, based on how the most recent
+ * calls went, so that a failing or slow service is left alone for a while instead of being waited on.
+ *
+ * The breaker starts CLOSED, letting all calls through and recording whether each of the last windowSize calls
+ * failed and whether it was slow. Once at least minimumCalls are recorded and the percentage of failed calls
+ * reaches failureRateThreshold (or the percentage of slow calls reaches slowCallRateThreshold), it goes OPEN and
+ * rejects all calls for openDuration. It then goes HALF_OPEN and lets halfOpenCalls trial calls through: if they
+ * all succeed in time, it goes CLOSED again (with an empty window); if any of them fails or is slow, it goes OPEN.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // Defaults for the parameters that are not given to the public constructor
+    public static final int DEFAULT_WINDOW_SIZE = 50;
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+    public static final int DEFAULT_HALF_OPEN_CALLS = 5;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long slowCallNanos;
+    private final int slowCallRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    // Outcomes of the last bufferedCalls calls (while CLOSED), as a ring buffer starting at nextIndex
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int bufferedCalls = 0;
+    private int nextIndex = 0;
+    private int failedCount = 0;
+    private int slowCount = 0;
+
+    private State state = State.CLOSED;
+    // Time (from nanoClock) at which the breaker last went OPEN
+    private long openedNanos;
+    // Trial calls that can still be let through, and trial calls that succeeded (while HALF_OPEN)
+    private int halfOpenPermits;
+    private int halfOpenSucceeded;
+    private long notPermittedCalls = 0;
+    private long timesOpened = 0;
+
+    /**
+     * Create a CircuitBreaker with the default window size, minimum calls and trial calls.
+     *
+     * @param failureRateThreshold  : percentage of failed calls at which the breaker opens
+     * @param slowCallDuration      : calls that take at least this long (in unit) are slow
+     * @param slowCallRateThreshold : percentage of slow calls at which the breaker opens
+     * @param openDuration          : how long the breaker stays open (in unit)
+     * @param unit                  : time unit of slowCallDuration and openDuration
+     */
+    public CircuitBreaker(
+            int failureRateThreshold,
+            long slowCallDuration,
+            int slowCallRateThreshold,
+            long openDuration,
+            TimeUnit unit
+    ) {
+        this(
+                DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_CALLS, failureRateThreshold, slowCallDuration,
+                slowCallRateThreshold, openDuration, DEFAULT_HALF_OPEN_CALLS, unit, System::nanoTime
+        );
+    }
+
+    /**
+     * Same as above, but with all parameters given and reading the current time (in nanoseconds) from nanoClock.
+     */
+    CircuitBreaker(
+            int windowSize,
+            int minimumCalls,
+            int failureRateThreshold,
+            long slowCallDuration,
+            int slowCallRateThreshold,
+            long openDuration,
+            int halfOpenCalls,
+            TimeUnit unit,
+            LongSupplier nanoClock
+    ) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize || halfOpenCalls <= 0) {
+            throw new IllegalArgumentException(
+                    "windowSize, minimumCalls and halfOpenCalls must be positive and minimumCalls <= windowSize"
+            );
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100
+                || slowCallRateThreshold <= 0 || slowCallRateThreshold > 100) {
+            throw new IllegalArgumentException("rate thresholds must be percentages between 1 and 100");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = unit.toNanos(slowCallDuration);
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    /**
+     * Return whether a call may be made now. Every call that is permitted must be followed by either
+     * onResult() (once it finished) or releasePermission() (if it was not made after all).
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedNanos < openNanos) {
+                notPermittedCalls++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                notPermittedCalls++;
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * Return whether calls are currently turned away because the breaker is OPEN (without taking a permission
+     * or going HALF_OPEN).
+     */
+    public synchronized boolean isRejectingCalls() {
+        return state == State.OPEN && nanoClock.getAsLong() - openedNanos < openNanos;
+    }
+
+    /**
+     * Give back a permission from tryAcquirePermission() for a call that was not made.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls - halfOpenSucceeded) {
+            halfOpenPermits++;
+        }
+    }
+
+    /**
+     * Record the outcome of a permitted call, which took durationNanos and failed or not.
+     */
+    public synchronized void onResult(long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= slowCallNanos;
+        if (state == State.CLOSED) {
+            record(failed, slow);
+            if (bufferedCalls >= minimumCalls
+                    && (failedCount * 100 >= failureRateThreshold * bufferedCalls
+                        || slowCount * 100 >= slowCallRateThreshold * bufferedCalls)) {
+                open();
+            }
+        } else if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open();
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+        }
+        // Calls that were made before the breaker went OPEN and finish while it is OPEN are ignored
+    }
+
+    /**
+     * Add the outcome of a call to the window, overwriting the oldest one once the window is full.
+     */
+    private void record(boolean failed, boolean slow) {
+        if (bufferedCalls == windowSize) {
+            failedCount -= failedCalls[nextIndex] ? 1 : 0;
+            slowCount -= slowCalls[nextIndex] ? 1 : 0;
+        } else {
+            bufferedCalls++;
+        }
+        failedCalls[nextIndex] = failed;
+        slowCalls[nextIndex] = slow;
+        failedCount += failed ? 1 : 0;
+        slowCount += slow ? 1 : 0;
+        nextIndex = (nextIndex + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedNanos = nanoClock.getAsLong();
+        timesOpened++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        bufferedCalls = 0;
+        nextIndex = 0;
+        failedCount = 0;
+        slowCount = 0;
+    }
+
+    /**
+     * Return the current state. An OPEN breaker whose openDuration has passed only goes HALF_OPEN on the next
+     * call to tryAcquirePermission().
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Return the breaker's state and counters as a map (e.g. to be returned by an endpoint).
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name().toLowerCase(Locale.ROOT));
+        stats.put("failure_rate", bufferedCalls == 0 ? 0.0 : 100.0 * failedCount / bufferedCalls);
+        stats.put("slow_call_rate", bufferedCalls == 0 ? 0.0 : 100.0 * slowCount / bufferedCalls);
+        stats.put("buffered_calls", bufferedCalls);
+        stats.put("not_permitted_calls", notPermittedCalls);
+        stats.put("times_opened", timesOpened);
+        return stats;
+    }
+}
@@ -0,0 +1,160 @@
+package tech.autodirect.api.upstream;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Responsible for sharing one request to another SensoApiInterface (normally a SensoApi) between all callers
+ * that make an identical /rate request while it is in flight, so that bursts of identical searches only reach
+ * the Senso API once.
+ *
+ * Requests are identified by SensoRequestKey. Unlike CachingSensoApi, nothing is kept once a request finishes:
+ * the next identical request is sent to the Senso API again. All callers sharing a request get its quote, or
+ * the error it failed with.
+ */
+public class CoalescingSensoApi implements SensoApiInterface {
+    private final SensoApiInterface sensoApi;
+    // Requests that are in flight, by key
+    private final ConcurrentHashMap<SensoRequestKey, CompletableFuture<EntLoanQuote>> inFlight
+            = new ConcurrentHashMap<>();
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    /**
+     * Create a CoalescingSensoApi in front of sensoApi.
+     */
+    public CoalescingSensoApi(SensoApiInterface sensoApi) {
+        this.sensoApi = sensoApi;
+    }
+
+    @Override
+    public Map<String, Object> getLoanOffer(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) throws IOException, InterruptedException {
+        EntLoanQuote quote = SensoApiInterface.awaitQuote(getLoanOfferAsync(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        ));
+        return quote.toResponse();
+    }
+
+    @Override
+    public CompletableFuture<EntLoanQuote> getLoanOfferAsync(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) {
+        SensoRequestKey key = new SensoRequestKey(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        );
+
+        // Join the identical request if one is in flight
+        CompletableFuture<EntLoanQuote> shared = new CompletableFuture<>();
+        CompletableFuture<EntLoanQuote> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalescedCalls.incrementAndGet();
+            return existing.copy();
+        }
+
+        // Otherwise send it, and stop sharing it as soon as it finishes (before its callers see the result, so
+        // that they never join a finished request)
+        upstreamCalls.incrementAndGet();
+        CompletableFuture<EntLoanQuote> upstream;
+        try {
+            upstream = sensoApi.getLoanOfferAsync(
+                    loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                    vehicleYear, vehicleKms, listPrice, downPayment
+            );
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((quote, error) -> {
+            inFlight.remove(key, shared);
+            if (error == null) {
+                shared.complete(quote);
+            } else {
+                shared.completeExceptionally(
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error
+                );
+            }
+        });
+        // Each caller gets its own copy, so that one caller cancelling its future does not affect the others
+        return shared.copy();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return sensoApi.isAvailable();
+    }
+
+    /**
+     * Return the number of requests that are in flight.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Return the number of requests that were sent to the Senso API.
+     */
+    public long getUpstreamCalls() {
+        return upstreamCalls.get();
+    }
+
+    /**
+     * Return the number of requests that shared an identical request that was in flight.
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.get();
+    }
+
+    /**
+     * Return the counters as a map (e.g. to be returned by an endpoint).
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("upstream_calls", upstreamCalls.get());
+        stats.put("coalesced_calls", coalescedCalls.get());
+        stats.put("in_flight", getInFlight());
+        return stats;
+    }
+}
@@ -0,0 +1,141 @@
+package tech.autodirect.api.upstream;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Responsible for keeping the number of /rate requests in flight to another SensoApiInterface (normally a
+ * SensoApi) within the limit of an AdaptiveConcurrencyLimiter, which it tells how long each request took and
+ * whether it was dropped (errors, timeouts, 5xx and 429 responses), so that the limit follows what the Senso
+ * API can handle.
+ *
+ * Requests over the limit wait for their turn without holding a thread. Requests that the limiter rejects fail
+ * with a SensoUnavailableException. Requests that the SensoApiInterface behind it turns away with a
+ * SensoUnavailableException (e.g. while a circuit breaker is open) were never sent, so they do not change the
+ * limit.
+ */
+public class LimitingSensoApi implements SensoApiInterface {
+    private final SensoApiInterface sensoApi;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final LongSupplier nanoClock;
+
+    /**
+     * Create a LimitingSensoApi in front of sensoApi.
+     */
+    public LimitingSensoApi(SensoApiInterface sensoApi, AdaptiveConcurrencyLimiter limiter) {
+        this(sensoApi, limiter, System::nanoTime);
+    }
+
+    /**
+     * Same as above, but measures how long requests take with nanoClock (in nanoseconds).
+     */
+    LimitingSensoApi(SensoApiInterface sensoApi, AdaptiveConcurrencyLimiter limiter, LongSupplier nanoClock) {
+        this.sensoApi = sensoApi;
+        this.limiter = limiter;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Map<String, Object> getLoanOffer(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) throws IOException, InterruptedException {
+        EntLoanQuote quote = SensoApiInterface.awaitQuote(getLoanOfferAsync(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        ));
+        return quote.toResponse();
+    }
+
+    /**
+     * Same as getLoanOffer(), but without waiting for the response. A request that has to wait for its turn is
+     * sent from the thread that finishes the request before it (e.g. an HttpClient thread), so sending it must not
+     * block: the async path of the SensoApiInterface behind this one must not wait (see ResilientSensoApi).
+     */
+    @Override
+    public CompletableFuture<EntLoanQuote> getLoanOfferAsync(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) {
+        return limiter.acquire().thenCompose(permitted -> {
+            if (!permitted) {
+                return CompletableFuture.failedFuture(new SensoUnavailableException(
+                        "Senso API request rejected by the concurrency limiter (limit " + limiter.getLimit() + ")"
+                ));
+            }
+
+            long startNanos = nanoClock.getAsLong();
+            CompletableFuture<EntLoanQuote> quote;
+            try {
+                quote = sensoApi.getLoanOfferAsync(
+                        loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                        vehicleYear, vehicleKms, listPrice, downPayment
+                );
+            } catch (RuntimeException e) {
+                limiter.release(nanoClock.getAsLong() - startNanos, true);
+                return CompletableFuture.failedFuture(e);
+            }
+            return quote.whenComplete((result, error) -> {
+                if (SensoUnavailableException.isCauseOf(error)) {
+                    limiter.releaseUnused();
+                } else {
+                    limiter.release(
+                            nanoClock.getAsLong() - startNanos, error != null || isDropped(result.getStatus())
+                    );
+                }
+            });
+        });
+    }
+
+    /**
+     * Return whether a response status means that the Senso API could not handle the request (server errors and
+     * rate limiting).
+     */
+    private static boolean isDropped(int status) {
+        return status >= 500 || status == 429;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return sensoApi.isAvailable();
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+}
@@ -0,0 +1,258 @@
+package tech.autodirect.api.upstream;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Responsible for protecting the rest of the API from a slow or failing Senso API (normally a SensoApi), so that
+ * requests that never reach it (e.g. /getClaimedOffers) keep being served.
+ *
+ * Requests go through a bulkhead, which lets at most maxConcurrentCalls of them be in flight at once (a blocking
+ * request waits at most maxWait for its turn, an async one does not wait), and a CircuitBreaker, which stops sending requests for a while once too
+ * many of them fail (errors, 5xx and 429 responses) or are slow. Requests that are turned away fail at once
+ * with a SensoUnavailableException. Requests that sensoApi itself turns away with a SensoUnavailableException
+ * never reached the Senso API, so the CircuitBreaker does not count them.
+ */
+public class ResilientSensoApi implements SensoApiInterface {
+    private final SensoApiInterface sensoApi;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxConcurrentCalls;
+    private final long maxWaitNanos;
+    private final LongSupplier nanoClock;
+    private final Semaphore bulkhead;
+    private final AtomicLong bulkheadRejections = new AtomicLong();
+
+    /**
+     * Create a ResilientSensoApi in front of sensoApi.
+     *
+     * @param sensoApi           : the Senso API to forward requests to
+     * @param circuitBreaker     : decides whether requests are sent
+     * @param maxConcurrentCalls : most requests that are in flight at once
+     * @param maxWait            : how long a request waits for another one to finish when that many are in flight
+     * @param unit               : time unit of maxWait
+     */
+    public ResilientSensoApi(
+            SensoApiInterface sensoApi,
+            CircuitBreaker circuitBreaker,
+            int maxConcurrentCalls,
+            long maxWait,
+            TimeUnit unit
+    ) {
+        this(sensoApi, circuitBreaker, maxConcurrentCalls, maxWait, unit, System::nanoTime);
+    }
+
+    /**
+     * Same as above, but measures how long requests take with nanoClock (in nanoseconds).
+     */
+    ResilientSensoApi(
+            SensoApiInterface sensoApi,
+            CircuitBreaker circuitBreaker,
+            int maxConcurrentCalls,
+            long maxWait,
+            TimeUnit unit,
+            LongSupplier nanoClock
+    ) {
+        if (maxConcurrentCalls <= 0 || maxWait < 0) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be positive and maxWait not negative");
+        }
+        this.sensoApi = sensoApi;
+        this.circuitBreaker = circuitBreaker;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.nanoClock = nanoClock;
+        this.bulkhead = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    @Override
+    public Map<String, Object> getLoanOffer(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) throws IOException, InterruptedException {
+        acquirePermission(maxWaitNanos);
+        long startNanos = nanoClock.getAsLong();
+        Map<String, Object> response;
+        try {
+            response = sensoApi.getLoanOffer(
+                    loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                    vehicleYear, vehicleKms, listPrice, downPayment
+            );
+        } catch (SensoUnavailableException e) {
+            onCallNotMade();
+            throw e;
+        } catch (IOException | InterruptedException | RuntimeException | Error e) {
+            onCallFinished(startNanos, true);
+            throw e;
+        }
+        onCallFinished(startNanos, isFailure(response.get("status")));
+        return response;
+    }
+
+    /**
+     * Same as getLoanOffer(), but without waiting for the response, or for a turn in the bulkhead: a request that
+     * finds the bulkhead full fails at once. This never blocks the calling thread, which may be one that completes
+     * other requests (e.g. a LimitingSensoApi in front of this one sends its queued requests from there); waiting
+     * for a turn without holding a thread is left to such a limiter.
+     */
+    @Override
+    public CompletableFuture<EntLoanQuote> getLoanOfferAsync(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) {
+        try {
+            acquirePermission(0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (SensoUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long startNanos = nanoClock.getAsLong();
+        CompletableFuture<EntLoanQuote> quote;
+        try {
+            quote = sensoApi.getLoanOfferAsync(
+                    loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                    vehicleYear, vehicleKms, listPrice, downPayment
+            );
+        } catch (RuntimeException e) {
+            onCallFinished(startNanos, true);
+            return CompletableFuture.failedFuture(e);
+        }
+        return quote.whenComplete((result, error) -> {
+            if (SensoUnavailableException.isCauseOf(error)) {
+                onCallNotMade();
+            } else {
+                onCallFinished(startNanos, error != null || isFailure(result.getStatus()));
+            }
+        });
+    }
+
+    /**
+     * Take a turn in the bulkhead (waiting at most waitNanos for it) and get the circuit breaker's permission to
+     * send a request, or throw a SensoUnavailableException if either one turns the request away.
+     */
+    private void acquirePermission(long waitNanos) throws SensoUnavailableException, InterruptedException {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw new SensoUnavailableException("Senso API circuit breaker is open");
+        }
+        boolean acquired = false;
+        try {
+            // a zero timeout does not block, but unlike tryAcquire() still lets waiting requests go first
+            acquired = bulkhead.tryAcquire(waitNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            if (!acquired) {
+                circuitBreaker.releasePermission();
+            }
+        }
+        if (!acquired) {
+            bulkheadRejections.incrementAndGet();
+            throw new SensoUnavailableException(
+                    "too many Senso API requests in flight (" + maxConcurrentCalls + ")"
+            );
+        }
+    }
+
+    /**
+     * Free the bulkhead turn of a request that started at startNanos and record its outcome.
+     */
+    private void onCallFinished(long startNanos, boolean failed) {
+        bulkhead.release();
+        circuitBreaker.onResult(nanoClock.getAsLong() - startNanos, failed);
+    }
+
+    /**
+     * Free the bulkhead turn and the circuit breaker permission of a request that the SensoApiInterface behind
+     * this one turned away with a SensoUnavailableException. It never reached the Senso API, so it says nothing
+     * about the Senso API's health and is not recorded.
+     */
+    private void onCallNotMade() {
+        bulkhead.release();
+        circuitBreaker.releasePermission();
+    }
+
+    /**
+     * Return whether a response status means that the Senso API failed to answer the request (server errors and
+     * rate limiting), rather than answering it (e.g. by declining the loan).
+     */
+    private static boolean isFailure(Object status) {
+        if (!(status instanceof Integer)) {
+            return true;
+        }
+        int statusCode = (int) status;
+        return statusCode >= 500 || statusCode == 429;
+    }
+
+    /**
+     * Return false while the circuit breaker is open, since requests fail at once then.
+     */
+    @Override
+    public boolean isAvailable() {
+        return !circuitBreaker.isRejectingCalls();
+    }
+
+    /**
+     * Return the number of requests that are in flight.
+     */
+    public int getInFlight() {
+        return maxConcurrentCalls - bulkhead.availablePermits();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Return the circuit breaker's and the bulkhead's state and counters as a map (e.g. to be returned by
+     * an endpoint).
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> bulkheadStats = new LinkedHashMap<>();
+        bulkheadStats.put("in_flight", getInFlight());
+        bulkheadStats.put("max_concurrent", maxConcurrentCalls);
+        bulkheadStats.put("rejections", bulkheadRejections.get());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("circuit_breaker", circuitBreaker.getStats());
+        stats.put("bulkhead", bulkheadStats);
+        return stats;
+    }
+}
@@ -19,23 +19,70 @@ limitations under the License.
 import org.yaml.snakeyaml.error.MissingEnvironmentVariableException;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 
 import com.google.gson.Gson;
+import tech.autodirect.api.entities.EntLoanQuote;
 import tech.autodirect.api.interfaces.SensoApiInterface;
+import tech.autodirect.api.utils.EnvVars;
 
 
+/**
+ * Responsible for requesting loan offers from the Senso /rate API.
+ *
+ * The API URL, key and timeouts are read once when a SensoApi is created. All requests are sent asynchronously
+ * (getLoanOffer() just waits for getLoanOfferAsync()) through a single HttpClient, which keeps connections to the
+ * Senso API open and reuses them (multiplexing requests over one connection when the server supports HTTP/2), so
+ * that only the first request pays for the TLS handshake.
+ */
 public class SensoApi implements SensoApiInterface {
-    // API connection parameters
-    private static String sensoUrl;
-    private static String sensoKey;
+    // Default timeouts, overridden by the SENSO_API_CONNECT_TIMEOUT_MS and SENSO_API_REQUEST_TIMEOUT_MS variables
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 5000;
+    private static final int DEFAULT_REQUEST_TIMEOUT_MS = 10000;
     // Gson object for JSON/Map conversions
     private static final Gson GSON = new Gson();
+    // API connection parameters
+    private final URI rateUri;
+    private final String sensoKey;
+    private final Duration requestTimeout;
+    private final HttpClient client;
+
+    /**
+     * Create a SensoApi configured from the SENSO_API_* environment variables.
+     */
+    public SensoApi() throws MissingEnvironmentVariableException, NumberFormatException {
+        this(
+                getRequiredEnvVar("SENSO_API_URL"),
+                getRequiredEnvVar("SENSO_API_KEY"),
+                Duration.ofMillis(EnvVars.getInt("SENSO_API_CONNECT_TIMEOUT_MS", DEFAULT_CONNECT_TIMEOUT_MS)),
+                Duration.ofMillis(EnvVars.getInt("SENSO_API_REQUEST_TIMEOUT_MS", DEFAULT_REQUEST_TIMEOUT_MS))
+        );
+    }
+
+    /**
+     * Create a SensoApi for the Senso API at sensoUrl (without a trailing slash).
+     *
+     * @param sensoUrl       : root URL of the Senso API
+     * @param sensoKey       : access credential sent in the x-api-key header
+     * @param connectTimeout : how long to wait for a new connection to be established
+     * @param requestTimeout : how long to wait for the response to a request
+     */
+    SensoApi(String sensoUrl, String sensoKey, Duration connectTimeout, Duration requestTimeout) {
+        this.rateUri = URI.create(sensoUrl + "/rate");
+        this.sensoKey = sensoKey;
+        this.requestTimeout = requestTimeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
 
     @Override
     public Map<String, Object> getLoanOffer(
@@ -49,6 +96,26 @@ public class SensoApi implements SensoApiInterface {
             String listPrice,
             String downPayment
     ) throws IOException, InterruptedException {
+        // send the request asynchronously and wait for its response on this thread
+        EntLoanQuote quote = SensoApiInterface.awaitQuote(getLoanOfferAsync(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        ));
+        return quote.toResponse();
+    }
+
+    @Override
+    public CompletableFuture<EntLoanQuote> getLoanOfferAsync(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) {
         // create request body
         Map<String, String> queryMap = new HashMap<>() {{
             put("loanAmount", loanAmount);
@@ -64,63 +131,41 @@ public class SensoApi implements SensoApiInterface {
         // convert request body to JSON string
         String queryBody = GSON.toJson(queryMap, Map.class);
 
-        // get the Senso API URL and KEY from environment variables
-        getEnvVars();
-
-        // make the API call and collect response
-        HttpResponse<String> response = httpRequest(queryBody);
-
-        // construct the return data as a HashMap
-        return new HashMap<>() {{
-            put("status", response.statusCode());
-            put("body", GSON.fromJson(response.body(), Map.class));
-        }};
+        // make the API call, and construct the quote from the response once it arrives
+        return httpRequestAsync(queryBody).thenApply(response -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> responseBody = GSON.fromJson(response.body(), Map.class);
+            return new EntLoanQuote(response.statusCode(), responseBody);
+        });
     }
 
     /**
-     * Gets necessary environment variables.
+     * Return the value of the environment variable varName, or throw an error if it is not set.
      */
-    private static void getEnvVars() throws MissingEnvironmentVariableException {
-        // attempt to obtain the relevant environment variables
-        String url = System.getenv("SENSO_API_URL");
-        String key = System.getenv("SENSO_API_KEY");
-
-        // if a relevant environment variable is not set, throw an error
-        if (url == null) {
-            throw new MissingEnvironmentVariableException(
-                    "\n\n\t> \"SENSO_API_URL\" not specified in environment variables. \n"
-            );
-        }
-        if (key == null) {
+    private static String getRequiredEnvVar(String varName) throws MissingEnvironmentVariableException {
+        String varValue = System.getenv(varName);
+        if (varValue == null) {
             throw new MissingEnvironmentVariableException(
-                    "\n\n\t> \"SENSO_API_KEY\" not specified in environment variables. \n"
+                    "\n\n\t> \"" + varName + "\" not specified in environment variables. \n"
             );
         }
-
-        // if the environment variables are set, set the corresponding private variables
-        sensoUrl = url;
-        sensoKey = key;
+        return varValue;
     }
 
     /**
-     * Make an httpRequest with to the Senso /rate api with the specified requestBody.
+     * Send an httpRequest to the Senso /rate api with the specified requestBody, without waiting for the response.
      */
-    private static HttpResponse<String> httpRequest(String requestBody)
-            throws IOException, InterruptedException {
+    private CompletableFuture<HttpResponse<String>> httpRequestAsync(String requestBody) {
         // create an HTTP POST request
         var request = HttpRequest.newBuilder()
-                .uri(URI.create(sensoUrl + "/rate"))
+                .uri(rateUri)
+                .timeout(requestTimeout)
                 .header("Content-Type", "application/json")
                 .header("x-api-key", sensoKey)
                 .POST(HttpRequest.BodyPublishers.ofString(requestBody))
                 .build();
 
-        // create an HTTP client
-        var client = HttpClient.newHttpClient();
-
-        // use the HTTP client to send the request
-        var response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-        return response;
+        // use the shared HTTP client to send the request
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package tech.autodirect.api.upstream;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Responsible for identifying a Senso /rate request by its nine parameters, in canonical form.
+ *
+ * Two requests that Senso would treat the same get equal keys, even if their parameters are written
+ * differently: numbers are compared by value ("1000", "1000.0" and " 1e3" are the same) and the vehicle
+ * make and model ignore case and surrounding whitespace.
+ */
+public final class SensoRequestKey {
+    private final String[] params;
+    private final int hash;
+
+    public SensoRequestKey(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) {
+        this.params = new String[] {
+                canonicalNumber(loanAmount),
+                canonicalNumber(creditScore),
+                canonicalNumber(budget),
+                canonicalText(vehicleMake),
+                canonicalText(vehicleModel),
+                canonicalNumber(vehicleYear),
+                canonicalNumber(vehicleKms),
+                canonicalNumber(listPrice),
+                canonicalNumber(downPayment)
+        };
+        this.hash = Arrays.hashCode(params);
+    }
+
+    /**
+     * Write value as a plain decimal without trailing zeros, or just trim it if it is not a number.
+     */
+    private static String canonicalNumber(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return new BigDecimal(trimmed).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return trimmed;
+        }
+    }
+
+    /**
+     * Trim value, collapse runs of whitespace and lower-case it.
+     */
+    private static String canonicalText(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SensoRequestKey)) {
+            return false;
+        }
+        SensoRequestKey otherKey = (SensoRequestKey) other;
+        return hash == otherKey.hash && Arrays.equals(params, otherKey.params);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "SensoRequestKey" + Arrays.toString(params);
+    }
+}
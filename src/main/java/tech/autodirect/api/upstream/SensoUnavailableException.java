@@ -0,0 +1,50 @@
+package tech.autodirect.api.upstream;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Responsible for signalling that a Senso /rate request was not sent, because the Senso API is considered
+ * unavailable (its circuit breaker is open) or too many requests to it are already in flight or queued.
+ *
+ * These are thrown instead of waiting on the Senso API, often for many requests in a row, so they do not
+ * record a stack trace.
+ */
+public class SensoUnavailableException extends IOException {
+
+    public SensoUnavailableException(String message) {
+        super(message);
+    }
+
+    /**
+     * Return whether error (e.g. the error a CompletableFuture failed with) is, or wraps, a
+     * SensoUnavailableException.
+     */
+    public static boolean isCauseOf(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof SensoUnavailableException;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
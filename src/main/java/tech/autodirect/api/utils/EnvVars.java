@@ -0,0 +1,40 @@
+package tech.autodirect.api.utils;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+/**
+ * Responsible for reading optional configuration values from environment variables.
+ */
+public class EnvVars {
+    /**
+     * Return the value of the environment variable varName parsed as an int,
+     * or defaultValue if the variable is not set.
+     */
+    public static int getInt(String varName, int defaultValue) throws NumberFormatException {
+        String varValue = System.getenv(varName);
+        if (varValue == null || varValue.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(varValue.trim());
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException(
+                    "\"" + varName + "\" must be an integer, got \"" + varValue + "\""
+            );
+        }
+    }
+}
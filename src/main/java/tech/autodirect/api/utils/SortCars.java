@@ -0,0 +1,213 @@
+package tech.autodirect.api.utils;
+
+/*
+Copyright (c) 2021 Ruofan Chen, Samm Du, Nada Eldin, Shalev Lifshitz
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responsible for sorting lists of car (or car and offer) maps by a numeric key.
+ */
+public class SortCars {
+    // Runs shorter than this are sorted with insertion sort before merging
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * Return a new list holding the maps in maps sorted by the value corresponding to key
+     * (which must be a Number, e.g. Double or BigDecimal). sortAsc defines whether we sort
+     * by ascending order or not.
+     *
+     * The sort is stable in both directions: maps with equal values keep their relative order from maps.
+     * Each value is read from its map exactly once, so the sort itself never touches the maps.
+     */
+    public static List<Map<String, Object>> sortByKey(
+            List<Map<String, Object>> maps,
+            String key,
+            boolean sortAsc
+    ) {
+        int n = maps.size();
+
+        // Pull each map's sort key out once into a primitive array. For descending order the keys
+        // are negated so that a single ascending, stable merge sort serves both directions.
+        double[] keys = extractKeys(maps, key, sortAsc);
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[n], keys, 0, n);
+
+        List<Map<String, Object>> sorted = new ArrayList<>(n);
+        for (int index : order) {
+            sorted.add(maps.get(index));
+        }
+        return sorted;
+    }
+
+    /**
+     * Return the first k maps of sortByKey(maps, key, sortAsc) (or all of them, if there are fewer than k),
+     * without sorting the whole list.
+     *
+     * Keeps the best k maps seen so far in a bounded heap, which takes O(n log k) time instead of O(n log n)
+     * and only O(k) extra memory for the result, so it is much cheaper than a full sort when k is small.
+     */
+    public static List<Map<String, Object>> topByKey(
+            List<Map<String, Object>> maps,
+            String key,
+            boolean sortAsc,
+            int k
+    ) {
+        int n = maps.size();
+        if (k >= n) {
+            return sortByKey(maps, key, sortAsc);
+        }
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+
+        double[] keys = extractKeys(maps, key, sortAsc);
+
+        // Max-heap of map indices holding the k best maps seen so far; the worst of them is at the root.
+        // Ties are broken by index so that the result matches the stable order of sortByKey().
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, keys, size);
+                size++;
+            } else if (comesBefore(keys, i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, keys, 0, size);
+            }
+        }
+
+        // Repeatedly move the worst remaining map to the end of the heap to get the k maps in order
+        for (int end = size - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, keys, 0, end);
+        }
+
+        List<Map<String, Object>> top = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            top.add(maps.get(heap[i]));
+        }
+        return top;
+    }
+
+    /**
+     * Return whether the map at index a comes before the map at index b in the stable sorted order.
+     */
+    private static boolean comesBefore(double[] keys, int a, int b) {
+        int comparison = Double.compare(keys[a], keys[b]);
+        return comparison < 0 || (comparison == 0 && a < b);
+    }
+
+    private static void siftUp(int[] heap, double[] keys, int position) {
+        int index = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!comesBefore(keys, heap[parent], index)) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = index;
+    }
+
+    private static void siftDown(int[] heap, double[] keys, int position, int size) {
+        int index = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && comesBefore(keys, heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!comesBefore(keys, index, heap[child])) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = index;
+    }
+
+    /**
+     * Return the value corresponding to key for every map in maps as a double (negated if not sortAsc).
+     */
+    private static double[] extractKeys(List<Map<String, Object>> maps, String key, boolean sortAsc) {
+        double[] keys = new double[maps.size()];
+        int i = 0;
+        for (Map<String, Object> map : maps) {
+            double value = ((Number) map.get(key)).doubleValue();
+            // Adding 0.0 turns -0.0 into 0.0 so both compare as equal, like they did with < and >
+            keys[i++] = (sortAsc ? value : -value) + 0.0;
+        }
+        return keys;
+    }
+
+    /**
+     * Stable merge sort of order[from, to) by keys[order[i]], using buffer as scratch space.
+     */
+    private static void mergeSort(int[] order, int[] buffer, double[] keys, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(order, keys, from, to);
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(order, buffer, keys, from, mid);
+        mergeSort(order, buffer, keys, mid, to);
+
+        // Both halves are already in order relative to each other, nothing to merge
+        if (Double.compare(keys[order[mid - 1]], keys[order[mid]]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            // Only take from the right half when strictly smaller, which keeps the sort stable
+            if (right >= to || (left < mid && Double.compare(keys[buffer[left]], keys[buffer[right]]) <= 0)) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Stable insertion sort of order[from, to) by keys[order[i]].
+     */
+    private static void insertionSort(int[] order, double[] keys, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int current = order[i];
+            double currentKey = keys[current];
+            int j = i - 1;
+            while (j >= from && Double.compare(keys[order[j]], currentKey) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package tech.autodirect.api;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.autodirect.api.database.InMemoryTableCars;
+import tech.autodirect.api.database.InMemoryTableOffers;
+import tech.autodirect.api.database.InMemoryTableUsers;
+import tech.autodirect.api.upstream.PendingSensoApi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of the endpoints, with in-memory tables and Senso API.
+ */
+class ApiEndpointsTest {
+    private static final String USER_ID = "user";
+    private static final int NUM_CARS = 3;
+    private InMemoryTableCars tableCars;
+    private InMemoryTableUsers tableUsers;
+    private InMemoryTableOffers tableOffers;
+    private PendingSensoApi pendingSensoApi;
+
+    /**
+     * Tests that /searchStream writes a result line per approved offer, then a summary line with all results.
+     */
+    @Test
+    void testSearchStreamWritesResultsAndSummary() {
+        try {
+            pendingSensoApi.answerWith(200, PendingSensoApi.approvedBody(10000));
+            List<Map<String, Object>> lines = searchStream(new ApiEndpoints(
+                    tableCars, tableUsers, tableOffers, pendingSensoApi
+            ));
+
+            assert lines.size() == NUM_CARS + 1;
+            for (int i = 0; i < NUM_CARS; i++) {
+                assert lines.get(i).get("type").equals("result");
+            }
+            assert lines.get(NUM_CARS).get("type").equals("summary");
+            assert ((List<?>) lines.get(NUM_CARS).get("data")).size() == NUM_CARS;
+        } catch (IOException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that /searchStream ends with an error line when the search fails, including with an unchecked
+     * exception (which only gives a generic message).
+     */
+    @Test
+    void testSearchStreamWritesErrorLine() {
+        try {
+            pendingSensoApi.answerWith(200, PendingSensoApi.approvedBody(10000));
+            InMemoryTableOffers failingTableOffers = new InMemoryTableOffers(tableCars) {
+                @Override
+                public synchronized String createTable(String userId) {
+                    throw new IllegalStateException("offers table is broken");
+                }
+            };
+            List<Map<String, Object>> lines = searchStream(new ApiEndpoints(
+                    tableCars, tableUsers, failingTableOffers, pendingSensoApi
+            ));
+            assert lines.size() == 1;
+            assert lines.get(0).get("type").equals("error");
+            assert lines.get(0).get("message").equals("Server Error!");
+
+            tableUsers.removeUserById(USER_ID);
+            lines = searchStream(new ApiEndpoints(tableCars, tableUsers, tableOffers, pendingSensoApi));
+            assert lines.size() == 1;
+            assert lines.get(0).get("type").equals("error");
+            assert ((String) lines.get(0).get("message")).startsWith("404 NOT_FOUND");
+        } catch (IOException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that /searchStream stops the search, and removes the offers it added, once a line can not be written.
+     */
+    @Test
+    void testSearchStreamStopsWhenClientGone() {
+        try {
+            pendingSensoApi.answerWith(200, PendingSensoApi.approvedBody(10000));
+            ApiEndpoints apiEndpoints = new ApiEndpoints(tableCars, tableUsers, tableOffers, pendingSensoApi);
+            OutputStream closedStream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("client went away");
+                }
+            };
+
+            try {
+                apiEndpoints.searchStream(USER_ID, "2000", "300", "price", "true", null, null)
+                        .getBody()
+                        .writeTo(closedStream);
+                assert false;
+            } catch (IOException e) {
+                assert e.getMessage().equals("client went away");
+            }
+            assert !tableOffers.checkHasOffers(USER_ID);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that /sensoStats gives no statistics, instead of failing, when there is nothing in front of the Senso
+     * API.
+     */
+    @Test
+    void testSensoStatsWithoutWrappers() {
+        ApiEndpoints apiEndpoints = new ApiEndpoints(tableCars, tableUsers, tableOffers, pendingSensoApi);
+        assert ((Map<?, ?>) apiEndpoints.sensoStats()).isEmpty();
+    }
+
+    /**
+     * Run /searchStream for USER_ID with new search params and return its lines, parsed.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> searchStream(ApiEndpoints apiEndpoints) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        apiEndpoints.searchStream(USER_ID, "2000", "300", "price", "true", null, null).getBody().writeTo(out);
+
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(new Gson().fromJson(line, Map.class));
+        }
+        return lines;
+    }
+
+    @BeforeEach
+    void setUpEach() throws SQLException {
+        tableCars = new InMemoryTableCars();
+        for (int i = 1; i <= NUM_CARS; i++) {
+            tableCars.addCar("brand" + i, "model" + i, 2020, 10000 * i, 1000);
+        }
+        tableUsers = new InMemoryTableUsers();
+        tableUsers.addUser(USER_ID, 700, 1000, 200);
+        tableOffers = new InMemoryTableOffers(tableCars);
+        pendingSensoApi = new PendingSensoApi();
+    }
+}
@@ -0,0 +1,176 @@
+package tech.autodirect.api.database;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntCar;
+import tech.autodirect.api.interfaces.TableCarsInterface;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.*;
+
+class CachedTableCarsTest {
+
+    /**
+     * Tests that getAllCars() and getCarById() are served from the snapshot without querying the cars table.
+     */
+    @Test
+    void testReadsDoNotQueryTable() {
+        try {
+            FakeTableCars fakeTableCars = new FakeTableCars();
+            fakeTableCars.addCar("nissan", "sedan", 2017, 6700, 62280);
+            fakeTableCars.addCar("ford", "mustang", 2019, 34100, 10167);
+            CachedTableCars cachedTableCars = new CachedTableCars(fakeTableCars);
+            int queriesAfterLoad = fakeTableCars.queries;
+
+            assert cachedTableCars.getAllCars().size() == 2;
+            assert cachedTableCars.getCarById(2).get("brand").equals("ford");
+            assert cachedTableCars.checkCarExists(1);
+            assert !cachedTableCars.checkCarExists(3);
+            assert fakeTableCars.queries == queriesAfterLoad;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that getAllCarEntities() and getCarEntityById() are served from the snapshot and match the maps.
+     */
+    @Test
+    void testCarEntities() {
+        try {
+            FakeTableCars fakeTableCars = new FakeTableCars();
+            fakeTableCars.addCar("nissan", "sedan", 2017, 6700, 62280);
+            fakeTableCars.addCar("ford", "mustang", 2019, 34100, 10167);
+            CachedTableCars cachedTableCars = new CachedTableCars(fakeTableCars);
+            int queriesAfterLoad = fakeTableCars.queries;
+
+            List<EntCar> cars = cachedTableCars.getAllCarEntities();
+            assert cars.size() == 2;
+            EntCar carFromMap = new EntCar();
+            carFromMap.loadFromMap(cachedTableCars.getCarById(2));
+            assert cachedTableCars.getCarEntityById(2).equals(carFromMap);
+            assert cars.get(1) == cachedTableCars.getCarEntityById(2);
+            assert fakeTableCars.queries == queriesAfterLoad;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that changing the maps returned by getAllCars() and getCarById() does not change the snapshot.
+     */
+    @Test
+    void testReturnedMapsAreCopies() {
+        try {
+            FakeTableCars fakeTableCars = new FakeTableCars();
+            fakeTableCars.addCar("nissan", "sedan", 2017, 6700, 62280);
+            CachedTableCars cachedTableCars = new CachedTableCars(fakeTableCars);
+
+            cachedTableCars.getAllCars().get(0).remove("mileage");
+            cachedTableCars.getCarById(1).put("brand", "ford");
+
+            Map<String, Object> car = cachedTableCars.getCarById(1);
+            assert car.containsKey("mileage");
+            assert car.get("brand").equals("nissan");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that cars added to the table only show up after refresh() (or addCar() on the cache itself).
+     */
+    @Test
+    void testRefresh() {
+        try {
+            FakeTableCars fakeTableCars = new FakeTableCars();
+            CachedTableCars cachedTableCars = new CachedTableCars(fakeTableCars);
+            assert cachedTableCars.size() == 0;
+
+            int carId1 = fakeTableCars.addCar("nissan", "sedan", 2017, 6700, 62280);
+            assert !cachedTableCars.checkCarExists(carId1);
+            cachedTableCars.refresh();
+            assert cachedTableCars.checkCarExists(carId1);
+
+            int carId2 = cachedTableCars.addCar("ford", "mustang", 2019, 34100, 10167);
+            assert cachedTableCars.checkCarExists(carId2);
+            assert cachedTableCars.size() == 2;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests getCarById() when the car does not exist.
+     */
+    @Test
+    void testGetCarByIdWhenNotExists() {
+        try {
+            CachedTableCars cachedTableCars = new CachedTableCars(new FakeTableCars());
+            cachedTableCars.getCarById(9999);
+            assert false;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            assert false;
+        } catch (ResponseStatusException e) {
+            assert Objects.equals(e.getMessage(), "404 NOT_FOUND \"car not found\"");
+        }
+    }
+
+    /**
+     * In-memory cars table that counts how often it is queried.
+     */
+    private static class FakeTableCars implements TableCarsInterface {
+        private final List<Map<String, Object>> cars = new ArrayList<>();
+        private int queries = 0;
+
+        @Override
+        public List<Map<String, Object>> getAllCars() {
+            queries++;
+            List<Map<String, Object>> copies = new ArrayList<>();
+            for (Map<String, Object> car : cars) {
+                copies.add(new HashMap<>(car));
+            }
+            return copies;
+        }
+
+        @Override
+        public Map<String, Object> getCarById(int carId) {
+            queries++;
+            return new HashMap<>(cars.get(carId - 1));
+        }
+
+        @Override
+        public int addCar(String brand, String model, int year, double price, double kms) {
+            Map<String, Object> car = new HashMap<>();
+            car.put("car_id", cars.size() + 1);
+            car.put("brand", brand);
+            car.put("model", model);
+            car.put("year", year);
+            car.put("price", BigDecimal.valueOf(price));
+            car.put("mileage", (float) kms);
+            cars.add(car);
+            return cars.size();
+        }
+
+        @Override
+        public List<Integer> addCars(List<EntCar> newCars) {
+            List<Integer> carIds = new ArrayList<>();
+            for (EntCar car : newCars) {
+                carIds.add(addCar(car.getBrand(), car.getModel(), car.getYear(), car.getPrice(), car.getKms()));
+            }
+            return carIds;
+        }
+
+        @Override
+        public boolean checkCarExists(int carId) {
+            queries++;
+            return carId >= 1 && carId <= cars.size();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package tech.autodirect.api.database;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import tech.autodirect.api.entities.EntCar;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+// This annotation allows us to use a non-static BeforeAll/AfterAll methods
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CarsCatalogSyncTest {
+    private static final String DB_NAME = "testing";
+    private static final String SOURCE_ID_PREFIX = "CarsCatalogSyncTest-";
+    private Connection conn;
+
+    /**
+     * Tests that syncing inserts new cars, updates only the cars that changed and leaves the others alone.
+     */
+    @Test
+    void testSyncInsertsAndUpdates() {
+        try {
+            CarsCatalogSync sync = new CarsCatalogSync(conn, false);
+            sync.stage(List.of(
+                    csvCar(1, "1", "nissan", 6700),
+                    csvCar(2, "2", "ford", 34100)
+            ));
+            CarsCatalogSync.Result result = sync.finish();
+            assert result.getInsertedCarIds().size() == 2;
+            assert result.getUpdatedCarIds().isEmpty();
+            int fordCarId = result.getInsertedCarIds().get(1);
+
+            // the same catalog again, except for a new price of the ford and a new car
+            sync = new CarsCatalogSync(conn, false);
+            sync.stage(List.of(
+                    csvCar(1, "1", "nissan", 6700),
+                    csvCar(2, "2", "ford", 30000),
+                    csvCar(3, "3", "honda", 12000)
+            ));
+            result = sync.finish();
+            assert result.getInsertedCarIds().size() == 1;
+            assert result.getUpdatedCarIds().equals(List.of(fordCarId));
+            assert result.getDeletedCarIds().isEmpty();
+
+            TableCars tableCars = new TableCars(DB_NAME);
+            assert tableCars.getCarEntityById(fordCarId).getPrice() == 30000;
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that when a source ID is staged twice, the row staged first (by row number) wins, and that a rejected
+     * row leaves its car unchanged, whether it comes before or after a valid row.
+     */
+    @Test
+    void testSyncFirstRowWinsAndRejectedRowsAreKept() {
+        try {
+            CarsCatalogSync sync = new CarsCatalogSync(conn, false);
+            sync.stage(List.of(csvCar(2, "4", "nissan", 2000)));
+            sync.stage(List.of(csvCar(1, "4", "nissan", 1000), csvCar(3, "5", "ford", 3000)));
+            CarsCatalogSync.Result result = sync.finish();
+            assert result.getInsertedCarIds().size() == 2;
+            int nissanCarId = result.getInsertedCarIds().get(0);
+
+            TableCars tableCars = new TableCars(DB_NAME);
+            assert tableCars.getCarEntityById(nissanCarId).getPrice() == 1000;
+
+            sync = new CarsCatalogSync(conn, false);
+            sync.stage(List.of(csvCar(1, "4", "nissan", 5000)));
+            sync.stageRejected(2, SOURCE_ID_PREFIX + "4");
+            result = sync.finish();
+            assert result.getUpdatedCarIds().isEmpty();
+            assert tableCars.getCarEntityById(nissanCarId).getPrice() == 1000;
+
+            sync = new CarsCatalogSync(conn, false);
+            sync.stageRejected(1, SOURCE_ID_PREFIX + "4");
+            sync.stage(List.of(csvCar(2, "4", "nissan", 5000)));
+            result = sync.finish();
+            assert result.getUpdatedCarIds().isEmpty();
+            assert tableCars.getCarEntityById(nissanCarId).getPrice() == 1000;
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that with deleteMissing, the cars whose source ID is not staged are deleted, while the cars whose row
+     * was rejected and the cars without a source ID are kept.
+     */
+    @Test
+    void testSyncDeletesMissingCars() {
+        int plainCarId = -1;
+        try {
+            CarsCatalogSync sync = new CarsCatalogSync(conn, false);
+            sync.stage(List.of(
+                    csvCar(1, "6", "nissan", 6700),
+                    csvCar(2, "7", "ford", 34100),
+                    csvCar(3, "8", "honda", 12000)
+            ));
+            CarsCatalogSync.Result result = sync.finish();
+            assert result.getInsertedCarIds().size() == 3;
+            int nissanCarId = result.getInsertedCarIds().get(0);
+            int fordCarId = result.getInsertedCarIds().get(1);
+            int hondaCarId = result.getInsertedCarIds().get(2);
+
+            TableCars tableCars = new TableCars(DB_NAME);
+            plainCarId = tableCars.addCar("toyota", "sedan", 2017, 9000, 62280);
+
+            // the ford's row is rejected and the honda is missing. The cars of the testing database that are not
+            // this test's are staged as rejected, so that they are kept.
+            sync = new CarsCatalogSync(conn, true);
+            sync.stage(List.of(csvCar(1, "6", "nissan", 6700)));
+            sync.stageRejected(2, SOURCE_ID_PREFIX + "7");
+            long rowNumber = 3;
+            for (String sourceId : otherSourceIds()) {
+                sync.stageRejected(rowNumber++, sourceId);
+            }
+            result = sync.finish();
+            assert result.getDeletedCarIds().equals(List.of(hondaCarId));
+            assert result.getInsertedCarIds().isEmpty() && result.getUpdatedCarIds().isEmpty();
+
+            assert tableCars.checkCarExists(nissanCarId);
+            assert tableCars.checkCarExists(fordCarId);
+            assert tableCars.checkCarExists(plainCarId);
+            assert !tableCars.checkCarExists(hondaCarId);
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        } finally {
+            deleteCar(plainCarId);
+        }
+    }
+
+    /**
+     * Return a valid car of the catalog with the given row number, source ID (after SOURCE_ID_PREFIX), brand and
+     * price.
+     */
+    private static CarsCsvPipeline.CsvCar csvCar(long rowNumber, String sourceId, String brand, double price) {
+        return new CarsCsvPipeline.CsvCar(
+                rowNumber, SOURCE_ID_PREFIX + sourceId, new EntCar(0, brand, "sedan", 2017, price, 62280)
+        );
+    }
+
+    @BeforeAll
+    public void setUpAll() {
+        try {
+            conn = Conn.getConn(DB_NAME);
+            InitDatabase.createCarsTable(conn);
+            SchemaMigrations.migrate(conn);  // adds the source_id column if the cars table has none yet
+            deleteTestCars();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @AfterAll
+    public void tearDownAll() {
+        try {
+            deleteTestCars();
+            conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Return the source IDs of the cars that were not added by this test class.
+     */
+    private List<String> otherSourceIds() throws SQLException {
+        List<String> sourceIds = new ArrayList<>();
+        try (
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT source_id FROM public.cars WHERE source_id IS NOT NULL AND source_id NOT LIKE ?;"
+                )
+        ) {
+            stmt.setString(1, SOURCE_ID_PREFIX + "%");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sourceIds.add(rs.getString("source_id"));
+                }
+            }
+        }
+        return sourceIds;
+    }
+
+    /**
+     * Delete the car with ID carId, if it was added (carId is not -1).
+     */
+    private void deleteCar(int carId) {
+        if (carId == -1) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM public.cars WHERE car_id = ?;")) {
+            stmt.setInt(1, carId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void deleteTestCars() throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM public.cars WHERE source_id LIKE ?;")) {
+            stmt.setString(1, SOURCE_ID_PREFIX + "%");
+            stmt.executeUpdate();
+        }
+    }
+}
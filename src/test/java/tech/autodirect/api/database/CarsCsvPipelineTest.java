@@ -0,0 +1,162 @@
+package tech.autodirect.api.database;
+
+import com.opencsv.exceptions.CsvValidationException;
+import org.junit.jupiter.api.Test;
+import tech.autodirect.api.entities.EntCar;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.*;
+
+class CarsCsvPipelineTest {
+
+    /**
+     * Tests parseCar() on a valid row.
+     */
+    @Test
+    void testParseCar() {
+        EntCar car = CarsCsvPipeline.parseCar(new String[] {"0", "6700", "nissan", "sedan", "2017", "x", "62280"});
+        assert car.getBrand().equals("nissan");
+        assert car.getModel().equals("sedan");
+        assert car.getYear() == 2017;
+        assert car.getPrice() == 6700;
+        assert car.getKms() == 62280;
+    }
+
+    /**
+     * Tests parseCar() rejects rows with missing columns, bad numbers and values out of range.
+     */
+    @Test
+    void testParseCarRejects() {
+        List<String[]> badRows = List.of(
+                new String[] {"0", "6700", "nissan", "sedan", "2017"},
+                new String[] {"0", "6700", "nissan", "sedan", "twenty", "x", "62280"},
+                new String[] {"0", "6700", "nissan", "sedan", "1200", "x", "62280"},
+                new String[] {"0", "-1", "nissan", "sedan", "2017", "x", "62280"},
+                new String[] {"0", "6700", "", "sedan", "2017", "x", "62280"},
+                new String[] {"0", "6700", "nissan", "sedan", "2017", "x", "NaN"}
+        );
+        for (String[] row : badRows) {
+            try {
+                CarsCsvPipeline.parseCar(row);
+                assert false;
+            } catch (IllegalArgumentException e) {
+                assert e.getMessage() != null;
+            }
+        }
+    }
+
+    /**
+     * Tests parseSourceId() trims the id and rejects empty ids.
+     */
+    @Test
+    void testParseSourceId() {
+        assert CarsCsvPipeline.parseSourceId(new String[] {" 42 ", "6700"}).equals("42");
+        try {
+            CarsCsvPipeline.parseSourceId(new String[] {" ", "6700"});
+            assert false;
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().equals("id is empty");
+        }
+    }
+
+    /**
+     * Tests that run() writes every valid car and rejects every bad row (with its row number), in small chunks
+     * with several workers.
+     */
+    @Test
+    void testRun() {
+        try {
+            List<String[]> rows = new ArrayList<>();
+            for (int i = 1; i <= 100; i++) {
+                String year = i % 10 == 0 ? "bad" : "2017";
+                rows.add(new String[] {"id" + i, Integer.toString(i), "nissan", "sedan", year, "x", "62280"});
+            }
+            Iterator<String[]> rowIterator = rows.iterator();
+
+            List<CarsCsvPipeline.CsvCar> written = new ArrayList<>();
+            Map<Long, String> rejected = new HashMap<>();
+            CarsCsvPipeline.Result result = new CarsCsvPipeline(3, 7, 2).run(
+                    () -> rowIterator.hasNext() ? rowIterator.next() : null,
+                    written::addAll,
+                    (rowNumber, row, reason) -> rejected.put(rowNumber, reason)
+            );
+
+            assert result.getWritten() == 90 && written.size() == 90;
+            assert result.getRejected() == 10 && rejected.size() == 10;
+            assert rejected.containsKey(10L) && rejected.containsKey(100L);
+            Set<Double> prices = new HashSet<>();
+            for (CarsCsvPipeline.CsvCar csvCar : written) {
+                prices.add(csvCar.getCar().getPrice());
+                assert csvCar.getSourceId().equals("id" + csvCar.getRowNumber());
+            }
+            assert prices.size() == 90 && prices.contains(1.0) && !prices.contains(10.0);
+        } catch (IOException | SQLException | InterruptedException | CsvValidationException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that run() rejects rows whose source ID is already loaded or was written before, keeping the first car
+     * in the file for each source ID.
+     */
+    @Test
+    void testRunRejectsDuplicateSourceIds() {
+        try {
+            List<String[]> rows = new ArrayList<>();
+            for (int i = 1; i <= 60; i++) {
+                // ids 0 to 19 each appear three times
+                rows.add(new String[] {"id" + (i % 20), Integer.toString(i), "nissan", "sedan", "2017", "x", "62280"});
+            }
+            rows.add(new String[] {"loaded", "1", "nissan", "sedan", "2017", "x", "62280"});
+            rows.add(new String[] {"loaded", "1", "nissan", "sedan", "2017", "x", "62280"});
+            Iterator<String[]> rowIterator = rows.iterator();
+
+            List<CarsCsvPipeline.CsvCar> written = new ArrayList<>();
+            Map<Long, String> rejected = new HashMap<>();
+            CarsCsvPipeline.Result result = new CarsCsvPipeline(3, 7, 2, Set.of("loaded")).run(
+                    () -> rowIterator.hasNext() ? rowIterator.next() : null,
+                    written::addAll,
+                    (rowNumber, row, reason) -> rejected.put(rowNumber, reason)
+            );
+
+            assert result.getWritten() == 20 && written.size() == 20;
+            assert result.getRejected() == 42 && rejected.size() == 42;
+            assert rejected.get(61L).equals("id is already in the cars table: loaded");
+            assert rejected.get(62L).equals("id is already in the cars table: loaded");
+            // rows 1 to 20 are written, in the file's order, and the rows after them point back at them
+            for (int i = 0; i < written.size(); i++) {
+                assert written.get(i).getRowNumber() == i + 1;
+            }
+            for (long rowNumber = 21; rowNumber <= 60; rowNumber++) {
+                assert rejected.get(rowNumber).equals("id is the same as in row " + ((rowNumber - 1) % 20 + 1));
+            }
+        } catch (IOException | SQLException | InterruptedException | CsvValidationException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that run() stops and throws the exception when writing fails.
+     */
+    @Test
+    void testRunWhenWriteFails() {
+        try {
+            new CarsCsvPipeline(2, 1, 1).run(
+                    () -> new String[] {"0", "6700", "nissan", "sedan", "2017", "x", "62280"},  // never ends
+                    cars -> {
+                        throw new SQLException("write failed");
+                    },
+                    (rowNumber, row, reason) -> {}
+            );
+            assert false;
+        } catch (SQLException e) {
+            assert e.getMessage().equals("write failed");
+        } catch (IOException | InterruptedException | CsvValidationException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package tech.autodirect.api.database;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntCar;
+import tech.autodirect.api.interfaces.TableCarsInterface;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cars table for tests, held in memory. Car IDs start at 1 and rows are returned as the cars table returns them
+ * (e.g. mileage as a Float).
+ */
+public class InMemoryTableCars implements TableCarsInterface {
+    private final List<Map<String, Object>> cars = new ArrayList<>();
+
+    @Override
+    public synchronized List<Map<String, Object>> getAllCars() {
+        List<Map<String, Object>> copies = new ArrayList<>();
+        for (Map<String, Object> car : cars) {
+            copies.add(new HashMap<>(car));
+        }
+        return copies;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getCarById(int carId) {
+        if (!checkCarExists(carId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "car not found");
+        }
+        return new HashMap<>(cars.get(carId - 1));
+    }
+
+    @Override
+    public synchronized int addCar(String brand, String model, int year, double price, double kms) {
+        Map<String, Object> car = new HashMap<>();
+        car.put("car_id", cars.size() + 1);
+        car.put("brand", brand);
+        car.put("model", model);
+        car.put("year", year);
+        car.put("price", BigDecimal.valueOf(price));
+        car.put("mileage", (float) kms);
+        cars.add(car);
+        return cars.size();
+    }
+
+    @Override
+    public synchronized List<Integer> addCars(List<EntCar> newCars) {
+        List<Integer> carIds = new ArrayList<>();
+        for (EntCar car : newCars) {
+            carIds.add(addCar(car.getBrand(), car.getModel(), car.getYear(), car.getPrice(), car.getKms()));
+        }
+        return carIds;
+    }
+
+    @Override
+    public synchronized boolean checkCarExists(int carId) {
+        return carId >= 1 && carId <= cars.size();
+    }
+}
@@ -0,0 +1,207 @@
+package tech.autodirect.api.database;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntOffer;
+import tech.autodirect.api.interfaces.TableCarsInterface;
+import tech.autodirect.api.interfaces.TableOffersInterface;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Offers tables for tests, held in memory. Rows are returned as the offers tables return them (e.g. money as
+ * BigDecimal), and offers are joined with the cars of tableCars.
+ */
+public class InMemoryTableOffers implements TableOffersInterface {
+    private final TableCarsInterface tableCars;
+    // Offers of each user (by the name of their offers table), by offer ID
+    private final Map<String, Map<Integer, Map<String, Object>>> tables = new HashMap<>();
+    private int nextOfferId = 1;
+
+    public InMemoryTableOffers(TableCarsInterface tableCars) {
+        this.tableCars = tableCars;
+    }
+
+    @Override
+    public synchronized String createTable(String userId) throws SQLException {
+        String tableName = TableOffersInterface.createTableName(userId);
+        tables.putIfAbsent(tableName, new LinkedHashMap<>());
+        return tableName;
+    }
+
+    @Override
+    public synchronized int addOffer(
+            String userId,
+            int carId,
+            double loanAmount,
+            double capitalSum,
+            double interestSum,
+            double totalSum,
+            double interestRate,
+            double termMo,
+            String installments,
+            boolean claimed
+    ) throws SQLException {
+        int offerId = nextOfferId++;
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("offer_id", offerId);
+        offer.put("car_id", carId);
+        offer.put("loan_amount", BigDecimal.valueOf(loanAmount));
+        offer.put("capital_sum", BigDecimal.valueOf(capitalSum));
+        offer.put("interest_sum", BigDecimal.valueOf(interestSum));
+        offer.put("total_sum", BigDecimal.valueOf(totalSum));
+        offer.put("interest_rate", (float) interestRate);
+        offer.put("term_mo", (float) termMo);
+        offer.put("installments", installments);
+        offer.put("claimed", claimed);
+        offers(userId).put(offerId, offer);
+        return offerId;
+    }
+
+    @Override
+    public synchronized List<EntOffer> addOffers(String userId, List<EntOffer> offers) throws SQLException {
+        List<EntOffer> addedOffers = new ArrayList<>();
+        for (EntOffer offer : offers) {
+            int offerId = addOffer(
+                    userId, offer.getCarId(), offer.getLoanAmount(), offer.getCapitalSum(), offer.getInterestSum(),
+                    offer.getTotalSum(), offer.getInterestRate(), offer.getTermMo(), offer.getInstallments(),
+                    offer.isClaimed()
+            );
+            addedOffers.add(getOfferEntityByOfferId(userId, offerId));
+        }
+        return addedOffers;
+    }
+
+    @Override
+    public synchronized void removeOfferByOfferId(String userId, int offerId) throws SQLException {
+        if (offers(userId).remove(offerId) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "offer not found");
+        }
+    }
+
+    @Override
+    public synchronized void removeAllOffers(String userId) throws SQLException {
+        offers(userId).clear();
+    }
+
+    @Override
+    public synchronized Map<String, Object> getOfferByOfferId(String userId, int offerId) throws SQLException {
+        Map<String, Object> offer = offers(userId).get(offerId);
+        if (offer == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "offer not found");
+        }
+        return new HashMap<>(offer);
+    }
+
+    @Override
+    public synchronized List<Map<String, Object>> getAllOffers(String userId) throws SQLException {
+        List<Map<String, Object>> offers = new ArrayList<>();
+        for (Map<String, Object> offer : offers(userId).values()) {
+            offers.add(new HashMap<>(offer));
+        }
+        return offers;
+    }
+
+    @Override
+    public synchronized List<Map<String, Object>> getClaimedOffers(String userId) throws SQLException {
+        List<Map<String, Object>> offers = new ArrayList<>();
+        for (Map<String, Object> offer : getAllOffers(userId)) {
+            if ((boolean) offer.get("claimed")) {
+                offers.add(offer);
+            }
+        }
+        return offers;
+    }
+
+    @Override
+    public synchronized List<Map<String, Object>> getAllOffersWithCars(String userId) throws SQLException {
+        return withCars(getAllOffers(userId));
+    }
+
+    @Override
+    public synchronized List<Map<String, Object>> getClaimedOffersWithCars(String userId) throws SQLException {
+        return withCars(getClaimedOffers(userId));
+    }
+
+    /**
+     * Return offers with the columns of their cars, leaving out the offers whose car does not exist.
+     */
+    private List<Map<String, Object>> withCars(List<Map<String, Object>> offers) throws SQLException {
+        List<Map<String, Object>> offersWithCars = new ArrayList<>();
+        for (Map<String, Object> offer : offers) {
+            int carId = (int) offer.get("car_id");
+            if (tableCars.checkCarExists(carId)) {
+                Map<String, Object> offerWithCar = new HashMap<>(tableCars.getCarById(carId));
+                offerWithCar.putAll(offer);
+                offersWithCars.add(offerWithCar);
+            }
+        }
+        return offersWithCars;
+    }
+
+    @Override
+    public synchronized void markOfferClaimed(String userId, int offerId) throws SQLException {
+        updateOfferColumn(userId, offerId, "claimed", true);
+    }
+
+    @Override
+    public synchronized void markOfferUnclaimed(String userId, int offerId) throws SQLException {
+        updateOfferColumn(userId, offerId, "claimed", false);
+    }
+
+    @Override
+    public synchronized void dropTable(String tableName) {
+        tables.remove(tableName);
+    }
+
+    @Override
+    public synchronized boolean checkTableExists(String tableName) {
+        return tables.containsKey(tableName);
+    }
+
+    @Override
+    public synchronized boolean checkOfferExists(String userId, int offerId) throws SQLException {
+        return offers(userId).containsKey(offerId);
+    }
+
+    @Override
+    public synchronized boolean checkHasOffers(String userId) throws SQLException {
+        return !offers(userId).isEmpty();
+    }
+
+    @Override
+    public synchronized void updateOfferColumn(
+            String userId,
+            int offerId,
+            OfferColumns column,
+            Object newValue
+    ) throws SQLException {
+        updateOfferColumn(userId, offerId, column.name().toLowerCase(Locale.ROOT), newValue);
+    }
+
+    private void updateOfferColumn(String userId, int offerId, String column, Object newValue) throws SQLException {
+        Map<String, Object> offer = offers(userId).get(offerId);
+        if (offer == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "offer not found");
+        }
+        offer.put(column, newValue);
+    }
+
+    /**
+     * Return the offers of userId's offers table, which must have been created.
+     */
+    private Map<Integer, Map<String, Object>> offers(String userId) throws SQLException {
+        Map<Integer, Map<String, Object>> offers = tables.get(TableOffersInterface.createTableName(userId));
+        if (offers == null) {
+            throw new SQLException("relation \"" + TableOffersInterface.createTableName(userId) + "\" does not exist");
+        }
+        return offers;
+    }
+}
@@ -0,0 +1,57 @@
+package tech.autodirect.api.database;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.interfaces.TableOffersInterface;
+import tech.autodirect.api.interfaces.TableUsersInterface;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Users table for tests, held in memory. Rows are returned as the users table returns them (e.g. money as
+ * BigDecimal), and as copies, so that changing a user does not change the rows returned before.
+ */
+public class InMemoryTableUsers implements TableUsersInterface {
+    private final Map<String, Map<String, Object>> users = new HashMap<>();
+
+    @Override
+    public synchronized void addUser(String userId, int creditScore, double downPayment, double budgetMonthly)
+            throws SQLException {
+        Map<String, Object> user = new HashMap<>();
+        user.put("user_id", userId);
+        user.put("credit_score", creditScore);
+        user.put("down_payment", BigDecimal.valueOf(downPayment));
+        user.put("budget_mo", BigDecimal.valueOf(budgetMonthly));
+        user.put("offers_table", TableOffersInterface.createTableName(userId));
+        users.put(userId, user);
+    }
+
+    @Override
+    public synchronized Map<String, Object> getUserById(String userId) {
+        if (!checkUserExists(userId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found");
+        }
+        return new HashMap<>(users.get(userId));
+    }
+
+    @Override
+    public synchronized void removeUserById(String userId) {
+        users.remove(userId);
+    }
+
+    @Override
+    public synchronized boolean checkUserExists(String userId) {
+        return users.containsKey(userId);
+    }
+
+    @Override
+    public synchronized void updateUserColumn(String userId, UserColumns column, Object newValue) {
+        users.get(userId).put(
+                column.name().toLowerCase(Locale.ROOT), BigDecimal.valueOf(((Number) newValue).doubleValue())
+        );
+    }
+}
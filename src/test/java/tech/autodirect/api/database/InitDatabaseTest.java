@@ -0,0 +1,191 @@
+package tech.autodirect.api.database;
+
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvValidationException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// This annotation allows us to use a non-static BeforeAll/AfterAll methods
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class InitDatabaseTest {
+    private static final String DB_NAME = "testing";
+    private static final String SOURCE_ID_PREFIX = "InitDatabaseTest-";
+    private Path csvPath;
+
+    /**
+     * Tests that copyCarsCsv() adds the cars of a CSV file whose brands and models hold quotes and commas
+     * unchanged, through a pooled connection.
+     */
+    @Test
+    void testCopyCarsCsvQuotesAndCommas() {
+        try {
+            writeCsv(List.of(
+                    row("1", "Land Rover, \"Defender\"", "SUV, 4x4"),
+                    row("2", "\"Mercedes\"", "\"\""),
+                    row("3", "nissan", "sedan")
+            ));
+            CarsCsvPipeline.Result result;
+            try (Connection conn = Conn.getDataSource(DB_NAME).getConnection()) {
+                result = InitDatabase.copyCarsCsv(conn, csvPath.toString());
+                assert conn.getAutoCommit();
+            }
+            assert result.getWritten() == 3 && result.getRejected() == 0;
+
+            Map<String, String> brandsAndModels = loadBrandsAndModels();
+            assert brandsAndModels.size() == 3;
+            assert brandsAndModels.get(SOURCE_ID_PREFIX + "1").equals("Land Rover, \"Defender\"|SUV, 4x4");
+            assert brandsAndModels.get(SOURCE_ID_PREFIX + "2").equals("\"Mercedes\"|\"\"");
+            assert brandsAndModels.get(SOURCE_ID_PREFIX + "3").equals("nissan|sedan");
+        } catch (
+                IOException | CsvValidationException | SQLException | InterruptedException | ClassNotFoundException e
+        ) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that when the database refuses one of the cars copied by copyCarsCsv(), none of them are added.
+     */
+    @Test
+    void testCopyCarsCsvFailureAddsNoCars() {
+        try {
+            // a NUL character is a valid brand for the pipeline, but can not be stored in a text column
+            writeCsv(List.of(
+                    row("1", "nissan", "sedan"),
+                    row("2", "ford", "pickup"),
+                    row("3", "hon\u0000da", "civic")
+            ));
+            long carsBefore = countCars();
+            try (Connection conn = Conn.getDataSource(DB_NAME).getConnection()) {
+                try {
+                    InitDatabase.copyCarsCsv(conn, csvPath.toString());
+                    assert false;
+                } catch (SQLException e) {
+                    // expected
+                }
+                assert conn.getAutoCommit();
+            }
+            assert countCars() == carsBefore;
+            assert loadBrandsAndModels().isEmpty();
+        } catch (
+                IOException | CsvValidationException | SQLException | InterruptedException | ClassNotFoundException e
+        ) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Return a row of the cars CSV file with the given source ID (after SOURCE_ID_PREFIX), brand and model.
+     */
+    private static String[] row(String sourceId, String brand, String model) {
+        return new String[] {SOURCE_ID_PREFIX + sourceId, "6700", brand, model, "2017", "x", "62280"};
+    }
+
+    /**
+     * Write a cars CSV file with a header and rows to csvPath.
+     */
+    private void writeCsv(List<String[]> rows) throws IOException {
+        try (CSVWriter writer = new CSVWriter(new FileWriter(csvPath.toString()))) {
+            writer.writeNext(new String[] {"id", "price", "brand", "model", "year", "type", "mileage"});
+            for (String[] row : rows) {
+                writer.writeNext(row);
+            }
+        }
+    }
+
+    /**
+     * Return "brand|model" of the cars added by this test class, by source ID.
+     */
+    private Map<String, String> loadBrandsAndModels() throws SQLException, ClassNotFoundException {
+        Map<String, String> brandsAndModels = new HashMap<>();
+        try (
+                Connection conn = Conn.getDataSource(DB_NAME).getConnection();
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT source_id, brand, model FROM public.cars WHERE source_id LIKE ?;"
+                )
+        ) {
+            stmt.setString(1, SOURCE_ID_PREFIX + "%");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    brandsAndModels.put(rs.getString("source_id"), rs.getString("brand") + "|" + rs.getString("model"));
+                }
+            }
+        }
+        return brandsAndModels;
+    }
+
+    /**
+     * Return the number of cars in the cars table.
+     */
+    private long countCars() throws SQLException, ClassNotFoundException {
+        try (
+                Connection conn = Conn.getDataSource(DB_NAME).getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT count(*) FROM public.cars;");
+                ResultSet rs = stmt.executeQuery()
+        ) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @BeforeAll
+    public void setUpAll() {
+        try {
+            csvPath = Files.createTempFile("InitDatabaseTest", ".csv");
+            try (Connection conn = Conn.getConn(DB_NAME)) {
+                InitDatabase.createCarsTable(conn);
+                SchemaMigrations.migrate(conn);  // adds the source_id column if the cars table has none yet
+            }
+            deleteTestCars();
+        } catch (IOException | SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        try {
+            deleteTestCars();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @AfterAll
+    public void tearDownAll() {
+        try {
+            Files.deleteIfExists(csvPath);
+            Files.deleteIfExists(Path.of(InitDatabase.getRejectPath(csvPath.toString())));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void deleteTestCars() throws SQLException, ClassNotFoundException {
+        try (
+                Connection conn = Conn.getDataSource(DB_NAME).getConnection();
+                PreparedStatement stmt = conn.prepareStatement("DELETE FROM public.cars WHERE source_id LIKE ?;")
+        ) {
+            stmt.setString(1, SOURCE_ID_PREFIX + "%");
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package tech.autodirect.api.database;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.util.logging.Logger;
+
+class KnownTablesTest {
+
+    /**
+     * Tests that names are known once added, until they are forgotten, ignoring case.
+     */
+    @Test
+    void testAddAndForget() {
+        DataSource dataSource = new NoDataSource();
+        assert !KnownTables.isKnown(dataSource, "offers.offers_user");
+
+        KnownTables.add(dataSource, "offers.offers_User");
+        assert KnownTables.isKnown(dataSource, "offers.offers_user");
+        assert KnownTables.isKnown(dataSource, "OFFERS.OFFERS_USER");
+
+        KnownTables.forget(dataSource, "offers.offers_user");
+        assert !KnownTables.isKnown(dataSource, "offers.offers_user");
+    }
+
+    /**
+     * Tests that names known in one database are not known in another.
+     */
+    @Test
+    void testDatabasesAreSeparate() {
+        DataSource dataSource = new NoDataSource();
+        DataSource otherDataSource = new NoDataSource();
+        KnownTables.add(dataSource, "offers");
+
+        assert KnownTables.isKnown(dataSource, "offers");
+        assert !KnownTables.isKnown(otherDataSource, "offers");
+
+        // forgetting a name that was never added does nothing
+        KnownTables.forget(otherDataSource, "offers");
+        assert KnownTables.isKnown(dataSource, "offers");
+    }
+
+    /**
+     * DataSource that can not give connections; only used as a key.
+     */
+    private static class NoDataSource implements DataSource {
+        @Override
+        public Connection getConnection() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {}
+
+        @Override
+        public void setLoginTimeout(int seconds) {}
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return null;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package tech.autodirect.api.database;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import tech.autodirect.api.interfaces.TableOffersInterface;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+
+// This annotation allows us to use a non-static BeforeAll/AfterAll methods
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MigrateOffersTest {
+    private static final String DB_NAME = "testing";
+    private static final int NUM_PARTITIONS = 4;
+    private final String testUserId = "migrateofferstest_test_user";
+
+    /**
+     * Tests that moveTable() moves the offers of a per-user table keeping their offer IDs, and that rerunning it
+     * updates the offers that were already moved instead of skipping them.
+     */
+    @Test
+    void testMoveTableAndRerun() {
+        try (Connection conn = Conn.getConn(DB_NAME)) {
+            TableOffers tableOffers = new TableOffers(DB_NAME);
+            TablePartitionedOffers tablePartitionedOffers = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            tablePartitionedOffers.createTables();
+            String tableName = tableOffers.createTable(testUserId);
+            int offerId1 = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            int offerId2 = tableOffers.addOffer(testUserId, 8, 9, 10, 11, 12, 13, 14, "TEST", false);
+
+            assert MigrateOffers.moveTable(conn, tableName, false) == 2;
+            assert tablePartitionedOffers.checkOfferExists(testUserId, offerId1);
+            assert tablePartitionedOffers.checkOfferExists(testUserId, offerId2);
+            assert tablePartitionedOffers.getClaimedOffers(testUserId).isEmpty();
+            assert tableOffers.checkTableExists(tableName);
+
+            // claim an offer in the per-user table, then rerun: the moved offer is claimed too
+            tableOffers.markOfferClaimed(testUserId, offerId2);
+            assert MigrateOffers.moveTable(conn, tableName, false) == 2;
+            List<Map<String, Object>> claimedOffers = tablePartitionedOffers.getClaimedOffers(testUserId);
+            assert claimedOffers.size() == 1;
+            assert (int) claimedOffers.get(0).get("offer_id") == offerId2;
+            assert tablePartitionedOffers.getAllOffers(testUserId).size() == 2;
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that moveTable() drops the per-user table once its offers are moved when asked to.
+     */
+    @Test
+    void testMoveTableDropOldTable() {
+        try (Connection conn = Conn.getConn(DB_NAME)) {
+            TableOffers tableOffers = new TableOffers(DB_NAME);
+            TablePartitionedOffers tablePartitionedOffers = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            tablePartitionedOffers.createTables();
+            String tableName = tableOffers.createTable(testUserId);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", true);
+
+            assert MigrateOffers.moveTable(conn, tableName, true) == 1;
+            assert !tableOffers.checkTableExists(tableName);
+            assert tablePartitionedOffers.checkOfferExists(testUserId, offerId);
+            assert tablePartitionedOffers.getClaimedOffers(testUserId).size() == 1;
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    @BeforeEach
+    public void setUpEach() {
+        dropTestTables();
+    }
+
+    @AfterAll
+    public void tearDownAll() {
+        dropTestTables();
+    }
+
+    private void dropTestTables() {
+        try {
+            String tableName = TableOffersInterface.createTableName(testUserId);
+            new TableOffers(DB_NAME).dropTable(tableName); // drop tables if they already exist
+            new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS).dropTable(tableName);
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package tech.autodirect.api.database;
+
+import org.junit.jupiter.api.Test;
+import tech.autodirect.api.interfaces.TableOffersInterface;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+class SchemaMigrationsTest {
+    private static final String DB_NAME = "testing";
+
+    /**
+     * Tests that migrate() records every migration as applied, and applies none of them a second time.
+     */
+    @Test
+    void testMigrateIsIdempotent() {
+        try (Connection conn = Conn.getConn(DB_NAME)) {
+            InitDatabase.createCarsTable(conn);
+            SchemaMigrations.migrate(conn);
+            assert SchemaMigrations.migrate(conn).isEmpty();
+
+            PreparedStatement stmt = conn.prepareStatement("SELECT max(version) FROM public.schema_migrations;");
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            assert rs.getInt(1) == SchemaMigrations.getLatestVersion();
+            stmt.close();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that new offers tables get the partial index on claimed offers.
+     */
+    @Test
+    void testOffersTableHasClaimedIndex() {
+        String testUserId = "SchemaMigrationsTest_test_user";
+        try (Connection conn = Conn.getConn(DB_NAME)) {
+            TableOffers tableOffers = new TableOffers(DB_NAME);
+            String tableName = tableOffers.createTable(testUserId);
+
+            PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT indexdef FROM pg_indexes WHERE schemaname = 'offers' AND tablename = ?;"
+            );
+            stmt.setString(1, tableName);
+            ResultSet rs = stmt.executeQuery();
+            boolean hasClaimedIndex = false;
+            while (rs.next()) {
+                hasClaimedIndex |= rs.getString("indexdef").endsWith("WHERE claimed");
+            }
+            stmt.close();
+            tableOffers.dropTable(TableOffersInterface.createTableName(testUserId));
+
+            assert hasClaimedIndex;
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+}
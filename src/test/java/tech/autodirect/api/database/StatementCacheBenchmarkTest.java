@@ -0,0 +1,89 @@
+package tech.autodirect.api.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+// Left out of the test task, run with ./gradlew benchmark
+@Tag("benchmark")
+class StatementCacheBenchmarkTest {
+    private static final String DB_NAME = "testing";
+    private static final int WARMUP_QUERIES = 200;
+    private static final int QUERIES = 2000;
+
+    /**
+     * Compares the time per getCarById() with and without the per-connection statement cache (the queries run one
+     * after another, so they keep reusing the same pooled connection), and checks that both give the same cars.
+     *
+     * The timings are only printed since they depend on the database server and its network latency.
+     */
+    @Test
+    void benchmarkGetCarById() {
+        int carId = -1;
+        try {
+            TableCars tableCars = new TableCars(DB_NAME);
+            carId = tableCars.addCar("nissan", "sedan", 2017, 6700, 62280);
+
+            double uncachedMicros;
+            double cachedMicros;
+            Map<String, Object> uncachedCar;
+            Map<String, Object> cachedCar;
+            try (HikariDataSource uncached = Conn.createDataSource(DB_NAME, 0, 0)) {
+                uncachedMicros = timeGetCarById(new TableCars(uncached), carId);
+                uncachedCar = new TableCars(uncached).getCarById(carId);
+            }
+            try (HikariDataSource cached = Conn.createDataSource(DB_NAME, 256, 1)) {
+                cachedMicros = timeGetCarById(new TableCars(cached), carId);
+                cachedCar = new TableCars(cached).getCarById(carId);
+            }
+
+            System.out.printf(
+                    "getCarById(): %.1f us/query without statement cache, %.1f us/query with statement cache%n",
+                    uncachedMicros, cachedMicros
+            );
+            assert uncachedCar.equals(cachedCar);
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        } finally {
+            deleteCar(carId);
+        }
+    }
+
+    /**
+     * Delete the car with ID carId, if it was added (carId is not -1).
+     */
+    private void deleteCar(int carId) {
+        if (carId == -1) {
+            return;
+        }
+        try (
+                Connection conn = Conn.getDataSource(DB_NAME).getConnection();
+                PreparedStatement stmt = conn.prepareStatement("DELETE FROM public.cars WHERE car_id = ?;")
+        ) {
+            stmt.setInt(1, carId);
+            stmt.executeUpdate();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Return the average time of getCarById(carId) in microseconds, after some warmup queries.
+     */
+    private double timeGetCarById(TableCars tableCars, int carId) throws SQLException {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            tableCars.getCarById(carId);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            tableCars.getCarById(carId);
+        }
+        return (System.nanoTime() - start) / 1000.0 / QUERIES;
+    }
+}
@@ -99,6 +99,38 @@ class TableCarsTest {
         }
     }
 
+    /**
+     * Tests getAllCarEntities() and getCarEntityById() give the same cars as loading the maps of getAllCars().
+     */
+    @Test
+    void testGetCarEntitiesMatchesMaps() {
+        try {
+            TableCars table = new TableCars(DB_NAME);
+            int carId = table.addCar("nissan", "sedan", 2017, 6700, 62280);
+
+            // both queries are unordered, so match the cars by car_id
+            Map<Integer, EntCar> carsById = new HashMap<>();
+            for (EntCar car : table.getAllCarEntities()) {
+                carsById.put(car.getCarId(), car);
+            }
+            List<Map<String, Object>> carMaps = table.getAllCars();
+            assert carsById.size() == carMaps.size();
+            for (Map<String, Object> carMap : carMaps) {
+                EntCar carFromMap = new EntCar();
+                carFromMap.loadFromMap(carMap);
+                assert carFromMap.equals(carsById.get(carFromMap.getCarId()));
+            }
+
+            EntCar car = table.getCarEntityById(carId);
+            assert car.getBrand().equals("nissan");
+            assert car.getPrice() == 6700;
+            assert car.getKms() == UnitConv.mileToKm(62280);
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
     /**
      * Tests addCar().
      */
@@ -115,6 +147,28 @@ class TableCarsTest {
         }
     }
 
+    /**
+     * Tests addCars() returns the ids of the cars in the same order they were given.
+     */
+    @Test
+    void testAddCars() {
+        try {
+            TableCars cars = new TableCars(DB_NAME);
+            List<Integer> carIds = cars.addCars(List.of(
+                    new EntCar(0, "nissan", "sedan", 2017, 6700, 62280),
+                    new EntCar(0, "ford", "mustang", 2019, 34100, 10167)
+            ));
+
+            assert carIds.size() == 2;
+            assert cars.getCarById(carIds.get(0)).get("brand").equals("nissan");
+            assert cars.getCarById(carIds.get(1)).get("brand").equals("ford");
+            assert cars.addCars(List.of()).isEmpty();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
     /**
      * Tests checkCarExists() when it exists
      */
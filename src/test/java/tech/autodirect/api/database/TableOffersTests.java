@@ -8,11 +8,18 @@ import org.springframework.web.server.ResponseStatusException;
 import tech.autodirect.api.entities.EntOffer;
 import tech.autodirect.api.interfaces.TableOffersInterface;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 // This annotation allows us to use a non-static BeforeAll/AfterAll methods
@@ -24,20 +31,20 @@ public class TableOffersTests {
     // We don't need to assume this since we never actually access this user in the users table.
     // We only use this userId to create offers (to help name the offers table).
     private final String testUserId = "TableOffersTests_test_user";
+    private final String otherTestUserId = "TableOffersTests_other_test_user";
 
 
     /**
-     * Use setUser() to create an offers table for a user that does not have one, then verify it exists.
+     * Use createTable() to create an offers table for a user that does not have one, then verify it exists.
      */
     @Test
-    void testSetUserAndCheckTableExists() {
+    void testCreateTableAndCheckTableExists() {
         try {
             // Creates new offers table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            String tableName = table.setUser(testUserId);
+            String tableName = table.createTable(testUserId);
 
-            // check if the created table exists under the correct name (both should work)
-            assert table.checkTableExists();
+            // check if the created table exists under the correct name
             assert table.checkTableExists(tableName);
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
@@ -46,17 +53,61 @@ public class TableOffersTests {
     }
 
     /**
-     * Test that getTableName() gives a tableName corresponding to TableOffersInterface.createTableName().
+     * Test that createTable() creates the table again after dropTable(), even though the table was known to exist.
      */
     @Test
-    void testGetTableName() {
+    void testCreateTableAfterDropTable() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            String tableName = table.createTable(testUserId);
+            table.dropTable(tableName);
+            assert !table.checkTableExists(tableName);
+
+            // Another TableOffers object shares which tables are known to exist
+            new TableOffers(DB_NAME).createTable(testUserId);
+            assert table.checkTableExists(tableName);
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Test that a known table dropped behind the back of TableOffers (e.g. by another process) is created again
+     * when it is next used, instead of failing every request until the process restarts.
+     */
+    @Test
+    void testTableDroppedElsewhereIsCreatedAgain() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            String tableName = table.createTable(testUserId);
+            table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            try (Connection conn = Conn.getConn(DB_NAME); Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DROP TABLE offers." + tableName + ";");
+            }
+
+            assert table.createTable(testUserId).equals(tableName);  // still known to exist
+            assert table.getAllOffers(testUserId).isEmpty();
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            assert table.checkOfferExists(testUserId, offerId);
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Test that createTable() gives a tableName corresponding to TableOffersInterface.createTableName().
+     */
+    @Test
+    void testCreateTableGivesTableName() {
         try {
             // Creates new offers table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            String tableName = table.createTable(testUserId);
 
-            // Check that getTableName() gives a tableName corresponding to TableOffersInterface.createTableName()
-            assert table.getTableName().equals(TableOffersInterface.createTableName(testUserId));
+            // Check that createTable() gives a tableName corresponding to TableOffersInterface.createTableName()
+            assert tableName.equals(TableOffersInterface.createTableName(testUserId));
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
             assert false;
@@ -71,10 +122,10 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
-            int offerId = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", true);
-            Map<String, Object> offerMap = table.getOfferByOfferId(offerId);
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", true);
+            Map<String, Object> offerMap = table.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -102,10 +153,10 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
-            int offerId = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
-            Map<String, Object> offerMap = table.getOfferByOfferId(offerId);
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            Map<String, Object> offerMap = table.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -125,6 +176,64 @@ public class TableOffersTests {
         }
     }
 
+    /**
+     * Tests addOffers() returns offers with the same values as getOfferByOfferId() gives for them.
+     */
+    @Test
+    void testAddOffersMatchesGetOffer() {
+        try {
+            // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+
+            // Use values with fractional parts, which are rounded when stored
+            List<EntOffer> offers = List.of(
+                    new EntOffer(0, 1, 2000.5, 1800.25, 200.75, 2001.49, 0.0599, 36, "TEST", false),
+                    new EntOffer(0, 8, 9, 10, 11, 12, 13, 7, "TEST2", true)
+            );
+            List<EntOffer> addedOffers = table.addOffers(testUserId, offers);
+            assert addedOffers.size() == 2;
+            assert addedOffers.get(0).getOfferId() != addedOffers.get(1).getOfferId();
+
+            for (EntOffer addedOffer : addedOffers) {
+                EntOffer offer = new EntOffer();
+                offer.loadFromMap(table.getOfferByOfferId(testUserId, addedOffer.getOfferId()));
+
+                assert offer.getCarId() == addedOffer.getCarId();
+                assert offer.getLoanAmount() == addedOffer.getLoanAmount();
+                assert offer.getCapitalSum() == addedOffer.getCapitalSum();
+                assert offer.getInterestSum() == addedOffer.getInterestSum();
+                assert offer.getTotalSum() == addedOffer.getTotalSum();
+                assert offer.getInterestRate() == addedOffer.getInterestRate();
+                assert offer.getTermMo() == addedOffer.getTermMo();
+                assert Objects.equals(offer.getInstallments(), addedOffer.getInstallments());
+                assert offer.isClaimed() == addedOffer.isClaimed();
+            }
+            assert addedOffers.get(0).getCarId() == 1 && addedOffers.get(1).getCarId() == 8;
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests addOffers() with no offers.
+     */
+    @Test
+    void testAddOffersWhenEmpty() {
+        try {
+            // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+
+            assert table.addOffers(testUserId, Collections.emptyList()).isEmpty();
+            assert table.getAllOffers(testUserId).isEmpty();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
     /**
      * Tests getOfferByOfferId() when offer does not exist
      */
@@ -133,11 +242,11 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
             // We know that this offerId does not exist in this offers table,
             // so it should throw an HTTP 404 exception.
-            table.getOfferByOfferId(1);
+            table.getOfferByOfferId(testUserId, 1);
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
             assert false;
@@ -155,9 +264,9 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
-            int offerId = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
-            assert table.checkOfferExists(offerId);
+            table.createTable(testUserId);
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            assert table.checkOfferExists(testUserId, offerId);
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
             assert false;
@@ -172,8 +281,8 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
-            assert !table.checkOfferExists(1);
+            table.createTable(testUserId);
+            assert !table.checkOfferExists(testUserId, 1);
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
             assert false;
@@ -188,12 +297,12 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
-            int offerId = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
-            table.removeOfferByOfferId(offerId);
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            table.removeOfferByOfferId(testUserId, offerId);
 
-            table.getOfferByOfferId(offerId); // Should throw 404 error
+            table.getOfferByOfferId(testUserId, offerId); // Should throw 404 error
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
             assert false;
@@ -203,6 +312,97 @@ public class TableOffersTests {
         }
     }
 
+    /**
+     * Tests getOfferEntityByOfferId() gives the same offer as loading the map of getOfferByOfferId().
+     */
+    @Test
+    void testGetOfferEntityMatchesMap() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+
+            int offerId = table.addOffer(testUserId, 1, 2000.5, 1800.25, 200.75, 2001.49, 0.0599, 36, "TEST", true);
+            EntOffer offerFromMap = new EntOffer();
+            offerFromMap.loadFromMap(table.getOfferByOfferId(testUserId, offerId));
+            EntOffer offer = table.getOfferEntityByOfferId(testUserId, offerId);
+
+            assert offer.getOfferId() == offerFromMap.getOfferId();
+            assert offer.getCarId() == offerFromMap.getCarId();
+            assert offer.getLoanAmount() == offerFromMap.getLoanAmount();
+            assert offer.getTotalSum() == offerFromMap.getTotalSum();
+            assert offer.getInterestRate() == offerFromMap.getInterestRate();
+            assert offer.getTermMo() == offerFromMap.getTermMo();
+            assert offer.getInstallments().equals(offerFromMap.getInstallments());
+            assert offer.isClaimed() == offerFromMap.isClaimed();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests removeOfferByOfferId() when the offer does not exist.
+     */
+    @Test
+    void testRemoveOfferWhenNotExists() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+
+            try {
+                table.removeOfferByOfferId(testUserId, 9999);
+                assert false;
+            } catch (ResponseStatusException e) {
+                assert Objects.equals(e.getMessage(), "404 NOT_FOUND \"offer not found\"");
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests markOfferClaimed() when the offer does not exist.
+     */
+    @Test
+    void testMarkOfferClaimedWhenNotExists() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+
+            try {
+                table.markOfferClaimed(testUserId, 9999);
+                assert false;
+            } catch (ResponseStatusException e) {
+                assert Objects.equals(e.getMessage(), "404 NOT_FOUND \"offer not found\"");
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests markOfferUnclaimed() when the offer does not exist.
+     */
+    @Test
+    void testMarkOfferUnclaimedWhenNotExists() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+
+            try {
+                table.markOfferUnclaimed(testUserId, 9999);
+                assert false;
+            } catch (ResponseStatusException e) {
+                assert Objects.equals(e.getMessage(), "404 NOT_FOUND \"offer not found\"");
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
     /**
      * Tests removeAllOffers().
      */
@@ -211,17 +411,17 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
 
-            int offerId1 = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
-            @SuppressWarnings("unused") int offerId2 = table.addOffer(8, 9, 10, 11, 12, 13, 7, "TEST", false);
+            int offerId1 = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            @SuppressWarnings("unused") int offerId2 = table.addOffer(testUserId, 8, 9, 10, 11, 12, 13, 7, "TEST", false);
 
-            assert table.getAllOffers().size() > 0;
-            table.removeAllOffers();
-            assert table.getAllOffers().size() == 0;
+            assert table.getAllOffers(testUserId).size() > 0;
+            table.removeAllOffers(testUserId);
+            assert table.getAllOffers(testUserId).size() == 0;
 
-            table.getOfferByOfferId(offerId1); // Should throw 404 error
+            table.getOfferByOfferId(testUserId, offerId1); // Should throw 404 error
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
             assert false;
@@ -238,12 +438,12 @@ public class TableOffersTests {
     void testGetAllOffers() {
         try {
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
             // Add offers and get all offers as maps in a list
-            int offerId1 = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
-            int offerId2 = table.addOffer(8, 9, 10, 11, 12, 13, 7, "TEST", false);
-            List<Map<String, Object>> offersList = table.getAllOffers();
+            int offerId1 = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            int offerId2 = table.addOffer(testUserId, 8, 9, 10, 11, 12, 13, 7, "TEST", false);
+            List<Map<String, Object>> offersList = table.getAllOffers(testUserId);
             assert offersList.size() == 2;
 
             // Check whether offers referred to by offerId1 and offerId2 are in offersList
@@ -276,12 +476,12 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
-            @SuppressWarnings("unused") int offerId1 = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
-            @SuppressWarnings("unused") int offerId2 = table.addOffer(8, 9, 10, 11, 12, 13, 7, "TEST", false);
+            @SuppressWarnings("unused") int offerId1 = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            @SuppressWarnings("unused") int offerId2 = table.addOffer(testUserId, 8, 9, 10, 11, 12, 13, 7, "TEST", false);
 
-            List<Map<String, Object>> claimedOffers = table.getClaimedOffers();
+            List<Map<String, Object>> claimedOffers = table.getClaimedOffers(testUserId);
 
             assert Objects.equals(claimedOffers, Collections.emptyList());
 
@@ -299,14 +499,14 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
-            int offerId1 = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", true);
-            @SuppressWarnings("unused") int offerId2 = table.addOffer(8, 9, 10, 11, 12, 13, 7, "TEST", false);
+            int offerId1 = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", true);
+            @SuppressWarnings("unused") int offerId2 = table.addOffer(testUserId, 8, 9, 10, 11, 12, 13, 7, "TEST", false);
 
             // Check that get claimedOffers only contains the offer referred to by offerId1
-            List<Map<String, Object>> claimedOffers = table.getClaimedOffers();
-            Map<String, Object> offer = table.getOfferByOfferId(offerId1);
+            List<Map<String, Object>> claimedOffers = table.getClaimedOffers(testUserId);
+            Map<String, Object> offer = table.getOfferByOfferId(testUserId, offerId1);
             assert claimedOffers.size() == 1 && claimedOffers.contains(offer);
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
@@ -314,6 +514,105 @@ public class TableOffersTests {
         }
     }
 
+    /**
+     * Tests getAllOffersWithCars() and getClaimedOffersWithCars() return each offer along with its car.
+     */
+    @Test
+    void testGetOffersWithCars() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+
+            // Offers must refer to existing cars to be joined with them
+            List<Map<String, Object>> carMaps = new TableCars(DB_NAME).getAllCars();
+            assert carMaps.size() >= 2;
+            int carId1 = (int) carMaps.get(0).get("car_id");
+            int carId2 = (int) carMaps.get(1).get("car_id");
+
+            int offerId1 = table.addOffer(testUserId, carId1, 2, 3, 4, 5, 6, 7, "TEST", true);
+            @SuppressWarnings("unused") int offerId2 = table.addOffer(testUserId, carId2, 9, 10, 11, 12, 13, 7, "TEST", false);
+
+            List<Map<String, Object>> allOffersWithCars = table.getAllOffersWithCars(testUserId);
+            assert allOffersWithCars.size() == 2;
+            for (Map<String, Object> offerWithCar : allOffersWithCars) {
+                int carId = (int) offerWithCar.get("car_id");
+                Map<String, Object> carMap = carId == carId1 ? carMaps.get(0) : carMaps.get(1);
+                assert Objects.equals(offerWithCar.get("brand"), carMap.get("brand"));
+                assert Objects.equals(offerWithCar.get("mileage"), carMap.get("mileage"));
+            }
+
+            List<Map<String, Object>> claimedOffersWithCars = table.getClaimedOffersWithCars(testUserId);
+            assert claimedOffersWithCars.size() == 1;
+            assert (int) claimedOffersWithCars.get(0).get("offer_id") == offerId1;
+            assert Objects.equals(claimedOffersWithCars.get(0).get("brand"), carMaps.get(0).get("brand"));
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests checkHasOffers() counts offers whose car does not exist, which getAllOffersWithCars() leaves out.
+     */
+    @Test
+    void testCheckHasOffersWithOrphanedOffer() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+            assert !table.checkHasOffers(testUserId);
+
+            table.addOffer(testUserId, -1, 2, 3, 4, 5, 6, 7, "TEST", true);
+            assert table.getAllOffersWithCars(testUserId).isEmpty();
+            assert table.checkHasOffers(testUserId);
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that a single TableOffers used by concurrent threads for two users keeps each user's offers separate.
+     */
+    @Test
+    void testConcurrentUsersAreSeparate() {
+        try {
+            TableOffers table = new TableOffers(DB_NAME);
+            table.createTable(testUserId);
+            table.createTable(otherTestUserId);
+
+            // Add 20 offers for each user at the same time, from two threads sharing table
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            List<Future<?>> futures = new ArrayList<>();
+            for (String userId : List.of(testUserId, otherTestUserId)) {
+                int carId = userId.equals(testUserId) ? 1 : 2;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        table.addOffer(userId, carId, 2, 3, 4, 5, 6, 7, "TEST", false);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            // Each user's offers table must only hold that user's offers
+            List<Map<String, Object>> offers = table.getAllOffers(testUserId);
+            List<Map<String, Object>> otherOffers = table.getAllOffers(otherTestUserId);
+            assert offers.size() == 20 && otherOffers.size() == 20;
+            for (Map<String, Object> offer : offers) {
+                assert (int) offer.get("car_id") == 1;
+            }
+            for (Map<String, Object> offer : otherOffers) {
+                assert (int) offer.get("car_id") == 2;
+            }
+        } catch (SQLException | ClassNotFoundException | InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
     /**
      * Tests getMarkOfferClaimed()
      */
@@ -322,12 +621,12 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
-            int offerId = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
-            table.markOfferClaimed(offerId);
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            table.markOfferClaimed(testUserId, offerId);
 
-            Map<String, Object> offerMap = table.getOfferByOfferId(offerId);
+            Map<String, Object> offerMap = table.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -346,12 +645,12 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
 
-            int offerId = table.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", true);
-            table.markOfferUnclaimed(offerId);
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", true);
+            table.markOfferUnclaimed(testUserId, offerId);
 
-            Map<String, Object> offerMap = table.getOfferByOfferId(offerId);
+            Map<String, Object> offerMap = table.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -370,10 +669,10 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId and then drop it. Verify that it is dropped.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
-            assert table.checkTableExists();
-            table.dropTable();
-            assert !table.checkTableExists();
+            String tableName = table.createTable(testUserId);
+            assert table.checkTableExists(tableName);
+            table.dropTable(tableName);
+            assert !table.checkTableExists(tableName);
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
             assert false;
@@ -388,7 +687,7 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId. setUpEach() ensures table doesn't already exist.
             TableOffers table = new TableOffers(DB_NAME);
-            table.setUser(testUserId);
+            table.createTable(testUserId);
             assert !table.checkTableExists("fake table");
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
@@ -404,11 +703,11 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
-            int offerId = tableOffers.addOffer(1, 1000, 3, 4, 5, 6, 7, "TEST", false);
+            tableOffers.createTable(testUserId);
+            int offerId = tableOffers.addOffer(testUserId, 1, 1000, 3, 4, 5, 6, 7, "TEST", false);
             TableOffersInterface.OfferColumns loanAmount = TableOffersInterface.OfferColumns.LOAN_AMOUNT;
-            tableOffers.updateOfferColumn(offerId, loanAmount, 1500);
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
+            tableOffers.updateOfferColumn(testUserId, offerId, loanAmount, 1500);
+            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -436,11 +735,11 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            tableOffers.createTable(testUserId);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
             TableOffersInterface.OfferColumns loanAmount = TableOffersInterface.OfferColumns.CAPITAL_SUM;
-            tableOffers.updateOfferColumn(offerId, loanAmount, 1500);
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
+            tableOffers.updateOfferColumn(testUserId, offerId, loanAmount, 1500);
+            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -468,11 +767,11 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            tableOffers.createTable(testUserId);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
             TableOffersInterface.OfferColumns loanAmount = TableOffersInterface.OfferColumns.INTEREST_SUM;
-            tableOffers.updateOfferColumn(offerId, loanAmount, 1500);
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
+            tableOffers.updateOfferColumn(testUserId, offerId, loanAmount, 1500);
+            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -500,11 +799,11 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            tableOffers.createTable(testUserId);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
             TableOffersInterface.OfferColumns loanAmount = TableOffersInterface.OfferColumns.TOTAL_SUM;
-            tableOffers.updateOfferColumn(offerId, loanAmount, 1500);
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
+            tableOffers.updateOfferColumn(testUserId, offerId, loanAmount, 1500);
+            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -532,11 +831,11 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            tableOffers.createTable(testUserId);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
             TableOffersInterface.OfferColumns loanAmount = TableOffersInterface.OfferColumns.INTEREST_RATE;
-            tableOffers.updateOfferColumn(offerId, loanAmount, 1500);
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
+            tableOffers.updateOfferColumn(testUserId, offerId, loanAmount, 1500);
+            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -564,11 +863,11 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            tableOffers.createTable(testUserId);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
             TableOffersInterface.OfferColumns loanAmount = TableOffersInterface.OfferColumns.TERM_MO;
-            tableOffers.updateOfferColumn(offerId, loanAmount, 1500);
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
+            tableOffers.updateOfferColumn(testUserId, offerId, loanAmount, 1500);
+            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -596,11 +895,11 @@ public class TableOffersTests {
         try {
             // Create new table for testUserId
             TableOffers tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            tableOffers.createTable(testUserId);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
             TableOffersInterface.OfferColumns loanAmount = TableOffersInterface.OfferColumns.INSTALLMENTS;
-            tableOffers.updateOfferColumn(offerId, loanAmount, "Pass");
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
+            tableOffers.updateOfferColumn(testUserId, offerId, loanAmount, "Pass");
+            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
 
@@ -627,8 +926,10 @@ public class TableOffersTests {
             // This is especially important for tests which test the creation new tables
             // (no point in testing the creation of a new table if it already exists).
             TableOffers table = new TableOffers(DB_NAME);
-            String tableName = TableOffersInterface.createTableName(testUserId);
-            table.dropTable(tableName); // drop table if already exists
+            for (String userId : List.of(testUserId, otherTestUserId)) {
+                String tableName = TableOffersInterface.createTableName(userId);
+                table.dropTable(tableName); // drop table if already exists
+            }
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
         }
@@ -638,8 +939,10 @@ public class TableOffersTests {
     public void tearDownAll() {
         try {
             TableOffers table = new TableOffers(DB_NAME);
-            String tableName = TableOffersInterface.createTableName(testUserId);
-            table.dropTable(tableName); // drop table if already exists
+            for (String userId : List.of(testUserId, otherTestUserId)) {
+                String tableName = TableOffersInterface.createTableName(userId);
+                table.dropTable(tableName); // drop table if already exists
+            }
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
         }
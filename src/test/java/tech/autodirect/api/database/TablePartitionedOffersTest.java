@@ -0,0 +1,199 @@
+package tech.autodirect.api.database;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.entities.EntOffer;
+import tech.autodirect.api.interfaces.TableOffersInterface;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+// This annotation allows us to use a non-static BeforeAll/AfterAll methods
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TablePartitionedOffersTest {
+    private static final String DB_NAME = "testing";
+    private static final int NUM_PARTITIONS = 4;
+    private final String testUserId = "TablePartitionedOffersTest_test_user";
+    private final String otherTestUserId = "TablePartitionedOffersTest_other_test_user";
+
+    /**
+     * Tests createTable(), checkTableExists() and dropTable() on a user's offers "table".
+     */
+    @Test
+    void testCreateTableAndDropTable() {
+        try {
+            TablePartitionedOffers table = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            String tableName = table.createTable(testUserId);
+            assert tableName.equals(TableOffersInterface.createTableName(testUserId));
+            assert table.checkTableExists(tableName);
+
+            table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            table.dropTable(tableName);
+            assert !table.checkTableExists(tableName);
+            assert table.getAllOffers(testUserId).isEmpty();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests addOffer() and getOfferByOfferId(), and that the returned map has the same columns as in TableOffers.
+     */
+    @Test
+    void testAddOfferAndGetOffer() {
+        try {
+            TablePartitionedOffers table = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            table.createTable(testUserId);
+
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", true);
+            Map<String, Object> offerMap = table.getOfferByOfferId(testUserId, offerId);
+            assert !offerMap.containsKey("user_id");
+            EntOffer offer = new EntOffer();
+            offer.loadFromMap(offerMap);
+
+            assert offer.getOfferId() == offerId;
+            assert offer.getCarId() == 1;
+            assert offer.getLoanAmount() == 2;
+            assert offer.getTermMo() == 7;
+            assert Objects.equals(offer.getInstallments(), "TEST");
+            assert offer.isClaimed();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that users only see, claim and remove their own offers.
+     */
+    @Test
+    void testUsersAreSeparate() {
+        try {
+            TablePartitionedOffers table = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            table.createTable(testUserId);
+            table.createTable(otherTestUserId);
+
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            table.addOffer(otherTestUserId, 2, 2, 3, 4, 5, 6, 7, "TEST", false);
+            assert table.getAllOffers(testUserId).size() == 1;
+            assert table.getAllOffers(otherTestUserId).size() == 1;
+            assert !table.checkOfferExists(otherTestUserId, offerId);
+
+            // The other user can not claim testUserId's offer
+            try {
+                table.markOfferClaimed(otherTestUserId, offerId);
+                assert false;
+            } catch (ResponseStatusException e) {
+                assert Objects.equals(e.getMessage(), "404 NOT_FOUND \"offer not found\"");
+            }
+
+            table.markOfferClaimed(testUserId, offerId);
+            assert table.getClaimedOffers(testUserId).size() == 1;
+            assert table.getClaimedOffers(otherTestUserId).isEmpty();
+
+            table.removeAllOffers(otherTestUserId);
+            assert table.getAllOffers(testUserId).size() == 1;
+            assert table.getAllOffers(otherTestUserId).isEmpty();
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests addOffers() returns offers with the same values as getOfferByOfferId() gives for them.
+     */
+    @Test
+    void testAddOffersMatchesGetOffer() {
+        try {
+            TablePartitionedOffers table = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            table.createTable(testUserId);
+
+            List<EntOffer> addedOffers = table.addOffers(testUserId, List.of(
+                    new EntOffer(0, 1, 2000.5, 1800.25, 200.75, 2001.49, 0.0599, 36, "TEST", false),
+                    new EntOffer(0, 8, 9, 10, 11, 12, 13, 7, "TEST2", true)
+            ));
+            assert addedOffers.size() == 2;
+            for (EntOffer addedOffer : addedOffers) {
+                EntOffer offer = new EntOffer();
+                offer.loadFromMap(table.getOfferByOfferId(testUserId, addedOffer.getOfferId()));
+                assert offer.getCarId() == addedOffer.getCarId();
+                assert offer.getLoanAmount() == addedOffer.getLoanAmount();
+                assert offer.getTotalSum() == addedOffer.getTotalSum();
+                assert offer.getInterestRate() == addedOffer.getInterestRate();
+                assert offer.isClaimed() == addedOffer.isClaimed();
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests updateOfferColumn() only updates the given user's offer.
+     */
+    @Test
+    void testUpdateOfferColumn() {
+        try {
+            TablePartitionedOffers table = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            table.createTable(testUserId);
+
+            int offerId = table.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            table.updateOfferColumn(testUserId, offerId, TableOffersInterface.OfferColumns.INSTALLMENTS, "NEW");
+            EntOffer offer = new EntOffer();
+            offer.loadFromMap(table.getOfferByOfferId(testUserId, offerId));
+            assert Objects.equals(offer.getInstallments(), "NEW");
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests checkHasOffers() only counts the given user's offers.
+     */
+    @Test
+    void testCheckHasOffers() {
+        try {
+            TablePartitionedOffers table = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            table.createTable(testUserId);
+            table.createTable(otherTestUserId);
+            assert !table.checkHasOffers(testUserId);
+
+            table.addOffer(otherTestUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            assert !table.checkHasOffers(testUserId);
+            assert table.checkHasOffers(otherTestUserId);
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    @BeforeEach
+    public void setUpEach() {
+        dropTestTables();
+    }
+
+    @AfterAll
+    public void tearDownAll() {
+        dropTestTables();
+    }
+
+    private void dropTestTables() {
+        try {
+            TablePartitionedOffers table = new TablePartitionedOffers(DB_NAME, NUM_PARTITIONS);
+            for (String userId : List.of(testUserId, otherTestUserId)) {
+                table.dropTable(TableOffersInterface.createTableName(userId)); // drop table if already exists
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package tech.autodirect.api.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+class EntLoanQuoteTest {
+
+    @Test
+    void testFromResponse() {
+        Map<String, Object> body = new HashMap<>() {
+            {
+                put("amount", 3.0);
+                put("capitalSum", 4.0);
+                put("interestSum", 5.0);
+                put("sum", 6.0);
+                put("interestRate", 7.0);
+                put("term", "8");
+                put("installments", 9.0);
+            }
+        };
+        Map<String, Object> response = new HashMap<>() {
+            {
+                put("status", 200);
+                put("body", body);
+            }
+        };
+
+        EntLoanQuote quote = EntLoanQuote.fromResponse(response);
+
+        assert quote.getStatus() == 200;
+        assert quote.isApproved();
+        assert quote.getLoanAmount() == 3;
+        assert quote.getCapitalSum() == 4;
+        assert quote.getInterestSum() == 5;
+        assert quote.getTotalSum() == 6;
+        assert quote.getInterestRate() == 7;
+        assert quote.getTermMo() == 8;
+        assert quote.getInstallments().equals("9.0");
+        assert quote.toResponse().equals(response);
+    }
+
+    @Test
+    void testToOffer() {
+        Map<String, Object> body = new HashMap<>() {
+            {
+                put("amount", 3.0);
+                put("capitalSum", 4.0);
+                put("interestSum", 5.0);
+                put("sum", 6.0);
+                put("interestRate", 7.0);
+                put("term", "8");
+                put("installments", "9");
+            }
+        };
+
+        EntOffer offer = new EntLoanQuote(200, body).toOffer(2);
+
+        assert offer.getOfferId() == 0;
+        assert offer.getCarId() == 2;
+        assert offer.getLoanAmount() == 3;
+        assert offer.getTotalSum() == 6;
+        assert offer.getTermMo() == 8;
+        assert offer.getInstallments().equals("9");
+        assert !offer.isClaimed();
+    }
+
+    @Test
+    void testNotApproved() {
+        EntLoanQuote quote = new EntLoanQuote(400, null);
+
+        assert !quote.isApproved();
+        assert quote.toResponse().get("body").equals(new HashMap<>());
+    }
+
+    @Test
+    void testMalformedNotApproved() {
+        Map<String, Object> body = new HashMap<>() {
+            {
+                put("amount", 3.0);
+                put("capitalSum", 4.0);
+                put("interestSum", 5.0);
+                put("sum", 6.0);
+                put("interestRate", 7.0);
+                put("term", "8");
+                put("installments", "9");
+            }
+        };
+        assert new EntLoanQuote(200, body).isApproved();
+
+        for (String name : body.keySet()) {
+            Map<String, Object> missing = new HashMap<>(body);
+            missing.remove(name);
+            assert !new EntLoanQuote(200, missing).isApproved();
+        }
+        Map<String, Object> notNumber = new HashMap<>(body);
+        notNumber.put("term", "thirty-six");
+        assert !new EntLoanQuote(200, notNumber).isApproved();
+        notNumber.put("term", true);
+        assert !new EntLoanQuote(200, notNumber).isApproved();
+
+        try {
+            new EntLoanQuote(200, null).toOffer(2);
+            assert false;
+        } catch (IllegalStateException e) {
+            assert true;
+        }
+    }
+}
@@ -21,20 +21,20 @@ class SvcClaimOfferTest {
         try {
             SvcClaimOffer svcClaimOffer = new SvcClaimOffer();
             TableOffersInterface tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
+            tableOffers.createTable(testUserId);
 
             // Add an unclaimed offerId to the offers table
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", false);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", false);
 
             // Verify the offer is initially not claimed
-            boolean claimedInit = (boolean) tableOffers.getOfferByOfferId(offerId).get("claimed");
+            boolean claimedInit = (boolean) tableOffers.getOfferByOfferId(testUserId, offerId).get("claimed");
             assert !claimedInit;
 
             // Claim the offer
             svcClaimOffer.claimOffer(tableOffers, testUserId, Integer.toString(offerId));
 
             // Check that the offer is now claimed
-            boolean claimedFinal = (boolean) tableOffers.getOfferByOfferId(offerId).get("claimed");
+            boolean claimedFinal = (boolean) tableOffers.getOfferByOfferId(testUserId, offerId).get("claimed");
             assert claimedFinal;
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
@@ -27,7 +27,7 @@ class SvcGetClaimedOffersTest {
             SvcGetClaimedOffers svcGetClaimedOffers = new SvcGetClaimedOffers();
             TableCarsInterface tableCars = new TableCars(DB_NAME);
             TableOffersInterface tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
+            tableOffers.createTable(testUserId);
 
             // Add carIds for 4 cars from the database
             List<Map<String, Object>> carMaps = tableCars.getAllCars();
@@ -39,14 +39,14 @@ class SvcGetClaimedOffersTest {
             }
 
             // Add offers corresponding to the cars
-            int offerId1 = tableOffers.addOffer(fourCarIds.get(0), 2, 3, 4, 5, 6, 7, "TEST", false);
-            int offerId2 = tableOffers.addOffer(fourCarIds.get(1), 2, 3, 4, 5, 6, 7, "TEST", true);
-            int offerId3 = tableOffers.addOffer(fourCarIds.get(2), 2, 3, 4, 5, 6, 7, "TEST", false);
-            int offerId4 = tableOffers.addOffer(fourCarIds.get(3), 2, 3, 4, 5, 6, 7, "TEST", true);
+            int offerId1 = tableOffers.addOffer(testUserId, fourCarIds.get(0), 2, 3, 4, 5, 6, 7, "TEST", false);
+            int offerId2 = tableOffers.addOffer(testUserId, fourCarIds.get(1), 2, 3, 4, 5, 6, 7, "TEST", true);
+            int offerId3 = tableOffers.addOffer(testUserId, fourCarIds.get(2), 2, 3, 4, 5, 6, 7, "TEST", false);
+            int offerId4 = tableOffers.addOffer(testUserId, fourCarIds.get(3), 2, 3, 4, 5, 6, 7, "TEST", true);
 
             // Check that carAndOfferInfoMaps from getClaimedOffers has all the offers
             List<Map<String, Object>> carAndOfferInfoMaps
-                    = svcGetClaimedOffers.getClaimedOffers(tableCars, tableOffers, testUserId);
+                    = svcGetClaimedOffers.getClaimedOffers(tableOffers, testUserId);
             boolean offerId1InOffers = false;
             boolean offerId2InOffers = false;
             boolean offerId3InOffers = false;
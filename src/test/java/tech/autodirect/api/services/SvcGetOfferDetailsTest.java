@@ -25,10 +25,10 @@ class SvcGetOfferDetailsTest {
             SvcGetOfferDetails svcGetOfferDetails = new SvcGetOfferDetails();
             TableCarsInterface tableCars = new TableCars(DB_NAME);
             TableOffersInterface tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
+            tableOffers.createTable(testUserId);
 
             // Add an offer
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", true);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", true);
 
             // Get offer details
             Map<String, Object> carAndOfferInfo
@@ -0,0 +1,274 @@
+package tech.autodirect.api.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import tech.autodirect.api.database.InMemoryTableCars;
+import tech.autodirect.api.database.InMemoryTableOffers;
+import tech.autodirect.api.database.InMemoryTableUsers;
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.upstream.PendingSensoApi;
+import tech.autodirect.api.upstream.SensoUnavailableException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests of how SvcSearch queries the Senso API for a search with new search params, with in-memory tables
+ * (unlike SvcSearchTest, these do not need a database).
+ */
+class SvcSearchQueriesTest {
+    private static final String USER_ID = "user";
+    private static final int NUM_CARS = 5;
+    private InMemoryTableCars tableCars;
+    private InMemoryTableUsers tableUsers;
+    private InMemoryTableOffers tableOffers;
+    private PendingSensoApi pendingSensoApi;
+
+    /**
+     * Tests that the queries of a search run at once, and that when they finish out of order and one of them fails,
+     * the search still gives the offers of all other cars, in catalog order, each with the quote of its own car.
+     */
+    @Test
+    void testQueriesFinishingOutOfOrder() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SvcSearch svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, pendingSensoApi, NUM_CARS);
+            Future<List<Map<String, Object>>> search = executor.submit(
+                    () -> svcSearch.search(USER_ID, "2000", "300", "price", "true")
+            );
+
+            // wait for the search to start all of its queries, then answer them last to first, failing brand3's
+            awaitCalls(NUM_CARS);
+            Map<String, Double> loanAmountsByBrand = new HashMap<>();
+            for (int i = NUM_CARS - 1; i >= 0; i--) {
+                String brand = pendingSensoApi.getVehicleMake(i);
+                if (brand.equals("brand3")) {
+                    pendingSensoApi.getPending(i).completeExceptionally(new IOException("query failed"));
+                } else {
+                    loanAmountsByBrand.put(brand, 1000.0 + i);
+                    pendingSensoApi.getPending(i).complete(
+                            new EntLoanQuote(200, PendingSensoApi.approvedBody(1000 + i))
+                    );
+                }
+            }
+
+            List<Map<String, Object>> results = search.get(5, TimeUnit.SECONDS);
+            List<Object> brands = new ArrayList<>();
+            for (Map<String, Object> result : results) {
+                brands.add(result.get("brand"));
+                assert result.get("loan_amount").equals(loanAmountsByBrand.get(result.get("brand")));
+            }
+            assert brands.equals(List.of("brand1", "brand2", "brand4", "brand5"));
+            assert tableOffers.getAllOffers(USER_ID).size() == NUM_CARS - 1;
+        } catch (ExecutionException | TimeoutException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that onResult gets each approved car and offer map, after its offer was added.
+     */
+    @Test
+    void testOnResultGetsAddedOffers() {
+        try {
+            pendingSensoApi.answerWith(200, PendingSensoApi.approvedBody(1000));
+            SvcSearch svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, pendingSensoApi, 2);
+
+            List<Map<String, Object>> streamed = new ArrayList<>();
+            List<Map<String, Object>> results = svcSearch.search(
+                    USER_ID, "2000", "300", "price", "true", null, null, streamed::add
+            );
+
+            assert pendingSensoApi.getCalls() == NUM_CARS;
+            assert results.size() == NUM_CARS && streamed.size() == NUM_CARS;
+            for (Map<String, Object> result : streamed) {
+                assert tableOffers.checkOfferExists(USER_ID, (int) result.get("offer_id"));
+                assert results.contains(result);
+            }
+        } catch (IOException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that onResult is not called when the search is answered from the offers table (same search params).
+     */
+    @Test
+    void testOnResultNotCalledWithOldParams() {
+        try {
+            pendingSensoApi.answerWith(200, PendingSensoApi.approvedBody(1000));
+            SvcSearch svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, pendingSensoApi, 2);
+            svcSearch.search(USER_ID, "2000", "300", "price", "true");
+
+            List<Map<String, Object>> streamed = new ArrayList<>();
+            List<Map<String, Object>> results = svcSearch.search(
+                    USER_ID, "2000", "300", "price", "true", null, null, streamed::add
+            );
+            assert results.size() == NUM_CARS;
+            assert streamed.isEmpty();
+            assert pendingSensoApi.getCalls() == NUM_CARS;
+        } catch (IOException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that when onResult throws, the search throws the exception and removes the offers it added.
+     */
+    @Test
+    void testOnResultFailureStopsSearch() {
+        try {
+            pendingSensoApi.answerWith(200, PendingSensoApi.approvedBody(1000));
+            SvcSearch svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, pendingSensoApi, 2);
+
+            try {
+                svcSearch.search(USER_ID, "2000", "300", "price", "true", null, null, result -> {
+                    throw new UncheckedIOException(new IOException("client went away"));
+                });
+                assert false;
+            } catch (UncheckedIOException e) {
+                assert e.getCause().getMessage().equals("client went away");
+            }
+            assert !tableOffers.checkHasOffers(USER_ID);
+        } catch (IOException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that quotes with status 200 but without loan terms give no offers, without failing the search.
+     */
+    @Test
+    void testMalformedQuotesGiveNoOffers() {
+        try {
+            pendingSensoApi.answerWith(200, Map.of("amount", 1000));
+            SvcSearch svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, pendingSensoApi, 2);
+
+            List<Map<String, Object>> results = svcSearch.search(USER_ID, "2000", "300", "price", "true");
+            assert pendingSensoApi.getCalls() == NUM_CARS;
+            assert results.isEmpty();
+            assert !tableOffers.checkHasOffers(USER_ID);
+        } catch (IOException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that a search with new search params fails with a 503 ERROR, without asking for any quote or touching
+     * the offers of the previous search, while the Senso API is unavailable.
+     */
+    @Test
+    void testSearchFailsWhileSensoUnavailable() {
+        try {
+            pendingSensoApi.answerWith(200, PendingSensoApi.approvedBody(1000));
+            new SvcSearch(tableCars, tableUsers, tableOffers, pendingSensoApi, 2)
+                    .search(USER_ID, "2000", "300", "price", "true");
+
+            PendingSensoApi unavailableSensoApi = new PendingSensoApi() {
+                @Override
+                public boolean isAvailable() {
+                    return false;
+                }
+            };
+            SvcSearch svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, unavailableSensoApi, 2);
+            try {
+                svcSearch.search(USER_ID, "3000", "400", "price", "true");
+                assert false;
+            } catch (ResponseStatusException e) {
+                assert e.getStatus() == HttpStatus.SERVICE_UNAVAILABLE;
+            }
+            assert unavailableSensoApi.getCalls() == 0;
+            assert tableOffers.getAllOffers(USER_ID).size() == NUM_CARS;
+        } catch (IOException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that when a query is turned away because the Senso API became unavailable during a search, no more
+     * queries are started, the offers added so far are removed and the search fails with a 503 ERROR.
+     */
+    @Test
+    void testSearchStopsWhenSensoBecomesUnavailable() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SvcSearch svcSearch = new SvcSearch(tableCars, tableUsers, tableOffers, pendingSensoApi, 2);
+            Future<List<Map<String, Object>>> search = executor.submit(
+                    () -> svcSearch.search(USER_ID, "2000", "300", "price", "true")
+            );
+
+            // approve the first query and wait for its offer to be added (which starts the third query)
+            awaitCalls(2);
+            pendingSensoApi.getPending(0).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(1000)));
+            awaitCalls(3);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (tableOffers.getAllOffers(USER_ID).isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assert tableOffers.getAllOffers(USER_ID).size() == 1;
+
+            // turn the second query away; the search still waits for the third one, which was already started
+            pendingSensoApi.getPending(1).completeExceptionally(new SensoUnavailableException("circuit open"));
+            pendingSensoApi.getPending(2).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(1000)));
+            try {
+                search.get(5, TimeUnit.SECONDS);
+                assert false;
+            } catch (ExecutionException e) {
+                assert e.getCause() instanceof ResponseStatusException;
+                assert ((ResponseStatusException) e.getCause()).getStatus() == HttpStatus.SERVICE_UNAVAILABLE;
+            }
+            assert pendingSensoApi.getCalls() == 3;
+            assert !tableOffers.checkHasOffers(USER_ID);
+        } catch (TimeoutException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait (for at most 5 seconds) until pendingSensoApi got at least calls requests, and check that it got exactly
+     * that many.
+     */
+    private void awaitCalls(int calls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pendingSensoApi.getCalls() < calls && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assert pendingSensoApi.getCalls() == calls;
+    }
+
+    @BeforeEach
+    void setUpEach() throws SQLException {
+        tableCars = new InMemoryTableCars();
+        for (int i = 1; i <= NUM_CARS; i++) {
+            tableCars.addCar("brand" + i, "model" + i, 2020, 10000 * i, 1000);
+        }
+        tableUsers = new InMemoryTableUsers();
+        tableUsers.addUser(USER_ID, 700, 1000, 200);
+        tableOffers = new InMemoryTableOffers(tableCars);
+        pendingSensoApi = new PendingSensoApi();
+    }
+}
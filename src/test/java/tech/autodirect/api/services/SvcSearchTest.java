@@ -93,6 +93,41 @@ class SvcSearchTest {
         }
     }
 
+    @Test
+    void testSearchCarsPreLoginPaginated() {
+        try {
+            List<Map<String, Object>> allCars = svcSearch.search("", "1000", "200", "price", "true");
+            List<Map<String, Object>> page0 = svcSearch.search("", "1000", "200", "price", "true", "0", "3");
+            List<Map<String, Object>> page1 = svcSearch.search("", "1000", "200", "price", "true", "1", "3");
+            assert page0.size() == Math.min(3, allCars.size());
+            assert page1.size() == Math.max(0, Math.min(3, allCars.size() - 3));
+
+            // Pages must be consecutive slices of the full sorted result
+            for (int i = 0; i < page0.size(); i++) {
+                assert page0.get(i).get("car_id").equals(allCars.get(i).get("car_id"));
+            }
+            for (int i = 0; i < page1.size(); i++) {
+                assert page1.get(i).get("car_id").equals(allCars.get(3 + i).get("car_id"));
+            }
+        } catch (IOException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    @Test
+    void testSearchCarsInvalidPageSize() {
+        try {
+            svcSearch.search("", "1000", "200", "price", "true", "0", "0");
+            assert false;
+        } catch (IOException | InterruptedException | SQLException e) {
+            e.printStackTrace();
+            assert false;
+        } catch (ResponseStatusException e) {
+            assert Objects.requireNonNull(e.getMessage()).startsWith("400 BAD_REQUEST");
+        }
+    }
+
     /**
      * Tests that sorting works looping over valuesOfSortBy and valuesOfSortAsc with userId.
      */
@@ -21,20 +21,20 @@ class SvcUnclaimOfferTest {
         try {
             SvcUnclaimOffer svcUnclaimOffer = new SvcUnclaimOffer();
             TableOffersInterface tableOffers = new TableOffers(DB_NAME);
-            tableOffers.setUser(testUserId);
+            tableOffers.createTable(testUserId);
 
             // Add a claimed offerId to the offers table
-            int offerId = tableOffers.addOffer(1, 2, 3, 4, 5, 6, 7, "TEST", true);
+            int offerId = tableOffers.addOffer(testUserId, 1, 2, 3, 4, 5, 6, 7, "TEST", true);
 
             // Verify the offer is initially claimed
-            boolean claimedInit = (boolean) tableOffers.getOfferByOfferId(offerId).get("claimed");
+            boolean claimedInit = (boolean) tableOffers.getOfferByOfferId(testUserId, offerId).get("claimed");
             assert claimedInit;
 
             // Claim the offer
             svcUnclaimOffer.unclaimOffer(tableOffers, testUserId, Integer.toString(offerId));
 
             // Check that the offer is now unclaimed
-            boolean claimedFinal = (boolean) tableOffers.getOfferByOfferId(offerId).get("claimed");
+            boolean claimedFinal = (boolean) tableOffers.getOfferByOfferId(testUserId, offerId).get("claimed");
             assert !claimedFinal;
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
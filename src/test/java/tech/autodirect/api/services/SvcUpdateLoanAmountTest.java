@@ -30,16 +30,16 @@ class SvcUpdateLoanAmountTest {
     void testUpdateLoanAmount() {
         try {
 
-            tableOffers.setUser(testUserId);
+            tableOffers.createTable(testUserId);
 
             // Add the user
             tableUsers.addUser(testUserId, 700, 1000, 250);
 
             // Add an offer to the offers table
-            int offerId = tableOffers.addOffer(1, 5000, 3, 4, 5, 6, 7, "TEST", true);
+            int offerId = tableOffers.addOffer(testUserId, 1, 5000, 3, 4, 5, 6, 7, "TEST", true);
 
             // Verify the initial loan amount
-            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(offerId);
+            Map<String, Object> offerMap = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offer = new EntOffer();
             offer.loadFromMap(offerMap);
             assert offer.getLoanAmount() == 5000;
@@ -58,7 +58,7 @@ class SvcUpdateLoanAmountTest {
             );
 
             // Check loan amount was updated
-            Map<String, Object> offerMapUpdated = tableOffers.getOfferByOfferId(offerId);
+            Map<String, Object> offerMapUpdated = tableOffers.getOfferByOfferId(testUserId, offerId);
             EntOffer offerUpdated = new EntOffer();
             offerUpdated.loadFromMap(offerMapUpdated);
             assert offerUpdated.getLoanAmount() == newLoanAmount;
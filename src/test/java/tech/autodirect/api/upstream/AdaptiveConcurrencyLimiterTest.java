@@ -0,0 +1,111 @@
+package tech.autodirect.api.upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+    /**
+     * Tests that calls over the limit wait in order, and get their turn as calls finish.
+     */
+    @Test
+    void testCallsOverLimitWait() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(2, 1, 10, 60000);
+
+        assert limiter.acquire().join();
+        assert limiter.acquire().join();
+        CompletableFuture<Boolean> turn3 = limiter.acquire();
+        CompletableFuture<Boolean> turn4 = limiter.acquire();
+        assert !turn3.isDone() && !turn4.isDone();
+        assert limiter.getQueueDepth() == 2;
+
+        limiter.release(FAST_NANOS, false);
+        assert turn3.join();
+        assert !turn4.isDone();
+        assert limiter.getInFlight() == 2 && limiter.getQueueDepth() == 1;
+    }
+
+    /**
+     * Tests that dropped and slow calls lower the limit multiplicatively, down to minLimit.
+     */
+    @Test
+    void testDropsLowerLimit() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(20, 5, 40, 60000);
+
+        limiter.acquire().join();
+        limiter.release(FAST_NANOS, true);
+        assert limiter.getLimit() == 18;
+        limiter.acquire().join();
+        limiter.release(SLOW_NANOS, false);
+        assert limiter.getLimit() == 16;
+
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire().join();
+            limiter.release(FAST_NANOS, true);
+        }
+        assert limiter.getLimit() == 5;
+    }
+
+    /**
+     * Tests that fast calls raise the limit by about one per limit calls, up to maxLimit, but only while at
+     * least half of the limit is used.
+     */
+    @Test
+    void testFastCallsRaiseLimit() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(4, 1, 6, 60000);
+
+        // A single call at a time does not use the limit, so it stays the same
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire().join();
+            limiter.release(FAST_NANOS, false);
+        }
+        assert limiter.getLimit() == 4;
+
+        // With the limit in use, every 4 calls raise it by about 1 (until maxLimit)
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire().join();
+        }
+        for (int i = 0; i < 100; i++) {
+            limiter.release(FAST_NANOS, false);
+            limiter.acquire().join();
+        }
+        assert limiter.getLimit() == 6;
+    }
+
+    /**
+     * Tests that calls are rejected when the queue is full or they wait longer than maxWait.
+     */
+    @Test
+    void testRejections() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(1, 1, 1, 50);
+
+        assert limiter.acquire().join();
+        CompletableFuture<Boolean> turn2 = limiter.acquire();
+        CompletableFuture<Boolean> turn3 = limiter.acquire();
+        CompletableFuture<Boolean> turn4 = limiter.acquire();
+        assert !turn4.join();
+        assert !turn2.join() && !turn3.join();
+        assert limiter.getQueueDepth() == 0;
+        assert limiter.getRejections() == 3;
+
+        // Once the call finishes, the next one gets its turn right away
+        limiter.release(FAST_NANOS, false);
+        assert limiter.getInFlight() == 0;
+        assert limiter.acquire().join();
+    }
+
+    /**
+     * Limiter with a latency threshold of 2 seconds and a queue of 2 calls, which wait at most maxWaitMs.
+     */
+    private static AdaptiveConcurrencyLimiter createLimiter(int initialLimit, int minLimit, int maxLimit,
+                                                            long maxWaitMs) {
+        return new AdaptiveConcurrencyLimiter(
+                initialLimit, minLimit, maxLimit, 2000, 2, maxWaitMs, TimeUnit.MILLISECONDS
+        );
+    }
+}
@@ -0,0 +1,183 @@
+package tech.autodirect.api.upstream;
+
+import org.junit.jupiter.api.Test;
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+class CachingSensoApiTest {
+
+    /**
+     * Tests that an identical request (up to canonicalization) is answered from the cache.
+     */
+    @Test
+    void testRepeatedRequestIsCached() {
+        try {
+            FakeSensoApi fakeSensoApi = new FakeSensoApi(200);
+            CachingSensoApi cachingSensoApi = new CachingSensoApi(fakeSensoApi, 60, TimeUnit.SECONDS, 10);
+
+            Map<String, Object> response1 = getLoanOffer(cachingSensoApi, "Honda", "300");
+            Map<String, Object> response2 = getLoanOffer(cachingSensoApi, "honda", "300.0");
+
+            assert fakeSensoApi.calls == 1;
+            assert response1.equals(response2);
+            assert cachingSensoApi.getHits() == 1 && cachingSensoApi.getMisses() == 1;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that a cached response is not reused once its ttl has passed.
+     */
+    @Test
+    void testExpiredResponseIsNotReused() {
+        try {
+            FakeSensoApi fakeSensoApi = new FakeSensoApi(200);
+            AtomicLong now = new AtomicLong(0);
+            CachingSensoApi cachingSensoApi
+                    = new CachingSensoApi(fakeSensoApi, 60, TimeUnit.SECONDS, 10, now::get);
+
+            getLoanOffer(cachingSensoApi, "Honda", "300");
+            now.set(TimeUnit.SECONDS.toNanos(59));
+            getLoanOffer(cachingSensoApi, "Honda", "300");
+            assert fakeSensoApi.calls == 1;
+
+            now.set(TimeUnit.SECONDS.toNanos(60));
+            getLoanOffer(cachingSensoApi, "Honda", "300");
+            assert fakeSensoApi.calls == 2;
+            assert cachingSensoApi.getHits() == 1 && cachingSensoApi.getMisses() == 2;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that the least recently used response is evicted when the cache is full.
+     */
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        try {
+            FakeSensoApi fakeSensoApi = new FakeSensoApi(200);
+            CachingSensoApi cachingSensoApi = new CachingSensoApi(fakeSensoApi, 60, TimeUnit.SECONDS, 2);
+
+            getLoanOffer(cachingSensoApi, "Honda", "100");
+            getLoanOffer(cachingSensoApi, "Honda", "200");
+            getLoanOffer(cachingSensoApi, "Honda", "100"); // hit, so "200" is now the least recently used
+            getLoanOffer(cachingSensoApi, "Honda", "300"); // evicts "200"
+            assert cachingSensoApi.size() == 2;
+            assert fakeSensoApi.calls == 3;
+
+            getLoanOffer(cachingSensoApi, "Honda", "100");
+            assert fakeSensoApi.calls == 3;
+            getLoanOffer(cachingSensoApi, "Honda", "200");
+            assert fakeSensoApi.calls == 4;
+            assert (long) cachingSensoApi.getStats().get("evictions") == 2;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that server errors, rate limiting and rejected credentials responses are not cached.
+     */
+    @Test
+    void testErrorsAreNotCached() {
+        try {
+            for (int status : new int[] {401, 403, 429, 500, 503}) {
+                FakeSensoApi fakeSensoApi = new FakeSensoApi(status);
+                CachingSensoApi cachingSensoApi = new CachingSensoApi(fakeSensoApi, 60, TimeUnit.SECONDS, 10);
+                getLoanOffer(cachingSensoApi, "Honda", "300");
+                getLoanOffer(cachingSensoApi, "Honda", "300");
+                assert fakeSensoApi.calls == 2;
+                assert cachingSensoApi.size() == 0;
+            }
+
+            // Declined loans are answered the same way every time, so they are cached
+            FakeSensoApi fakeSensoApi = new FakeSensoApi(400);
+            CachingSensoApi cachingSensoApi = new CachingSensoApi(fakeSensoApi, 60, TimeUnit.SECONDS, 10);
+            getLoanOffer(cachingSensoApi, "Honda", "300");
+            getLoanOffer(cachingSensoApi, "Honda", "300");
+            assert fakeSensoApi.calls == 1;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that getLoanOfferAsync() shares the cache with getLoanOffer().
+     */
+    @Test
+    void testAsyncRequestsAreCached() {
+        try {
+            FakeSensoApi fakeSensoApi = new FakeSensoApi(200);
+            CachingSensoApi cachingSensoApi = new CachingSensoApi(fakeSensoApi, 60, TimeUnit.SECONDS, 10);
+
+            EntLoanQuote quote1 = cachingSensoApi.getLoanOfferAsync(
+                    "10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000"
+            ).join();
+            Map<String, Object> response2 = getLoanOffer(cachingSensoApi, "Honda", "300");
+            EntLoanQuote quote3 = cachingSensoApi.getLoanOfferAsync(
+                    "10000", "700", "300", "honda", "Civic", "2020", "10", "1000", "1000"
+            ).join();
+
+            assert fakeSensoApi.calls == 1;
+            assert quote1.getLoanAmount() == 10000;
+            assert response2.equals(quote1.toResponse());
+            assert quote3.toResponse().equals(quote1.toResponse());
+            assert cachingSensoApi.getHits() == 2 && cachingSensoApi.getMisses() == 1;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    private Map<String, Object> getLoanOffer(SensoApiInterface sensoApi, String vehicleMake, String budget)
+            throws IOException, InterruptedException {
+        return sensoApi.getLoanOffer("10000", "700", budget, vehicleMake, "Civic", "2020", "10", "1000", "1000");
+    }
+
+    /**
+     * Senso API that answers every request with the same status and counts how often it is called.
+     */
+    private static class FakeSensoApi implements SensoApiInterface {
+        private final int status;
+        private int calls = 0;
+
+        private FakeSensoApi(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public Map<String, Object> getLoanOffer(
+                String loanAmount,
+                String creditScore,
+                String budget,
+                String vehicleMake,
+                String vehicleModel,
+                String vehicleYear,
+                String vehicleKms,
+                String listPrice,
+                String downPayment
+        ) {
+            calls++;
+            Map<String, Object> body = new HashMap<>();
+            body.put("amount", Double.parseDouble(loanAmount));
+            body.put("budget", budget);
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", status);
+            response.put("body", body);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package tech.autodirect.api.upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+class CircuitBreakerTest {
+    private static final long SLOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * Tests that the breaker opens once enough of the recorded calls failed, and not before minimumCalls.
+     */
+    @Test
+    void testOpensOnFailureRate() {
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker circuitBreaker = createCircuitBreaker(now);
+
+        for (int i = 0; i < 4; i++) {
+            assert circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(0, true);
+        }
+        assert circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
+
+        assert circuitBreaker.tryAcquirePermission();
+        circuitBreaker.onResult(0, false);
+        assert circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+        assert !circuitBreaker.tryAcquirePermission();
+        assert (long) circuitBreaker.getStats().get("not_permitted_calls") == 1;
+    }
+
+    /**
+     * Tests that the breaker opens once enough of the recorded calls were slow, even if none failed.
+     */
+    @Test
+    void testOpensOnSlowCallRate() {
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker circuitBreaker = createCircuitBreaker(now);
+
+        for (int i = 0; i < 5; i++) {
+            assert circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(i < 4 ? SLOW_NANOS : 0, false);
+        }
+        assert circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Tests that old outcomes drop out of the window, so that a few failures spread out do not open the breaker.
+     */
+    @Test
+    void testOldOutcomesLeaveWindow() {
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker circuitBreaker = createCircuitBreaker(now);
+
+        for (int i = 0; i < 30; i++) {
+            assert circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(0, i % 3 == 0);
+        }
+        assert circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
+        assert (int) circuitBreaker.getStats().get("buffered_calls") == 10;
+    }
+
+    /**
+     * Tests that an open breaker lets trial calls through after openDuration, and closes once they succeed.
+     */
+    @Test
+    void testHalfOpenCloses() {
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker circuitBreaker = openCircuitBreaker(now);
+
+        now.set(TimeUnit.SECONDS.toNanos(29));
+        assert !circuitBreaker.tryAcquirePermission();
+        now.set(TimeUnit.SECONDS.toNanos(30));
+        assert circuitBreaker.tryAcquirePermission();
+        assert circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN;
+        assert circuitBreaker.tryAcquirePermission();
+        assert !circuitBreaker.tryAcquirePermission();
+
+        circuitBreaker.onResult(0, false);
+        assert circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN;
+        circuitBreaker.onResult(0, false);
+        assert circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
+        assert (int) circuitBreaker.getStats().get("buffered_calls") == 0;
+    }
+
+    /**
+     * Tests that a failed trial call opens the breaker again.
+     */
+    @Test
+    void testHalfOpenReopens() {
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker circuitBreaker = openCircuitBreaker(now);
+
+        now.set(TimeUnit.SECONDS.toNanos(30));
+        assert circuitBreaker.tryAcquirePermission();
+        circuitBreaker.onResult(SLOW_NANOS, false);
+        assert circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+        assert !circuitBreaker.tryAcquirePermission();
+        assert (long) circuitBreaker.getStats().get("times_opened") == 2;
+    }
+
+    /**
+     * Tests that a released trial permission can be used by another call.
+     */
+    @Test
+    void testReleasePermission() {
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker circuitBreaker = openCircuitBreaker(now);
+
+        now.set(TimeUnit.SECONDS.toNanos(30));
+        assert circuitBreaker.tryAcquirePermission();
+        assert circuitBreaker.tryAcquirePermission();
+        circuitBreaker.releasePermission();
+        assert circuitBreaker.tryAcquirePermission();
+        assert !circuitBreaker.tryAcquirePermission();
+    }
+
+    /**
+     * Breaker over the last 10 calls (at least 5), opening at 50% failed or 80% slow calls for 30 seconds,
+     * with 2 trial calls.
+     */
+    private static CircuitBreaker createCircuitBreaker(AtomicLong now) {
+        return new CircuitBreaker(10, 5, 50, 2, 80, 30, 2, TimeUnit.SECONDS, now::get);
+    }
+
+    private static CircuitBreaker openCircuitBreaker(AtomicLong now) {
+        CircuitBreaker circuitBreaker = createCircuitBreaker(now);
+        for (int i = 0; i < 5; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(0, true);
+        }
+        assert circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,133 @@
+package tech.autodirect.api.upstream;
+
+import org.junit.jupiter.api.Test;
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+
+class CoalescingSensoApiTest {
+
+    /**
+     * Tests that identical requests (up to canonicalization) made while one is in flight share it.
+     */
+    @Test
+    void testIdenticalRequestsShareOneCall() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        CoalescingSensoApi coalescingSensoApi = new CoalescingSensoApi(pendingSensoApi);
+
+        CompletableFuture<EntLoanQuote> quote1 = getLoanOfferAsync(coalescingSensoApi, "Honda", "300");
+        CompletableFuture<EntLoanQuote> quote2 = getLoanOfferAsync(coalescingSensoApi, "honda", "300.0");
+        CompletableFuture<EntLoanQuote> quote3 = getLoanOfferAsync(coalescingSensoApi, "Honda", "400");
+        assert pendingSensoApi.getCalls() == 2;
+        assert coalescingSensoApi.getInFlight() == 2;
+
+        pendingSensoApi.getPending(0).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(10000)));
+        assert quote1.join().isApproved();
+        assert quote2.join() == quote1.join();
+        assert !quote3.isDone();
+        assert coalescingSensoApi.getUpstreamCalls() == 2 && coalescingSensoApi.getCoalescedCalls() == 1;
+    }
+
+    /**
+     * Tests that nothing is kept once a request finishes, so that the next identical request is sent again.
+     */
+    @Test
+    void testFinishedRequestIsNotReused() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        CoalescingSensoApi coalescingSensoApi = new CoalescingSensoApi(pendingSensoApi);
+
+        CompletableFuture<EntLoanQuote> quote1 = getLoanOfferAsync(coalescingSensoApi, "Honda", "300");
+        pendingSensoApi.getPending(0).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(10000)));
+        quote1.join();
+        assert coalescingSensoApi.getInFlight() == 0;
+
+        getLoanOfferAsync(coalescingSensoApi, "Honda", "300");
+        assert pendingSensoApi.getCalls() == 2;
+    }
+
+    /**
+     * Tests that all callers sharing a failed request get its error, and that one caller cancelling its
+     * future does not affect the others.
+     */
+    @Test
+    void testErrorsAndCancellation() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        CoalescingSensoApi coalescingSensoApi = new CoalescingSensoApi(pendingSensoApi);
+
+        CompletableFuture<EntLoanQuote> quote1 = getLoanOfferAsync(coalescingSensoApi, "Honda", "300");
+        CompletableFuture<EntLoanQuote> quote2 = getLoanOfferAsync(coalescingSensoApi, "Honda", "300");
+        CompletableFuture<EntLoanQuote> quote3 = getLoanOfferAsync(coalescingSensoApi, "Honda", "300");
+        quote1.cancel(true);
+        assert !pendingSensoApi.getPending(0).isDone();
+
+        pendingSensoApi.getPending(0).completeExceptionally(new IOException("connection reset"));
+        for (CompletableFuture<EntLoanQuote> quote : List.of(quote2, quote3)) {
+            try {
+                quote.join();
+                assert false;
+            } catch (CompletionException e) {
+                assert e.getCause() instanceof IOException;
+            }
+        }
+        assert coalescingSensoApi.getInFlight() == 0;
+    }
+
+    /**
+     * Tests that blocking callers on different threads share one call too.
+     */
+    @Test
+    void testBlockingRequestsShareOneCall() {
+        try {
+            PendingSensoApi pendingSensoApi = new PendingSensoApi();
+            CoalescingSensoApi coalescingSensoApi = new CoalescingSensoApi(pendingSensoApi);
+
+            List<Thread> threads = new ArrayList<>();
+            CountDownLatch finished = new CountDownLatch(3);
+            for (int i = 0; i < 3; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        Map<String, Object> response = coalescingSensoApi.getLoanOffer(
+                                "10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000"
+                        );
+                        if ((int) response.get("status") == 200) {
+                            finished.countDown();
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            while (coalescingSensoApi.getCoalescedCalls() < 2 || pendingSensoApi.getCalls() < 1) {
+                Thread.sleep(10);
+            }
+
+            pendingSensoApi.getPending(0).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(10000)));
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assert finished.getCount() == 0;
+            assert pendingSensoApi.getCalls() == 1;
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    private static CompletableFuture<EntLoanQuote> getLoanOfferAsync(
+            SensoApiInterface sensoApi,
+            String vehicleMake,
+            String budget
+    ) {
+        return sensoApi.getLoanOfferAsync("10000", "700", budget, vehicleMake, "Civic", "2020", "10", "1000", "1000");
+    }
+}
@@ -0,0 +1,106 @@
+package tech.autodirect.api.upstream;
+
+import org.junit.jupiter.api.Test;
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+
+class LimitingSensoApiTest {
+
+    /**
+     * Tests that requests over the limit are only sent once an earlier request finishes.
+     */
+    @Test
+    void testRequestsOverLimitWait() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        AdaptiveConcurrencyLimiter limiter
+                = new AdaptiveConcurrencyLimiter(2, 1, 10, 2000, 10, 60000, TimeUnit.MILLISECONDS);
+        LimitingSensoApi limitingSensoApi = new LimitingSensoApi(pendingSensoApi, limiter);
+
+        CompletableFuture<EntLoanQuote> quote1 = getLoanOfferAsync(limitingSensoApi);
+        getLoanOfferAsync(limitingSensoApi);
+        CompletableFuture<EntLoanQuote> quote3 = getLoanOfferAsync(limitingSensoApi);
+        assert pendingSensoApi.getCalls() == 2;
+        assert limiter.getQueueDepth() == 1;
+
+        pendingSensoApi.getPending(0).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(10000)));
+        assert quote1.join().isApproved();
+        assert pendingSensoApi.getCalls() == 3;
+        assert !quote3.isDone();
+
+        pendingSensoApi.getPending(2).complete(new EntLoanQuote(400, null));
+        assert !quote3.join().isApproved();
+        assert limiter.getInFlight() == 1;
+    }
+
+    /**
+     * Tests that rate limiting and server error responses and failed requests lower the limit.
+     */
+    @Test
+    void testDroppedRequestsLowerLimit() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        AdaptiveConcurrencyLimiter limiter
+                = new AdaptiveConcurrencyLimiter(20, 1, 40, 2000, 10, 60000, TimeUnit.MILLISECONDS);
+        LimitingSensoApi limitingSensoApi = new LimitingSensoApi(pendingSensoApi, limiter);
+
+        getLoanOfferAsync(limitingSensoApi);
+        getLoanOfferAsync(limitingSensoApi);
+        getLoanOfferAsync(limitingSensoApi);
+        pendingSensoApi.getPending(0).complete(new EntLoanQuote(429, null));
+        assert limiter.getLimit() == 18;
+        pendingSensoApi.getPending(1).complete(new EntLoanQuote(503, null));
+        assert limiter.getLimit() == 16;
+        pendingSensoApi.getPending(2).completeExceptionally(new HttpTimeoutException("timed out"));
+        assert limiter.getLimit() == 14;
+        assert limiter.getInFlight() == 0;
+    }
+
+    /**
+     * Tests that requests rejected by the limiter fail with a SensoUnavailableException without being sent.
+     */
+    @Test
+    void testRejectedRequestsFail() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        AdaptiveConcurrencyLimiter limiter
+                = new AdaptiveConcurrencyLimiter(1, 1, 1, 2000, 0, 0, TimeUnit.MILLISECONDS);
+        LimitingSensoApi limitingSensoApi = new LimitingSensoApi(pendingSensoApi, limiter);
+
+        getLoanOfferAsync(limitingSensoApi);
+        try {
+            getLoanOfferAsync(limitingSensoApi).join();
+            assert false;
+        } catch (CompletionException e) {
+            assert e.getCause() instanceof SensoUnavailableException;
+        }
+        assert pendingSensoApi.getCalls() == 1;
+        assert (long) limiter.getStats().get("rejections") == 1;
+    }
+
+    /**
+     * Tests that requests turned away below the limiter (e.g. by an open circuit breaker) give back their turn
+     * without changing the limit.
+     */
+    @Test
+    void testUnsentRequestsKeepLimit() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        AdaptiveConcurrencyLimiter limiter
+                = new AdaptiveConcurrencyLimiter(20, 1, 40, 2000, 10, 60000, TimeUnit.MILLISECONDS);
+        LimitingSensoApi limitingSensoApi = new LimitingSensoApi(pendingSensoApi, limiter);
+
+        for (int i = 0; i < 10; i++) {
+            getLoanOfferAsync(limitingSensoApi);
+            pendingSensoApi.getPending(i).completeExceptionally(new SensoUnavailableException("circuit is open"));
+        }
+        assert limiter.getLimit() == 20;
+        assert limiter.getInFlight() == 0;
+    }
+
+    private static CompletableFuture<EntLoanQuote> getLoanOfferAsync(SensoApiInterface sensoApi) {
+        return sensoApi.getLoanOfferAsync("10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000");
+    }
+}
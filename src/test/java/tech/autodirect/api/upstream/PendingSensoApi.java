@@ -0,0 +1,119 @@
+package tech.autodirect.api.upstream;
+
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Senso API for tests, which leaves every request pending until the test completes it (with getPending()), or
+ * answers every request right away with the same status and body (after answerWith()). Blocking requests wait for
+ * their pending request like async ones.
+ */
+public class PendingSensoApi implements SensoApiInterface {
+    // Future and parameters of every request, in the order in which they were made
+    private final List<CompletableFuture<EntLoanQuote>> requests = new ArrayList<>();
+    private final List<String[]> requestParams = new ArrayList<>();
+    private Integer status = null;
+    private Map<String, Object> body = new HashMap<>();
+
+    /**
+     * Answer the requests made from now on right away with status and an empty body (or leave them pending if
+     * status is null).
+     */
+    public synchronized void answerWith(Integer status) {
+        answerWith(status, new HashMap<>());
+    }
+
+    /**
+     * Same as above, but answers with body.
+     */
+    public synchronized void answerWith(Integer status, Map<String, Object> body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    @Override
+    public Map<String, Object> getLoanOffer(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) throws IOException, InterruptedException {
+        EntLoanQuote quote = SensoApiInterface.awaitQuote(getLoanOfferAsync(
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        ));
+        return quote.toResponse();
+    }
+
+    @Override
+    public synchronized CompletableFuture<EntLoanQuote> getLoanOfferAsync(
+            String loanAmount,
+            String creditScore,
+            String budget,
+            String vehicleMake,
+            String vehicleModel,
+            String vehicleYear,
+            String vehicleKms,
+            String listPrice,
+            String downPayment
+    ) {
+        CompletableFuture<EntLoanQuote> quote = status == null
+                ? new CompletableFuture<>()
+                : CompletableFuture.completedFuture(new EntLoanQuote(status, body));
+        requests.add(quote);
+        requestParams.add(new String[] {
+                loanAmount, creditScore, budget, vehicleMake, vehicleModel,
+                vehicleYear, vehicleKms, listPrice, downPayment
+        });
+        return quote;
+    }
+
+    /**
+     * Return the body of a Senso /rate response approving a loan of amount (as Senso sends it, e.g. the term as
+     * a string).
+     */
+    public static Map<String, Object> approvedBody(double amount) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("amount", amount);
+        body.put("capitalSum", amount);
+        body.put("interestSum", amount / 10);
+        body.put("sum", amount * 1.1);
+        body.put("interestRate", 5.0);
+        body.put("term", "36");
+        body.put("installments", List.of());
+        return body;
+    }
+
+    /**
+     * Return the number of requests made so far.
+     */
+    public synchronized int getCalls() {
+        return requests.size();
+    }
+
+    /**
+     * Return the future of the index-th request, to be completed by the test.
+     */
+    public synchronized CompletableFuture<EntLoanQuote> getPending(int index) {
+        return requests.get(index);
+    }
+
+    /**
+     * Return the vehicle make of the index-th request.
+     */
+    public synchronized String getVehicleMake(int index) {
+        return requestParams.get(index)[3];
+    }
+}
@@ -0,0 +1,221 @@
+package tech.autodirect.api.upstream;
+
+import org.junit.jupiter.api.Test;
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+class ResilientSensoApiTest {
+
+    /**
+     * Tests that requests fail at once without reaching the Senso API while the circuit breaker is open.
+     */
+    @Test
+    void testOpenCircuitFailsFast() {
+        try {
+            PendingSensoApi pendingSensoApi = new PendingSensoApi();
+            pendingSensoApi.answerWith(503);
+            AtomicLong now = new AtomicLong(0);
+            ResilientSensoApi resilientSensoApi = createResilientSensoApi(pendingSensoApi, 10, now);
+
+            for (int i = 0; i < 5; i++) {
+                assert (int) getLoanOffer(resilientSensoApi).get("status") == 503;
+            }
+            assert resilientSensoApi.getCircuitBreaker().getState() == CircuitBreaker.State.OPEN;
+            assert !resilientSensoApi.isAvailable();
+
+            try {
+                getLoanOffer(resilientSensoApi);
+                assert false;
+            } catch (SensoUnavailableException e) {
+                assert pendingSensoApi.getCalls() == 5;
+            }
+
+            // Once the breaker lets trial calls through and they succeed, requests are sent again
+            pendingSensoApi.answerWith(200);
+            now.set(TimeUnit.SECONDS.toNanos(30));
+            assert resilientSensoApi.isAvailable();
+            getLoanOffer(resilientSensoApi);
+            getLoanOffer(resilientSensoApi);
+            assert resilientSensoApi.getCircuitBreaker().getState() == CircuitBreaker.State.CLOSED;
+            assert pendingSensoApi.getCalls() == 7;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that declined loans (4xx other than 429) do not count as failures.
+     */
+    @Test
+    void testDeclinedLoansAreNotFailures() {
+        try {
+            PendingSensoApi pendingSensoApi = new PendingSensoApi();
+            pendingSensoApi.answerWith(400);
+            ResilientSensoApi resilientSensoApi = createResilientSensoApi(pendingSensoApi, 10, new AtomicLong(0));
+
+            for (int i = 0; i < 10; i++) {
+                getLoanOffer(resilientSensoApi);
+            }
+            assert resilientSensoApi.getCircuitBreaker().getState() == CircuitBreaker.State.CLOSED;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        }
+    }
+
+    /**
+     * Tests that at most maxConcurrentCalls async requests are in flight, and that the rest are turned away.
+     */
+    @Test
+    void testBulkheadRejectsExcessRequests() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        ResilientSensoApi resilientSensoApi = createResilientSensoApi(pendingSensoApi, 2, new AtomicLong(0));
+
+        CompletableFuture<EntLoanQuote> quote1 = getLoanOfferAsync(resilientSensoApi);
+        CompletableFuture<EntLoanQuote> quote2 = getLoanOfferAsync(resilientSensoApi);
+        CompletableFuture<EntLoanQuote> quote3 = getLoanOfferAsync(resilientSensoApi);
+        assert resilientSensoApi.getInFlight() == 2;
+        assert quote3.isCompletedExceptionally();
+        try {
+            quote3.join();
+            assert false;
+        } catch (CompletionException e) {
+            assert e.getCause() instanceof SensoUnavailableException;
+        }
+
+        // Once a request finishes, its turn goes to the next one
+        pendingSensoApi.getPending(0).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(10000)));
+        assert quote1.join().isApproved();
+        assert resilientSensoApi.getInFlight() == 1;
+        getLoanOfferAsync(resilientSensoApi);
+        assert resilientSensoApi.getInFlight() == 2;
+        assert !quote2.isDone();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> bulkheadStats = (Map<String, Object>) resilientSensoApi.getStats().get("bulkhead");
+        assert (long) bulkheadStats.get("rejections") == 1;
+    }
+
+    /**
+     * Tests that requests turned away below the breaker (here by a concurrency limiter) do not count as failures,
+     * and give back their bulkhead turn.
+     */
+    @Test
+    void testLimiterRejectionsAreNotFailures() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        AdaptiveConcurrencyLimiter limiter
+                = new AdaptiveConcurrencyLimiter(1, 1, 1, 2000, 0, 0, TimeUnit.MILLISECONDS);
+        ResilientSensoApi resilientSensoApi = createResilientSensoApi(
+                new LimitingSensoApi(pendingSensoApi, limiter), 10, new AtomicLong(0)
+        );
+
+        getLoanOfferAsync(resilientSensoApi);
+        for (int i = 0; i < 10; i++) {
+            try {
+                getLoanOfferAsync(resilientSensoApi).join();
+                assert false;
+            } catch (CompletionException e) {
+                assert e.getCause() instanceof SensoUnavailableException;
+            }
+        }
+        assert resilientSensoApi.getCircuitBreaker().getState() == CircuitBreaker.State.CLOSED;
+        assert (int) resilientSensoApi.getCircuitBreaker().getStats().get("buffered_calls") == 0;
+        assert resilientSensoApi.getInFlight() == 1;
+        assert pendingSensoApi.getCalls() == 1;
+    }
+
+    /**
+     * Tests that with the concurrency limiter in front of the breaker (as the API wires them), time spent waiting
+     * in the limiter's queue does not make requests count as slow.
+     */
+    @Test
+    void testLimiterQueueWaitIsNotSlow() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        AtomicLong now = new AtomicLong(0);
+        ResilientSensoApi resilientSensoApi = createResilientSensoApi(pendingSensoApi, 10, now);
+        AdaptiveConcurrencyLimiter limiter
+                = new AdaptiveConcurrencyLimiter(1, 1, 1, 60000, 10, 60000, TimeUnit.MILLISECONDS);
+        LimitingSensoApi limitingSensoApi = new LimitingSensoApi(resilientSensoApi, limiter, now::get);
+
+        List<CompletableFuture<EntLoanQuote>> quotes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            quotes.add(getLoanOfferAsync(limitingSensoApi));
+        }
+        // The first request takes 10 seconds, which the other requests spend waiting in the queue, and then the
+        // Senso API answers each of them at once
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 5; i++) {
+            assert pendingSensoApi.getCalls() == i + 1;
+            pendingSensoApi.getPending(i).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(10000)));
+            assert quotes.get(i).join().isApproved();
+        }
+        assert resilientSensoApi.getCircuitBreaker().getState() == CircuitBreaker.State.CLOSED;
+        assert (double) resilientSensoApi.getCircuitBreaker().getStats().get("slow_call_rate") == 20.0;
+    }
+
+    /**
+     * Tests that an async request that finds the bulkhead full fails at once, instead of blocking the calling
+     * thread for maxWait like a blocking request does.
+     */
+    @Test
+    void testAsyncRequestDoesNotWaitForBulkhead() {
+        PendingSensoApi pendingSensoApi = new PendingSensoApi();
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker circuitBreaker = new CircuitBreaker(10, 5, 50, 2, 80, 30, 2, TimeUnit.SECONDS, now::get);
+        ResilientSensoApi resilientSensoApi = new ResilientSensoApi(
+                pendingSensoApi, circuitBreaker, 1, 1, TimeUnit.HOURS, now::get
+        );
+
+        CompletableFuture<EntLoanQuote> quote1 = getLoanOfferAsync(resilientSensoApi);
+        CompletableFuture<EntLoanQuote> quote2 = getLoanOfferAsync(resilientSensoApi);
+        assert !quote1.isDone();
+        assert quote2.isDone();
+        try {
+            quote2.join();
+            assert false;
+        } catch (CompletionException e) {
+            assert e.getCause() instanceof SensoUnavailableException;
+        }
+        assert pendingSensoApi.getCalls() == 1;
+
+        // the rejected request did not keep a turn in the bulkhead, so the next one is sent once the first is done
+        pendingSensoApi.getPending(0).complete(new EntLoanQuote(200, PendingSensoApi.approvedBody(10000)));
+        getLoanOfferAsync(resilientSensoApi);
+        assert pendingSensoApi.getCalls() == 2;
+    }
+
+    /**
+     * ResilientSensoApi with a breaker over the last 10 calls (at least 5), opening at 50% failed or 80% slow
+     * calls for 30 seconds, with 2 trial calls, and a bulkhead that does not wait.
+     */
+    private static ResilientSensoApi createResilientSensoApi(
+            SensoApiInterface sensoApi,
+            int maxConcurrentCalls,
+            AtomicLong now
+    ) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(10, 5, 50, 2, 80, 30, 2, TimeUnit.SECONDS, now::get);
+        return new ResilientSensoApi(
+                sensoApi, circuitBreaker, maxConcurrentCalls, 0, TimeUnit.MILLISECONDS, now::get
+        );
+    }
+
+    private static Map<String, Object> getLoanOffer(SensoApiInterface sensoApi)
+            throws IOException, InterruptedException {
+        return sensoApi.getLoanOffer("10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000");
+    }
+
+    private static CompletableFuture<EntLoanQuote> getLoanOfferAsync(SensoApiInterface sensoApi) {
+        return sensoApi.getLoanOfferAsync("10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000");
+    }
+}
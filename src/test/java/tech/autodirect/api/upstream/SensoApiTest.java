@@ -1,9 +1,22 @@
 package tech.autodirect.api.upstream;
 
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
+import tech.autodirect.api.entities.EntLoanQuote;
+import tech.autodirect.api.interfaces.SensoApiInterface;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 
 
 class SensoApiTest {
@@ -31,4 +44,133 @@ class SensoApiTest {
         }
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that consecutive requests are sent over the same connection, with the API key and JSON body.
+     */
+    @Test
+    void testRequestsReuseConnection() {
+        HttpServer server = null;
+        try {
+            Set<String> clientAddresses = ConcurrentHashMap.newKeySet();
+            Set<String> apiKeys = ConcurrentHashMap.newKeySet();
+            server = startServer(exchange -> {
+                clientAddresses.add(exchange.getRemoteAddress().toString());
+                apiKeys.add(exchange.getRequestHeaders().getFirst("x-api-key"));
+                String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                byte[] responseBody = requestBody.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, responseBody.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(responseBody);
+                }
+            });
+            SensoApi sensoApi = createSensoApi(server, Duration.ofSeconds(5));
+
+            for (int i = 0; i < 3; i++) {
+                Map<String, Object> responseMap = sensoApi.getLoanOffer(
+                        "10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000"
+                );
+                assert (int) responseMap.get("status") == 200;
+                assert ((Map<?, ?>) responseMap.get("body")).get("vehicleMake").equals("Honda");
+            }
+            assert clientAddresses.size() == 1;
+            assert apiKeys.equals(Set.of("test-key"));
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    /**
+     * Tests that getLoanOfferAsync() returns a future of the typed quote, without waiting for the response.
+     */
+    @Test
+    void testGetLoanOfferAsync() {
+        HttpServer server = null;
+        try {
+            CountDownLatch respond = new CountDownLatch(1);
+            server = startServer(exchange -> {
+                try {
+                    respond.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] responseBody = ("{\"amount\": 10000.0, \"capitalSum\": 9000.0, \"interestSum\": 500.0, "
+                        + "\"sum\": 9500.0, \"interestRate\": 4.5, \"term\": \"36\", \"installments\": 36.0}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, responseBody.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(responseBody);
+                }
+            });
+            SensoApi sensoApi = createSensoApi(server, Duration.ofSeconds(5));
+
+            CompletableFuture<EntLoanQuote> future = sensoApi.getLoanOfferAsync(
+                    "10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000"
+            );
+            assert !future.isDone();
+            respond.countDown();
+
+            EntLoanQuote quote = SensoApiInterface.awaitQuote(future);
+            assert quote.isApproved();
+            assert quote.getLoanAmount() == 10000;
+            assert quote.getInterestRate() == 4.5;
+            assert quote.getTermMo() == 36;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    /**
+     * Tests that a request fails once the response takes longer than the request timeout.
+     */
+    @Test
+    void testRequestTimeout() {
+        HttpServer server = null;
+        try {
+            server = startServer(exchange -> {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            });
+            SensoApi sensoApi = createSensoApi(server, Duration.ofMillis(200));
+
+            sensoApi.getLoanOffer("10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000");
+            assert false;
+        } catch (HttpTimeoutException e) {
+            assert true;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            assert false;
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    private static HttpServer startServer(HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/rate", handler);
+        server.start();
+        return server;
+    }
+
+    private static SensoApi createSensoApi(HttpServer server, Duration requestTimeout) {
+        String sensoUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new SensoApi(sensoUrl, "test-key", Duration.ofSeconds(5), requestTimeout);
+    }
+}
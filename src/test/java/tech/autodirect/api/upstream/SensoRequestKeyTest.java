@@ -0,0 +1,54 @@
+package tech.autodirect.api.upstream;
+
+import org.junit.jupiter.api.Test;
+
+
+class SensoRequestKeyTest {
+
+    /**
+     * Tests that parameters written differently but meaning the same give equal keys.
+     */
+    @Test
+    void testEquivalentParamsGiveEqualKeys() {
+        SensoRequestKey key1 = new SensoRequestKey(
+                "10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000"
+        );
+        SensoRequestKey key2 = new SensoRequestKey(
+                "10000.0", " 700 ", "3e2", "  HONDA ", "civic", "2020.00", "10.0", "1000", "1000.000"
+        );
+        assert key1.equals(key2);
+        assert key1.hashCode() == key2.hashCode();
+    }
+
+    /**
+     * Tests that keys differ when any of the parameters differs.
+     */
+    @Test
+    void testDifferentParamsGiveDifferentKeys() {
+        String[] params = {"10000", "700", "300", "Honda", "Civic", "2020", "10", "1000", "1000"};
+        SensoRequestKey key = makeKey(params);
+        for (int i = 0; i < params.length; i++) {
+            String[] otherParams = params.clone();
+            otherParams[i] = otherParams[i] + "1";
+            assert !key.equals(makeKey(otherParams));
+        }
+    }
+
+    /**
+     * Tests that parameters that are not numbers are still compared (as trimmed strings).
+     */
+    @Test
+    void testNonNumericParams() {
+        SensoRequestKey key1 = new SensoRequestKey("abc", "700", "300", "Honda", "Civic", "2020", "10", "1000", null);
+        SensoRequestKey key2 = new SensoRequestKey(" abc", "700", "300", "Honda", "Civic", "2020", "10", "1000", null);
+        SensoRequestKey key3 = new SensoRequestKey("abd", "700", "300", "Honda", "Civic", "2020", "10", "1000", null);
+        assert key1.equals(key2);
+        assert !key1.equals(key3);
+    }
+
+    private SensoRequestKey makeKey(String[] params) {
+        return new SensoRequestKey(
+                params[0], params[1], params[2], params[3], params[4], params[5], params[6], params[7], params[8]
+        );
+    }
+}
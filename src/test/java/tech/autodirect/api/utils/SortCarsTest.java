@@ -0,0 +1,129 @@
+package tech.autodirect.api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+class SortCarsTest {
+    private final List<String> valuesOfSortBy
+            = Arrays.asList("price", "payment_mo", "interest_rate", "total_sum", "term_mo");
+
+    /**
+     * Tests that sortByKey() gives the same order as selection sort (repeatedly taking the first
+     * smallest/biggest remaining map, as SvcSearch used to do) for every sortBy key in both directions.
+     */
+    @Test
+    void testSortByKeyMatchesSelectionSort() {
+        Random random = new Random(207);
+        for (int size : new int[] {0, 1, 2, 15, 16, 17, 100, 1000}) {
+            List<Map<String, Object>> maps = makeCarAndOfferMaps(random, size);
+            for (String sortBy : valuesOfSortBy) {
+                for (boolean sortAsc : new boolean[] {true, false}) {
+                    List<Map<String, Object>> expected = selectionSort(maps, sortBy, sortAsc);
+                    List<Map<String, Object>> actual = SortCars.sortByKey(maps, sortBy, sortAsc);
+                    assert actual.size() == expected.size();
+                    for (int i = 0; i < expected.size(); i++) {
+                        // Compare identities so that the relative order of equal values is checked too
+                        assert actual.get(i) == expected.get(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that sortByKey() sorts BigDecimal values (car prices straight from the database).
+     */
+    @Test
+    void testSortByKeyWithBigDecimal() {
+        List<Map<String, Object>> maps = new ArrayList<>();
+        for (int price : new int[] {34100, 6700, 12000, 6700}) {
+            Map<String, Object> carMap = new HashMap<>();
+            carMap.put("price", BigDecimal.valueOf(price));
+            maps.add(carMap);
+        }
+
+        List<Map<String, Object>> sortedAsc = SortCars.sortByKey(maps, "price", true);
+        assert sortedAsc.get(0) == maps.get(1) && sortedAsc.get(1) == maps.get(3);
+        assert sortedAsc.get(2) == maps.get(2) && sortedAsc.get(3) == maps.get(0);
+
+        List<Map<String, Object>> sortedDesc = SortCars.sortByKey(maps, "price", false);
+        assert sortedDesc.get(0) == maps.get(0) && sortedDesc.get(1) == maps.get(2);
+        assert sortedDesc.get(2) == maps.get(1) && sortedDesc.get(3) == maps.get(3);
+    }
+
+    /**
+     * Tests that sortByKey() does not modify the list it is given.
+     */
+    @Test
+    void testSortByKeyLeavesInputUnchanged() {
+        List<Map<String, Object>> maps = makeCarAndOfferMaps(new Random(1), 50);
+        List<Map<String, Object>> copy = new ArrayList<>(maps);
+        SortCars.sortByKey(maps, "price", true);
+        assert maps.equals(copy);
+    }
+
+    /**
+     * Tests that topByKey() gives the first k maps of sortByKey(), including the order of equal values.
+     */
+    @Test
+    void testTopByKeyMatchesSortByKey() {
+        Random random = new Random(42);
+        List<Map<String, Object>> maps = makeCarAndOfferMaps(random, 500);
+        for (String sortBy : valuesOfSortBy) {
+            for (boolean sortAsc : new boolean[] {true, false}) {
+                List<Map<String, Object>> sorted = SortCars.sortByKey(maps, sortBy, sortAsc);
+                for (int k : new int[] {0, 1, 2, 10, 37, 499, 500, 600}) {
+                    List<Map<String, Object>> top = SortCars.topByKey(maps, sortBy, sortAsc, k);
+                    assert top.size() == Math.min(k, maps.size());
+                    for (int i = 0; i < top.size(); i++) {
+                        assert top.get(i) == sorted.get(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Make size car and offer maps with few distinct values, so that there are plenty of ties.
+     */
+    private List<Map<String, Object>> makeCarAndOfferMaps(Random random, int size) {
+        List<Map<String, Object>> maps = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("car_id", i);
+            map.put("price", (double) (5000 + 500 * random.nextInt(20)));
+            map.put("payment_mo", 100 + random.nextInt(10) / 4.0);
+            map.put("interest_rate", random.nextInt(8) / 100.0);
+            map.put("total_sum", (double) (6000 + 1000 * random.nextInt(15)));
+            map.put("term_mo", (double) (12 * (1 + random.nextInt(6))));
+            maps.add(map);
+        }
+        return maps;
+    }
+
+    /**
+     * Reference implementation: repeatedly remove the first smallest (or biggest) remaining map.
+     */
+    private List<Map<String, Object>> selectionSort(
+            List<Map<String, Object>> maps,
+            String key,
+            boolean sortAsc
+    ) {
+        List<Map<String, Object>> remaining = new ArrayList<>(maps);
+        List<Map<String, Object>> sorted = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            int best = 0;
+            for (int i = 1; i < remaining.size(); i++) {
+                double value = ((Number) remaining.get(i).get(key)).doubleValue();
+                double bestValue = ((Number) remaining.get(best).get(key)).doubleValue();
+                if (sortAsc ? value < bestValue : value > bestValue) {
+                    best = i;
+                }
+            }
+            sorted.add(remaining.remove(best));
+        }
+        return sorted;
+    }
+}